@@ -0,0 +1,85 @@
+package com.example.opaybanking.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Applies versioned SQL scripts from classpath:db/migration (V{n}__{description}.sql)
+ * once per database, after Hibernate has updated the schema and before the app takes traffic.
+ * Applied versions are recorded in schema_migration; an advisory lock keeps nodes that
+ * start together from running the same script twice.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class SchemaMigrationRunner implements InitializingBean {
+
+    private static final Logger log = LoggerFactory.getLogger(SchemaMigrationRunner.class);
+    private static final Pattern FILE_NAME = Pattern.compile("V(\\d+)__(.+)\\.sql");
+    private static final long ADVISORY_LOCK_KEY = 190909L;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public SchemaMigrationRunner(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public void afterPropertiesSet() throws IOException {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS schema_migration (" +
+                "version INTEGER PRIMARY KEY, " +
+                "description VARCHAR(255) NOT NULL, " +
+                "applied_at TIMESTAMP NOT NULL DEFAULT now())");
+
+        Resource[] scripts = new PathMatchingResourcePatternResolver().getResources("classpath:db/migration/V*__*.sql");
+        List<Resource> ordered = Arrays.stream(scripts)
+                .filter(r -> r.getFilename() != null && FILE_NAME.matcher(r.getFilename()).matches())
+                .sorted(Comparator.comparingInt(SchemaMigrationRunner::versionOf))
+                .toList();
+
+        for (Resource script : ordered) {
+            apply(script);
+        }
+    }
+
+    private void apply(Resource script) throws IOException {
+        Matcher m = FILE_NAME.matcher(script.getFilename());
+        m.matches();
+        int version = Integer.parseInt(m.group(1));
+        String description = m.group(2).replace('_', ' ');
+        String sql = script.getContentAsString(StandardCharsets.UTF_8);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.query("SELECT pg_advisory_xact_lock(?)", rs -> null, ADVISORY_LOCK_KEY);
+            Integer applied = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM schema_migration WHERE version = ?", Integer.class, version);
+            if (applied != null && applied > 0) return;
+
+            log.info("Applying schema migration V{} - {}", version, description);
+            jdbcTemplate.execute(sql);
+            jdbcTemplate.update("INSERT INTO schema_migration (version, description) VALUES (?, ?)", version, description);
+        });
+    }
+
+    private static int versionOf(Resource resource) {
+        Matcher m = FILE_NAME.matcher(resource.getFilename());
+        return m.matches() ? Integer.parseInt(m.group(1)) : Integer.MAX_VALUE;
+    }
+}
@@ -5,11 +5,14 @@ import com.example.opaybanking.dto.LoginResponse;
 import com.example.opaybanking.dto.RegistrationResponse;
 import com.example.opaybanking.model.*;
 import com.example.opaybanking.repo.userRepo;
+import com.example.opaybanking.service.AuthenticatedUserCache;
+import com.example.opaybanking.service.EmailService;
+import com.example.opaybanking.service.HashVerificationService;
 import com.example.opaybanking.service.OtpService;
 import com.example.opaybanking.service.userService;
 import com.example.opaybanking.util.JwtUtil;
+import jakarta.mail.MessagingException;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
@@ -23,16 +26,21 @@ public class AuthController {
     private final userService userService;
     private final OtpService otpService;
     private final userRepo userRepo;
-    private final PasswordEncoder passwordEncoder;
+    private final HashVerificationService hashVerifier;
     private final JwtUtil jwtUtil;
+    private final AuthenticatedUserCache userCache;
+    private final EmailService emailService;
 
 
-    public AuthController(com.example.opaybanking.service.userService userService, OtpService otpService, com.example.opaybanking.repo.userRepo userRepo, PasswordEncoder passwordEncoder, JwtUtil jwtUtil) {
+    public AuthController(com.example.opaybanking.service.userService userService, OtpService otpService, com.example.opaybanking.repo.userRepo userRepo, HashVerificationService hashVerifier, JwtUtil jwtUtil,
+                          AuthenticatedUserCache userCache, EmailService emailService) {
         this.userService = userService;
         this.otpService = otpService;
         this.userRepo = userRepo;
-        this.passwordEncoder = passwordEncoder;
+        this.hashVerifier = hashVerifier;
         this.jwtUtil = jwtUtil;
+        this.userCache = userCache;
+        this.emailService = emailService;
     }
 
     @PostMapping("/register")
@@ -53,14 +61,19 @@ public class AuthController {
         String password = req.get("password");
 
         User user = userRepo.findByEmailIgnoreCase(email);
-        if (user == null || !passwordEncoder.matches(password, user.getPassword())) {
+        if (user == null || !hashVerifier.matchesPassword(password, user.getPassword())) {
             return ResponseEntity.status(400)
                     .body(Map.of("message", "Invalid email or password"));
         }
 
-        // Generate & store OTP
-        String otp = otpService.generateOtp(email);
-        System.out.println("LOGIN OTP for " + email + ": " + otp);
+        // Generate & store OTP; with SKIP_EMAIL the code goes to the logs instead
+        try {
+            String otp = otpService.generateOtp(email);
+            emailService.sendOtpEmail(user.getEmail(), otp);
+        } catch (MessagingException | RuntimeException e) {
+            return ResponseEntity.status(400)
+                    .body(Map.of("message", e.getMessage()));
+        }
 
         return ResponseEntity.ok(Map.of(
                 "message", "OTP sent! Check Railway logs.",
@@ -82,6 +95,7 @@ public class AuthController {
         if (user.getAccountStatus() == AccountStatus.PENDING) {
             user.setAccountStatus(AccountStatus.VERIFIED);
             userRepo.save(user);
+            userCache.invalidate(user.getUserId());
         }
 
         String token = jwtUtil.generateToken(
@@ -7,6 +7,7 @@ import com.example.opaybanking.model.Transaction;
 import com.example.opaybanking.model.User;
 import com.example.opaybanking.repo.BankRepo;
 import com.example.opaybanking.service.*;
+import com.example.opaybanking.util.JwtUtil;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -15,6 +16,8 @@ import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @RestController
 @RequestMapping("/api/transactions")
@@ -26,16 +29,42 @@ public class TransactionController {
     private final BankService bankService;
     private final userService userService;
     private final WalletService walletService;
+    private final WalletLockManager walletLockManager;
+    private final IdempotencyService idempotencyService;
+    private final BulkTransferService bulkTransferService;
+    private final JdbcStatsService jdbcStatsService;
+    private final OutboxRelay outboxRelay;
+    private final TransferEngine transferEngine;
+    private final HashVerificationService hashVerificationService;
+    private final MonthlySpendingService monthlySpendingService;
+    private final ExternalPayoutService externalPayoutService;
+    private final JwtUtil jwtUtil;
 
     public TransactionController(TransactionService transactionService, ExchangeRateService exchangeRateService,
                                  NameEnquiryService nameEnquiryService, BankService bankService,
-                                 userService userService, WalletService walletService) {
+                                 userService userService, WalletService walletService,
+                                 WalletLockManager walletLockManager, IdempotencyService idempotencyService,
+                                 BulkTransferService bulkTransferService, JdbcStatsService jdbcStatsService,
+                                 OutboxRelay outboxRelay, TransferEngine transferEngine,
+                                 HashVerificationService hashVerificationService,
+                                 MonthlySpendingService monthlySpendingService,
+                                 ExternalPayoutService externalPayoutService, JwtUtil jwtUtil) {
         this.transactionService = transactionService;
         this.exchangeRateService = exchangeRateService;
         this.nameEnquiryService = nameEnquiryService;
         this.bankService = bankService;
         this.userService = userService;
         this.walletService = walletService;
+        this.walletLockManager = walletLockManager;
+        this.idempotencyService = idempotencyService;
+        this.bulkTransferService = bulkTransferService;
+        this.jdbcStatsService = jdbcStatsService;
+        this.outboxRelay = outboxRelay;
+        this.transferEngine = transferEngine;
+        this.hashVerificationService = hashVerificationService;
+        this.monthlySpendingService = monthlySpendingService;
+        this.externalPayoutService = externalPayoutService;
+        this.jwtUtil = jwtUtil;
     }
 
 
@@ -92,21 +121,55 @@ public class TransactionController {
         return ResponseEntity.ok(bankService.getAllBanks());
     }
     @PostMapping("/internal")
-    public ResponseEntity<?> internalTransfer(@RequestBody InternalTransferRequest req,
-                                              @RequestHeader("Authorization") String auth) {
-        return handle(() -> transactionService.internalTransfer(req, extractToken(auth)));
+    public CompletableFuture<ResponseEntity<?>> internalTransfer(@RequestBody InternalTransferRequest req,
+                                                                 @RequestHeader("Authorization") String auth,
+                                                                 @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        if (transferEngine.isEnabled()) {
+            return handleAsync(() -> {
+                String token = extractToken(auth);
+                return idempotencyService.executeAsync(jwtUtil.getUserId(token), "internal", idempotencyKey, req,
+                        withinTransaction -> transactionService.submitInternalTransfer(req, token, withinTransaction));
+            });
+        }
+        return CompletableFuture.completedFuture(handle(() -> {
+            String token = extractToken(auth);
+            return idempotencyService.execute(jwtUtil.getUserId(token), "internal", idempotencyKey, req,
+                    () -> transactionService.internalTransfer(req, token));
+        }));
     }
 
     @PostMapping("/cross-currency")
     public ResponseEntity<?> crossCurrencyTransfer(@RequestBody CrossCurrencyTransferRequest req,
-                                                   @RequestHeader("Authorization") String auth) {
-        return handle(() -> transactionService.crossCurrencyTransfer(req, extractToken(auth)));
+                                                   @RequestHeader("Authorization") String auth,
+                                                   @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        return handle(() -> {
+            String token = extractToken(auth);
+            return idempotencyService.execute(jwtUtil.getUserId(token), "cross-currency", idempotencyKey, req,
+                    () -> transactionService.crossCurrencyTransfer(req, token));
+        });
     }
 
     @PostMapping("/external")
     public ResponseEntity<?> externalTransfer(@RequestBody ExternalTransferRequest req,
-                                              @RequestHeader("Authorization") String auth) {
-        return handle(() -> transactionService.externalTransfer(req, extractToken(auth)));
+                                              @RequestHeader("Authorization") String auth,
+                                              @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        return handle(() -> {
+            String token = extractToken(auth);
+            return idempotencyService.execute(jwtUtil.getUserId(token), "external", idempotencyKey, req,
+                    () -> transactionService.externalTransfer(req, token));
+        });
+    }
+
+    @PostMapping("/bulk")
+    public ResponseEntity<?> bulkTransfer(@RequestBody BulkTransferRequest req,
+                                          @RequestHeader("Authorization") String auth) {
+        return handle(() -> bulkTransferService.submit(req, extractToken(auth)));
+    }
+
+    @GetMapping("/bulk/{jobId}")
+    public ResponseEntity<?> bulkTransferStatus(@PathVariable Long jobId,
+                                                @RequestHeader("Authorization") String auth) {
+        return handle(() -> bulkTransferService.getJob(jobId, extractToken(auth)));
     }
 
 
@@ -163,6 +226,116 @@ public class TransactionController {
         return handle(() -> transactionService.getAllTransactions(token));
     }
 
+    @GetMapping("/admin/lock-stats")
+    public ResponseEntity<?> getLockStats(@RequestHeader("Authorization") String auth) {
+        User user = userService.getAuthenticatedUser(extractToken(auth));
+        if (user.getRole() != Role.ADMIN) {
+            return ResponseEntity.status(403)
+                    .body(Map.of("error", "Admin access required"));
+        }
+        return ResponseEntity.ok(walletLockManager.getStats());
+    }
+
+    @GetMapping("/admin/transfer-engine-stats")
+    public ResponseEntity<?> getTransferEngineStats(@RequestHeader("Authorization") String auth) {
+        User user = userService.getAuthenticatedUser(extractToken(auth));
+        if (user.getRole() != Role.ADMIN) {
+            return ResponseEntity.status(403)
+                    .body(Map.of("error", "Admin access required"));
+        }
+        return ResponseEntity.ok(transferEngine.getStats());
+    }
+
+    @GetMapping("/admin/hash-stats")
+    public ResponseEntity<?> getHashStats(@RequestHeader("Authorization") String auth) {
+        User user = userService.getAuthenticatedUser(extractToken(auth));
+        if (user.getRole() != Role.ADMIN) {
+            return ResponseEntity.status(403)
+                    .body(Map.of("error", "Admin access required"));
+        }
+        return ResponseEntity.ok(hashVerificationService.getStats());
+    }
+
+    @GetMapping("/admin/spending-rebuild")
+    public ResponseEntity<?> getSpendingRebuild(@RequestHeader("Authorization") String auth) {
+        User user = userService.getAuthenticatedUser(extractToken(auth));
+        if (user.getRole() != Role.ADMIN) {
+            return ResponseEntity.status(403)
+                    .body(Map.of("error", "Admin access required"));
+        }
+        return ResponseEntity.ok(monthlySpendingService.getStats());
+    }
+
+    // Recomputes monthly_spending from the raw rows in the background; poll the GET for progress
+    @PostMapping("/admin/spending-rebuild")
+    public ResponseEntity<?> startSpendingRebuild(@RequestHeader("Authorization") String auth) {
+        User user = userService.getAuthenticatedUser(extractToken(auth));
+        if (user.getRole() != Role.ADMIN) {
+            return ResponseEntity.status(403)
+                    .body(Map.of("error", "Admin access required"));
+        }
+        if (!monthlySpendingService.startRebuild()) {
+            return ResponseEntity.status(409).body(Map.of("error", "A rebuild is already running"));
+        }
+        return ResponseEntity.accepted().body(Map.of("message", "Monthly spending rebuild started"));
+    }
+
+    @GetMapping("/admin/payouts/review")
+    public ResponseEntity<?> getPayoutsInReview(@RequestParam(defaultValue = "50") int limit,
+                                                @RequestHeader("Authorization") String auth) {
+        User user = userService.getAuthenticatedUser(extractToken(auth));
+        if (user.getRole() != Role.ADMIN) {
+            return ResponseEntity.status(403)
+                    .body(Map.of("error", "Admin access required"));
+        }
+        return handle(() -> externalPayoutService.getPayoutsInReview(Math.max(1, Math.min(limit, 200))));
+    }
+
+    // outcome is what the partner bank confirmed: SUCCESSFUL releases the reserve, FAILED reverses it
+    @PostMapping("/admin/payouts/{reference}/resolve")
+    public ResponseEntity<?> resolvePayout(@PathVariable String reference,
+                                           @RequestParam PayoutGateway.Outcome outcome,
+                                           @RequestParam(required = false) String note,
+                                           @RequestHeader("Authorization") String auth) {
+        User user = userService.getAuthenticatedUser(extractToken(auth));
+        if (user.getRole() != Role.ADMIN) {
+            return ResponseEntity.status(403)
+                    .body(Map.of("error", "Admin access required"));
+        }
+        return handle(() -> externalPayoutService.resolve(reference, outcome, note));
+    }
+
+    @GetMapping("/admin/jdbc-stats")
+    public ResponseEntity<?> getJdbcStats(@RequestHeader("Authorization") String auth) {
+        User user = userService.getAuthenticatedUser(extractToken(auth));
+        if (user.getRole() != Role.ADMIN) {
+            return ResponseEntity.status(403)
+                    .body(Map.of("error", "Admin access required"));
+        }
+        return ResponseEntity.ok(jdbcStatsService.getStats());
+    }
+
+    @PostMapping("/admin/jdbc-stats/reset")
+    public ResponseEntity<?> resetJdbcStats(@RequestHeader("Authorization") String auth) {
+        User user = userService.getAuthenticatedUser(extractToken(auth));
+        if (user.getRole() != Role.ADMIN) {
+            return ResponseEntity.status(403)
+                    .body(Map.of("error", "Admin access required"));
+        }
+        jdbcStatsService.reset();
+        return ResponseEntity.ok(Map.of("message", "JDBC statistics reset"));
+    }
+
+    @GetMapping("/admin/outbox-stats")
+    public ResponseEntity<?> getOutboxStats(@RequestHeader("Authorization") String auth) {
+        User user = userService.getAuthenticatedUser(extractToken(auth));
+        if (user.getRole() != Role.ADMIN) {
+            return ResponseEntity.status(403)
+                    .body(Map.of("error", "Admin access required"));
+        }
+        return ResponseEntity.ok(outboxRelay.getStats());
+    }
+
 
     @GetMapping("/rates")
     public ResponseEntity<?> getRates() {
@@ -196,6 +369,22 @@ public class TransactionController {
         }
     }
 
+    private CompletableFuture<ResponseEntity<?>> handleAsync(Supplier<CompletableFuture<?>> supplier) {
+        CompletableFuture<?> result;
+        try {
+            result = supplier.get();
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                    .body(Map.of("success", false, "error", String.valueOf(e.getMessage()))));
+        }
+        return result.handle((body, error) -> {
+            if (error == null) return ResponseEntity.ok(body);
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            return ResponseEntity.badRequest()
+                    .body(Map.of("success", false, "error", String.valueOf(cause.getMessage())));
+        });
+    }
+
     @FunctionalInterface
     interface Supplier<T> {
         T get() throws Exception;
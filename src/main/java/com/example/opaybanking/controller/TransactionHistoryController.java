@@ -1,11 +1,18 @@
 package com.example.opaybanking.controller;
 
+import com.example.opaybanking.dto.HistoryPage;
+import com.example.opaybanking.dto.MonthlySummaryResponse;
 import com.example.opaybanking.dto.TransactionHistoryResponse;
 import com.example.opaybanking.service.PdfService;
+import com.example.opaybanking.service.StatementExportService;
 import com.example.opaybanking.service.TransactionHistoryService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -25,9 +32,12 @@ public class TransactionHistoryController {
         return auth.substring(7);
     }
 
+    // Cursor-paginated: ?cursor=<nextCursor>&limit=<1..1000>
     @GetMapping("/all")
-    public ResponseEntity<List<TransactionHistoryResponse>> getAll(@RequestHeader("Authorization") String auth) {
-        return ResponseEntity.ok(historyService.getAllHistory(token(auth)));
+    public ResponseEntity<HistoryPage> getAll(@RequestHeader("Authorization") String auth,
+                                              @RequestParam(required = false) String cursor,
+                                              @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(historyService.getHistoryPage(token(auth), cursor, limit));
     }
 
     @GetMapping("/month")
@@ -37,6 +47,33 @@ public class TransactionHistoryController {
         return ResponseEntity.ok(historyService.getHistoryByMonth(token(auth), month));
     }
 
+    // ?month=2025-11 or ?month=November 2025
+    @GetMapping("/summary")
+    public ResponseEntity<MonthlySummaryResponse> getSummary(
+            @RequestHeader("Authorization") String auth,
+            @RequestParam String month) {
+        return ResponseEntity.ok(historyService.getMonthSummary(token(auth), month));
+    }
+
+    // Streamed statement download: ?from=2025-01-01&to=2025-12-31&format=csv|ndjson (admins may add &userId=)
+    @GetMapping("/statement")
+    public ResponseEntity<StreamingResponseBody> exportStatement(
+            @RequestHeader("Authorization") String auth,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) Integer userId) {
+        // Parsed once, so the headers always describe the body that is written
+        StatementExportService.Format parsed = StatementExportService.Format.parse(format);
+        StreamingResponseBody body = historyService.exportStatement(token(auth), userId, from, to, parsed);
+        boolean csv = parsed == StatementExportService.Format.CSV;
+        return ResponseEntity.ok()
+                .header("Content-Disposition", "attachment; filename=statement_" + from + "_" + to
+                        + (csv ? ".csv" : ".ndjson"))
+                .contentType(csv ? new MediaType("text", "csv") : MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
     @GetMapping("/{type}/{id}")
     public ResponseEntity<TransactionHistoryResponse> getOne(
             @RequestHeader("Authorization") String auth,
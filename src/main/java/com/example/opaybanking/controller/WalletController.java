@@ -2,10 +2,16 @@ package com.example.opaybanking.controller;
 
 import com.example.opaybanking.dto.NameEnquiryResponse;
 import com.example.opaybanking.dto.PinUpdateRequest;
+import com.example.opaybanking.dto.WalletBalance;
 import com.example.opaybanking.dto.WalletResponse;
 import com.example.opaybanking.enums.Currency;
+import com.example.opaybanking.model.Money;
 import com.example.opaybanking.model.Wallet;
 import com.example.opaybanking.service.WalletService;
+import com.example.opaybanking.service.userService;
+import com.example.opaybanking.util.KeysetJsonStream;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -17,9 +23,13 @@ import java.util.Map;
 public class WalletController {
 
     private final WalletService walletService;
+    private final userService userService;
+    private final ObjectMapper objectMapper;
 
-    public WalletController(WalletService walletService) {
+    public WalletController(WalletService walletService, userService userService, ObjectMapper objectMapper) {
         this.walletService = walletService;
+        this.userService = userService;
+        this.objectMapper = objectMapper;
     }
 
     private String extractToken(String authHeader) {
@@ -70,29 +80,26 @@ public class WalletController {
 
     @GetMapping("/balance/ngn")
     public ResponseEntity<?> getNgnBalance(@RequestHeader("Authorization") String auth) {
-        double bal = walletService.getWalletByCurrency(extract(auth), Currency.NGN).getBalance();
-        return ResponseEntity.ok(Map.of("currency", "NGN", "balance", bal));
+        WalletBalance ngn = walletService.getBalance(extract(auth), Currency.NGN)
+                .orElseThrow(() -> new RuntimeException("No NGN wallet found"));
+        return ResponseEntity.ok(Map.of("currency", "NGN", "balance", ngn.balance()));
     }
 
     @GetMapping("/balance/usd")
     public ResponseEntity<?> getUsdBalance(@RequestHeader("Authorization") String auth) {
-        try {
-            double bal = walletService.getWalletByCurrency(extract(auth), Currency.USD).getBalance();
-            return ResponseEntity.ok(Map.of("currency", "USD", "balance", bal));
-        } catch (Exception e) {
-            return ResponseEntity.ok(Map.of("currency", "USD", "balance", 0.0, "note", "USD wallet not created"));
-        }
+        return walletService.getBalance(extract(auth), Currency.USD)
+                .<ResponseEntity<?>>map(usd -> ResponseEntity.ok(Map.of("currency", "USD", "balance", usd.balance())))
+                .orElseGet(() -> ResponseEntity.ok(Map.of("currency", "USD", "balance", 0.0, "note", "USD wallet not created")));
     }
 
     @GetMapping("/balances")
     public ResponseEntity<?> getAllBalances(@RequestHeader("Authorization") String auth) {
-        String token = extract(auth);
-        double ngn = walletService.getWalletByCurrency(token, Currency.NGN).getBalance();
-        double usd = 0.0;
-        try {
-            usd = walletService.getWalletByCurrency(token, Currency.USD).getBalance();
-        } catch (Exception ignored) {}
-        return ResponseEntity.ok(Map.of("ngn", ngn, "usd", usd));
+        List<WalletBalance> balances = walletService.getBalances(extract(auth));
+        WalletBalance ngn = balances.stream().filter(b -> b.currency() == Currency.NGN).findFirst()
+                .orElseThrow(() -> new RuntimeException("No NGN wallet found"));
+        double usd = balances.stream().filter(b -> b.currency() == Currency.USD).findFirst()
+                .map(WalletBalance::balance).orElse(0.0);
+        return ResponseEntity.ok(Map.of("ngn", ngn.balance(), "usd", usd));
     }
 
 
@@ -117,6 +124,18 @@ public class WalletController {
         }
     }
 
+    // Exchange the PIN for a short-lived token that can be sent as "pin" on later calls
+    @PostMapping("/pin/verify")
+    public ResponseEntity<?> verifyPin(@RequestBody Map<String, String> body,
+                                       @RequestHeader("Authorization") String auth) {
+        try {
+            return ResponseEntity.ok(walletService.issuePinStepUpToken(
+                    extractToken(auth), body.getOrDefault("currency", "NGN"), body.get("pin")));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     @PostMapping("/verify-account")
     public ResponseEntity<NameEnquiryResponse> verifyAccount(@RequestBody Map<String, String> body) {
         String accountNumber = body.get("accountNumber");
@@ -134,14 +153,21 @@ public class WalletController {
         }
     }
 
+    // Keyset-paginated and streamed: ?after=<nextCursor>&limit=<1..1000>
     @GetMapping("/admin/all")
-    public ResponseEntity<?> adminAllWallets(@RequestHeader("Authorization") String auth) {
+    public ResponseEntity<?> adminAllWallets(@RequestHeader("Authorization") String auth,
+                                             @RequestParam(required = false) Long after,
+                                             @RequestParam(defaultValue = "100") int limit) {
         try {
-            return ResponseEntity.ok(walletService.getAllWalletsAdmin(extractToken(auth)));
+            userService.requireAdmin(extractToken(auth));
         } catch (Exception e) {
             return ResponseEntity.status(403)
                     .body(Map.of("error", e.getMessage()));
         }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(KeysetJsonStream.of(objectMapper, after, limit,
+                        walletService::adminWalletPage, r -> r.walletId().longValue()));
     }
 
     @PutMapping("/admin/balance/{id}")
@@ -160,6 +186,17 @@ public class WalletController {
         }
     }
 
+    @GetMapping("/admin/reconcile/{id}")
+    public ResponseEntity<?> adminReconcileWallet(@PathVariable Integer id,
+                                                  @RequestHeader("Authorization") String auth) {
+        try {
+            return ResponseEntity.ok(walletService.adminReconcileWallet(id, extractToken(auth)));
+        } catch (Exception e) {
+            return ResponseEntity.status(403)
+                    .body(Map.of("error", e.getMessage()));
+        }
+    }
+
     @DeleteMapping("/admin/{id}")
     public ResponseEntity<?> adminDeleteWallet(@PathVariable Integer id,
                                                @RequestHeader("Authorization") String auth) {
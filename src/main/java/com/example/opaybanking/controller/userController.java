@@ -1,10 +1,13 @@
 package com.example.opaybanking.controller;
 
 import com.example.opaybanking.dto.LoginResponse;
+import com.example.opaybanking.dto.UserResponse;
 import com.example.opaybanking.model.User;
-import com.example.opaybanking.repo.userRepo;
 import com.example.opaybanking.service.CloudinaryService;
 import com.example.opaybanking.service.userService;
+import com.example.opaybanking.util.KeysetJsonStream;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -20,13 +23,13 @@ public class userController {
 
     private final userService userService;
     private final CloudinaryService cloudinaryService;
-    private final userRepo userRepo;
+    private final ObjectMapper objectMapper;
 
     public userController(userService userService,
-                          CloudinaryService cloudinaryService, userRepo userRepo) {
+                          CloudinaryService cloudinaryService, ObjectMapper objectMapper) {
         this.userService = userService;
         this.cloudinaryService = cloudinaryService;
-        this.userRepo = userRepo;
+        this.objectMapper = objectMapper;
     }
 
     private String extractToken(String authHeader) {
@@ -36,12 +39,14 @@ public class userController {
         return authHeader.substring(7);
     }
 
+    // Keyset-paginated and streamed: ?after=<nextCursor>&limit=<1..1000>
     @GetMapping("/all")
-    public ResponseEntity<?> getAllUsers(@RequestHeader("Authorization") String authHeader) {
+    public ResponseEntity<?> getAllUsers(@RequestHeader("Authorization") String authHeader,
+                                         @RequestParam(required = false) Integer after,
+                                         @RequestParam(defaultValue = "100") int limit) {
         try {
             String token = extractToken(authHeader);
-            List<User> users = userService.getAllUsers(token);
-            return ResponseEntity.ok(users);
+            userService.requireAdmin(token);
         } catch (RuntimeException e) {
             Map<String, String> errorResponse = new HashMap<>();
             errorResponse.put("error", e.getMessage());
@@ -49,6 +54,10 @@ public class userController {
             errorResponse.put("message", "Access denied - Admin role required");
             return ResponseEntity.status(403).body(errorResponse);
         }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(KeysetJsonStream.of(objectMapper, after, limit,
+                        userService::adminUserPage, UserResponse::userId));
     }
 
     @GetMapping("/{id}")
@@ -56,7 +65,7 @@ public class userController {
                                          @RequestHeader("Authorization") String authHeader) {
         try {
             String token = extractToken(authHeader);
-            User user = userService.getUserById(id, token);
+            UserResponse user = userService.getUserById(id, token);
             return ResponseEntity.ok(user);
         } catch (RuntimeException e) {
             Map<String, String> errorResponse = new HashMap<>();
@@ -72,7 +81,7 @@ public class userController {
                                         @RequestHeader("Authorization") String authHeader) {
         try {
             String token = extractToken(authHeader);
-            User updatedUser = userService.updateUser(id, user, token);
+            UserResponse updatedUser = userService.updateUser(id, user, token);
             return ResponseEntity.ok(updatedUser);
         } catch (RuntimeException e) {
             Map<String, String> errorResponse = new HashMap<>();
@@ -104,12 +113,11 @@ public class userController {
             @RequestHeader("Authorization") String auth) {
 
         String token = auth.substring(7);
-        User user = userService.getAuthenticatedUser(token);
+        userService.getAuthenticatedUser(token);
 
         try {
             String imageUrl = cloudinaryService.upload(file);
-            user.setProfilePictureUrl(imageUrl);
-            userRepo.save(user);
+            userService.updateProfilePicture(token, imageUrl);
 
             return ResponseEntity.ok(Map.of(
                     "success", true,
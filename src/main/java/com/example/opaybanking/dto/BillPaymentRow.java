@@ -0,0 +1,28 @@
+package com.example.opaybanking.dto;
+
+import com.example.opaybanking.enums.BillType;
+import com.example.opaybanking.enums.Status;
+import com.example.opaybanking.model.BillPayment;
+
+import java.time.LocalDateTime;
+
+// Projection row for bill payment history: no user entity
+public record BillPaymentRow(
+        Integer billPaymentId,
+        BillType billType,
+        String reference,
+        long amountMinor,
+        Status transactionStatus,
+        String phoneNumber,
+        String network,
+        String planId,
+        String details,
+        LocalDateTime createdAt
+) {
+
+    public static BillPaymentRow from(BillPayment bill) {
+        return new BillPaymentRow(bill.getBillPaymentId(), bill.getBillType(), bill.getReference(),
+                bill.getAmountMinor(), bill.getTransactionStatus(), bill.getPhoneNumber(),
+                bill.getNetwork(), bill.getPlanId(), bill.getDetails(), bill.getCreatedAt());
+    }
+}
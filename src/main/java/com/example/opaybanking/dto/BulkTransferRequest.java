@@ -0,0 +1,16 @@
+package com.example.opaybanking.dto;
+
+import java.util.List;
+
+public record BulkTransferRequest(
+        String currency,
+        String pin,
+        String description,
+        List<Item> items
+) {
+    public record Item(
+            String toAccountNumber,
+            Double amount,
+            String description
+    ) {}
+}
@@ -0,0 +1,58 @@
+package com.example.opaybanking.dto;
+
+import com.example.opaybanking.model.BulkTransferItem;
+import com.example.opaybanking.model.BulkTransferJob;
+import com.example.opaybanking.model.Money;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public record BulkTransferResponse(
+        Long jobId,
+        String reference,
+        String status,
+        String currency,
+        int totalItems,
+        int successCount,
+        int failedCount,
+        int pendingCount,
+        Double totalAmount,
+        Double paidAmount,
+        LocalDateTime createdAt,
+        LocalDateTime completedAt,
+        List<ItemResult> items
+) {
+    public record ItemResult(
+            int line,
+            String toAccountNumber,
+            String beneficiaryName,
+            Double amount,
+            String status,
+            String reference,
+            String failureReason
+    ) {
+        public static ItemResult from(BulkTransferItem item) {
+            return new ItemResult(item.getLineNumber(), item.getToAccountNumber(), item.getBeneficiaryName(),
+                    Money.toMajor(item.getAmountMinor()), item.getStatus().name(), item.getReference(),
+                    item.getFailureReason());
+        }
+    }
+
+    public static BulkTransferResponse from(BulkTransferJob job, List<BulkTransferItem> items) {
+        return new BulkTransferResponse(
+                job.getJobId(),
+                job.getReference(),
+                job.getStatus().name(),
+                job.getCurrency().name(),
+                job.getTotalItems(),
+                job.getSuccessCount(),
+                job.getFailedCount(),
+                job.getTotalItems() - job.getSuccessCount() - job.getFailedCount(),
+                Money.toMajor(job.getTotalAmountMinor()),
+                Money.toMajor(job.getPaidAmountMinor()),
+                job.getCreatedAt(),
+                job.getCompletedAt(),
+                items == null ? null : items.stream().map(ItemResult::from).toList()
+        );
+    }
+}
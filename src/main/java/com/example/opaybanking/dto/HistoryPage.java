@@ -0,0 +1,7 @@
+package com.example.opaybanking.dto;
+
+import java.util.List;
+
+// One page of the merged history; pass nextCursor back as ?cursor= for the next page (null on the last page)
+public record HistoryPage(List<TransactionHistoryResponse> items, int count, String nextCursor) {
+}
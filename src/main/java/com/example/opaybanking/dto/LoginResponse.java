@@ -2,8 +2,8 @@ package com.example.opaybanking.dto;
 
 import com.example.opaybanking.model.User;
 
-public record LoginResponse(boolean success,String message,User user, String token) {
+public record LoginResponse(boolean success, String message, UserResponse user, String token) {
     public LoginResponse(User user, String token) {
-        this(true, "Login successful", user,token);
+        this(true, "Login successful", UserResponse.from(user), token);
     }
-}
\ No newline at end of file
+}
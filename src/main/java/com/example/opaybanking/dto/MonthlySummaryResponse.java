@@ -0,0 +1,14 @@
+package com.example.opaybanking.dto;
+
+import com.example.opaybanking.enums.Currency;
+
+import java.util.List;
+import java.util.Map;
+
+// Totals are per wallet because wallets hold different currencies
+public record MonthlySummaryResponse(String month, List<WalletTotals> wallets) {
+
+    public record WalletTotals(Long walletId, Currency currency, double inflow, double outflow, int count,
+                               Map<String, Double> categories) {
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.opaybanking.dto;
+
+import com.example.opaybanking.enums.Status;
+import com.example.opaybanking.enums.TransactionType;
+import com.example.opaybanking.model.Transaction;
+
+import java.time.LocalDateTime;
+
+// Projection row for transaction listings: the columns history and TransactionResponseDto read, plus the wallet's name
+public record TransactionRow(
+        Integer transactionId,
+        TransactionType transactionType,
+        String reference,
+        long amountMinor,
+        Status transactionStatus,
+        String description,
+        String beneficiaryAccount,
+        String beneficiaryName,
+        String beneficiaryBank,
+        String walletAccountName,
+        LocalDateTime createdAt
+) {
+
+    public static TransactionRow from(Transaction tx) {
+        return new TransactionRow(tx.getTransactionId(), tx.getTransactionType(), tx.getReference(),
+                tx.getAmountMinor(), tx.getTransactionStatus(), tx.getDescription(),
+                tx.getBeneficiaryAccount(), tx.getBeneficiaryName(), tx.getBeneficiaryBank(),
+                tx.getWallet() != null ? tx.getWallet().getAccountName() : null, tx.getCreatedAt());
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.opaybanking.dto;
+
+import com.example.opaybanking.enums.Role;
+import com.example.opaybanking.model.AccountStatus;
+import com.example.opaybanking.model.User;
+
+import java.time.LocalDateTime;
+
+// Public view of a user: never the password hash, BVN or the lazy collections
+public record UserResponse(
+        Integer userId,
+        String firstName,
+        String lastName,
+        String email,
+        String phoneNumber,
+        String address,
+        AccountStatus accountStatus,
+        Role role,
+        LocalDateTime dateTime,
+        String profilePictureUrl
+) {
+    public static UserResponse from(User user) {
+        return new UserResponse(
+                user.getUserId(),
+                user.getFirstName(),
+                user.getLastName(),
+                user.getEmail(),
+                user.getPhoneNumber(),
+                user.getAddress(),
+                user.getAccountStatus(),
+                user.getRole(),
+                user.getDateTime(),
+                user.getProfilePictureUrl()
+        );
+    }
+}
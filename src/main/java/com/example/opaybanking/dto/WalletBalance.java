@@ -0,0 +1,12 @@
+package com.example.opaybanking.dto;
+
+import com.example.opaybanking.enums.Currency;
+import com.example.opaybanking.model.Money;
+
+// Projection row: just what the balance endpoints read, no wallet entity or associations
+public record WalletBalance(Long walletId, Currency currency, long balanceMinor) {
+
+    public double balance() {
+        return Money.toMajor(balanceMinor);
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.opaybanking.dto;
 
+import com.example.opaybanking.enums.Currency;
+import com.example.opaybanking.model.Money;
 import com.example.opaybanking.model.Wallet;
 import java.time.LocalDateTime;
 
@@ -15,12 +17,20 @@ public record WalletResponse(
         String bankName,
         String bankCode
 ) {
+    // JPQL constructor expression for the admin listing: wallet, owner and bank columns in one row
+    public WalletResponse(Long walletId, String accountNumber, String accountName, long balanceMinor,
+                          Currency currency, LocalDateTime createdAt, Integer userId, String firstName,
+                          String lastName, String bankName, String bankCode) {
+        this(Math.toIntExact(walletId), accountNumber, accountName, Money.toMajor(balanceMinor), currency.name(),
+                createdAt, userId, userId != null ? firstName + " " + lastName : null, bankName, bankCode);
+    }
+
     public static WalletResponse from(Wallet wallet) {
         return new WalletResponse(
                 Math.toIntExact(wallet.getWalletId()),
                 wallet.getAccountNumber(),
                 wallet.getAccountName(),
-                wallet.getBalance(),
+                Money.toMajor(wallet.getBalanceMinor()),
                 wallet.getCurrency().name(),
                 wallet.getCreatedAt(),
                 wallet.getUser() != null ? wallet.getUser().getUserId() : null,
@@ -1,5 +1,6 @@
 package com.example.opaybanking.enums;
 
+// Persisted by ordinal (see V7 migration): append new constants at the end and widen the range check
 public enum BillType {
     AIRTIME, DATA, ELECTRICITY, TV
 }
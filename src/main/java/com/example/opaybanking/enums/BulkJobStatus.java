@@ -0,0 +1,5 @@
+package com.example.opaybanking.enums;
+
+public enum BulkJobStatus {
+    QUEUED, PROCESSING, COMPLETED, PARTIALLY_COMPLETED, FAILED
+}
@@ -0,0 +1,5 @@
+package com.example.opaybanking.enums;
+
+public enum EntryDirection {
+    DEBIT, CREDIT
+}
@@ -0,0 +1,14 @@
+package com.example.opaybanking.enums;
+
+public enum OutboxEventType {
+    TRANSFER_SENT,
+    TRANSFER_RECEIVED,
+    EXTERNAL_TRANSFER_PENDING,
+    EXTERNAL_TRANSFER_SETTLED,
+    EXTERNAL_TRANSFER_REVERSED,
+    BILL_PAID,
+    CARD_TOP_UP_SENT,
+    CARD_TOP_UP_RECEIVED,
+    CARD_CREATED,
+    BALANCE_ADJUSTED
+}
@@ -0,0 +1,6 @@
+package com.example.opaybanking.enums;
+
+// REVIEW: the partner bank never confirmed either way; funds stay reserved until an admin resolves it
+public enum PayoutStatus {
+    PENDING, SUCCESSFUL, FAILED, REVIEW
+}
@@ -1,5 +1,6 @@
 package com.example.opaybanking.enums;
 
+// transaction and bill_payments persist this by ordinal (see V7 migration): append new constants at the end and widen the range checks
 public enum Status {
     PENDING, SUCCESSFUL, FAILED
 }
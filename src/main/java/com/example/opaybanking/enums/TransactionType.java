@@ -1,5 +1,6 @@
 package com.example.opaybanking.enums;
 
+// Persisted by ordinal (see V7 and V12 migrations): append new constants at the end and widen the range check
 public enum TransactionType {
-    DEPOSIT, WITHDRAWAL, TRANSFER_IN, CURRENCY_EXCHANGE_OUT, CURRENCY_EXCHANGE_IN, TRANSFER_OUT
-}
\ No newline at end of file
+    DEPOSIT, WITHDRAWAL, TRANSFER_IN, CURRENCY_EXCHANGE_OUT, CURRENCY_EXCHANGE_IN, TRANSFER_OUT, REVERSAL
+}
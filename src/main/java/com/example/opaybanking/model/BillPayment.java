@@ -2,8 +2,11 @@ package com.example.opaybanking.model;
 
 import com.example.opaybanking.enums.BillType;
 import com.example.opaybanking.enums.Status;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.time.LocalDateTime;
 
@@ -12,26 +15,37 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
-@Table(name = "bill_payments")
+@Table(name = "bill_payments", indexes = {
+        @Index(name = "uk_bill_payments_reference", columnList = "reference", unique = true),
+        @Index(name = "idx_bill_payments_user_created", columnList = "user_id, created_at DESC, bill_payment_id DESC")
+})
 public class BillPayment {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @PooledSequence(name = "bill_payments_seq")
     private Integer billPaymentId;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
+    @JsonIgnoreProperties({"hibernateLazyInitializer", "handler", "wallets", "transactions"})
     private User user;
 
-    private double amount;
+    // The wallet it was paid from, by id only so the bill outlives a deleted wallet; see V11 migration
+    @Column(name = "wallet_id")
+    private Long walletId;
 
-    @Enumerated(EnumType.STRING)
+    @Column(name = "amount_minor", nullable = false)
+    @ColumnDefault("0")
+    private long amountMinor;
+
+    // Stored as smallint ordinals with range checks; enum constants are append-only
+    @Enumerated(EnumType.ORDINAL)
     @Column(name = "bill_type", nullable = false)
     private BillType billType;
 
     private String reference;
 
-    @Enumerated(EnumType.STRING)
+    @Enumerated(EnumType.ORDINAL)
     private Status transactionStatus = Status.SUCCESSFUL;
 
     private String phoneNumber;
@@ -58,12 +72,25 @@ public class BillPayment {
         this.user = user;
     }
 
-    public double getAmount() {
-        return amount;
+    public Long getWalletId() {
+        return walletId;
+    }
+
+    public void setWalletId(Long walletId) {
+        this.walletId = walletId;
+    }
+
+    public long getAmountMinor() {
+        return amountMinor;
+    }
+
+    public void setAmountMinor(long amountMinor) {
+        this.amountMinor = amountMinor;
     }
 
-    public void setAmount(double amount) {
-        this.amount = amount;
+    @JsonProperty("amount")
+    public double getAmountMajor() {
+        return Money.toMajor(amountMinor);
     }
 
     public BillType getBillType() {
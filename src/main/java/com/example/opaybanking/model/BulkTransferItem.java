@@ -0,0 +1,48 @@
+package com.example.opaybanking.model;
+
+import com.example.opaybanking.enums.Status;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "bulk_transfer_item", indexes = @Index(name = "idx_bulk_transfer_item_job", columnList = "job_id, status, item_id"))
+public class BulkTransferItem {
+
+    @Id
+    @PooledSequence(name = "bulk_transfer_item_seq")
+    @Column(name = "item_id")
+    private Long itemId;
+
+    @Column(name = "job_id", nullable = false)
+    private Long jobId;
+
+    // 1-based position in the submitted list, so clients can match results to their file
+    @Column(name = "line_number", nullable = false)
+    private int lineNumber;
+
+    @Column(name = "to_account_number", nullable = false, length = 20)
+    private String toAccountNumber;
+
+    @Column(name = "amount_minor", nullable = false)
+    private long amountMinor;
+
+    private String description;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private Status status;
+
+    @Column(length = 40)
+    private String reference;
+
+    @Column(name = "beneficiary_name")
+    private String beneficiaryName;
+
+    @Column(name = "failure_reason")
+    private String failureReason;
+}
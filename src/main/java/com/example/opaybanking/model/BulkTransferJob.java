@@ -0,0 +1,71 @@
+package com.example.opaybanking.model;
+
+import com.example.opaybanking.enums.BulkJobStatus;
+import com.example.opaybanking.enums.Currency;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "bulk_transfer_job", indexes = {
+        @Index(name = "idx_bulk_transfer_job_user", columnList = "user_id, job_id"),
+        @Index(name = "idx_bulk_transfer_job_status", columnList = "status, updated_at")
+})
+public class BulkTransferJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "bulk_transfer_job_seq")
+    @SequenceGenerator(name = "bulk_transfer_job_seq", sequenceName = "bulk_transfer_job_seq", allocationSize = 1)
+    @Column(name = "job_id")
+    private Long jobId;
+
+    @Column(nullable = false, unique = true, length = 40)
+    private String reference;
+
+    @Column(name = "user_id", nullable = false)
+    private Integer userId;
+
+    @Column(name = "wallet_id", nullable = false)
+    private Long walletId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 3)
+    private Currency currency;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private BulkJobStatus status;
+
+    private String description;
+
+    @Column(name = "total_items", nullable = false)
+    private int totalItems;
+
+    @Column(name = "success_count", nullable = false)
+    private int successCount;
+
+    @Column(name = "failed_count", nullable = false)
+    private int failedCount;
+
+    @Column(name = "total_amount_minor", nullable = false)
+    private long totalAmountMinor;
+
+    @Column(name = "paid_amount_minor", nullable = false)
+    private long paidAmountMinor;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    // Heartbeat while a worker owns the job; stale PROCESSING jobs are picked up again
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+}
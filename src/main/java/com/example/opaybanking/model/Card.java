@@ -17,7 +17,7 @@ import java.time.LocalDateTime;
 public class Card {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @PooledSequence(name = "cards_seq")
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
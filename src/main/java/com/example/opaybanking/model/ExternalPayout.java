@@ -0,0 +1,89 @@
+package com.example.opaybanking.model;
+
+import com.example.opaybanking.enums.Currency;
+import com.example.opaybanking.enums.PayoutStatus;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Settlement state for one transfer to another bank. The customer's funds are already
+ * reserved in GL_EXTERNAL_CLEARING when this row is created; the settlement worker moves
+ * it to SUCCESSFUL (funds released to GL_EXTERNAL_PAYOUTS) or FAILED (funds reversed).
+ * A payout whose outcome stays unknown goes to REVIEW with the funds still reserved.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "external_payout", indexes = {
+        @Index(name = "idx_external_payout_due", columnList = "status, next_attempt_at"),
+        @Index(name = "idx_external_payout_transaction", columnList = "transaction_id")
+})
+public class ExternalPayout {
+
+    @Id
+    @PooledSequence(name = "external_payout_seq")
+    @Column(name = "payout_id")
+    private Long payoutId;
+
+    @Column(name = "transaction_id", nullable = false)
+    private Integer transactionId;
+
+    @Column(nullable = false, unique = true, length = 40)
+    private String reference;
+
+    @Column(name = "wallet_id", nullable = false)
+    private Long walletId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 3)
+    private Currency currency;
+
+    @Column(name = "amount_minor", nullable = false)
+    private long amountMinor;
+
+    @Column(name = "bank_code", nullable = false, length = 20)
+    private String bankCode;
+
+    @Column(name = "bank_name")
+    private String bankName;
+
+    @Column(name = "account_number", nullable = false, length = 20)
+    private String accountNumber;
+
+    @Column(name = "account_name")
+    private String accountName;
+
+    @Column(name = "name_verified", nullable = false)
+    private boolean nameVerified;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private PayoutStatus status;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    // Set while a worker is talking to the gateway so the sweeper leaves the row alone
+    @Column(name = "locked_until")
+    private LocalDateTime lockedUntil;
+
+    @Column(name = "gateway_reference", length = 100)
+    private String gatewayReference;
+
+    @Column(name = "failure_reason")
+    private String failureReason;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+}
@@ -0,0 +1,53 @@
+package com.example.opaybanking.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "idempotency_key", indexes = @Index(name = "idx_idempotency_key_expires_at", columnList = "expires_at"))
+public class IdempotencyRecord {
+
+    // "<userId>:<operation>:<client key>"
+    @Id
+    @Column(name = "scoped_key", length = 200)
+    private String scopedKey;
+
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;
+
+    @Column(name = "response_body", nullable = false, columnDefinition = "text")
+    private String responseBody;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    public String getScopedKey() {
+        return scopedKey;
+    }
+
+    public String getRequestHash() {
+        return requestHash;
+    }
+
+    public String getResponseBody() {
+        return responseBody;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+}
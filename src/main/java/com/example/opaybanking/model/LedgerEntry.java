@@ -0,0 +1,96 @@
+package com.example.opaybanking.model;
+
+import com.example.opaybanking.enums.Currency;
+import com.example.opaybanking.enums.EntryDirection;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "ledger_entry", indexes = {
+        @Index(name = "idx_ledger_entry_wallet", columnList = "wallet_id, entry_id"),
+        @Index(name = "idx_ledger_entry_reference", columnList = "reference")
+})
+public class LedgerEntry {
+
+    @Id
+    @PooledSequence(name = "ledger_entry_seq")
+    @Column(name = "entry_id")
+    private Long entryId;
+
+    @Column(nullable = false, updatable = false, length = 40)
+    private String reference;
+
+    // Null for general-ledger accounts (FX position, payouts, bills, adjustments)
+    @Column(name = "wallet_id", updatable = false)
+    private Long walletId;
+
+    @Column(nullable = false, updatable = false, length = 40)
+    private String account;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, updatable = false, length = 3)
+    private Currency currency;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, updatable = false, length = 6)
+    private EntryDirection direction;
+
+    @Column(name = "amount_minor", nullable = false, updatable = false)
+    private long amountMinor;
+
+    @Column(name = "balance_after_minor", updatable = false)
+    private Long balanceAfterMinor;
+
+    @Column(updatable = false)
+    private String description;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    public Long getEntryId() {
+        return entryId;
+    }
+
+    public String getReference() {
+        return reference;
+    }
+
+    public Long getWalletId() {
+        return walletId;
+    }
+
+    public String getAccount() {
+        return account;
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    public EntryDirection getDirection() {
+        return direction;
+    }
+
+    public long getAmountMinor() {
+        return amountMinor;
+    }
+
+    public Long getBalanceAfterMinor() {
+        return balanceAfterMinor;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+}
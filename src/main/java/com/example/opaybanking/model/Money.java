@@ -0,0 +1,70 @@
+package com.example.opaybanking.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Money is carried as a primitive long of minor units (kobo for NGN, cents for USD).
+ * All arithmetic on the transfer path works on those longs directly, so it is exact
+ * and allocates nothing; conversion to and from major units only happens at the API edge.
+ */
+public final class Money {
+
+    public static final int SCALE = 2;
+    private static final long MINOR_PER_MAJOR = 100L;
+
+    private Money() {
+    }
+
+    public static long ofMajor(double amount) {
+        return BigDecimal.valueOf(amount)
+                .movePointRight(SCALE)
+                .setScale(0, RoundingMode.HALF_UP)
+                .longValueExact();
+    }
+
+    public static long ofMajor(Double amount) {
+        if (amount == null) throw new RuntimeException("Amount is required");
+        return ofMajor(amount.doubleValue());
+    }
+
+    public static long ofPositiveMajor(Double amount) {
+        long minor = ofMajor(amount);
+        if (minor <= 0) throw new RuntimeException("Amount must be greater than zero");
+        return minor;
+    }
+
+    public static double toMajor(long minor) {
+        return minor / (double) MINOR_PER_MAJOR;
+    }
+
+    public static long add(long a, long b) {
+        return Math.addExact(a, b);
+    }
+
+    public static long subtract(long a, long b) {
+        return Math.subtractExact(a, b);
+    }
+
+    public static long multiply(long minor, double rate) {
+        return BigDecimal.valueOf(minor)
+                .multiply(BigDecimal.valueOf(rate))
+                .setScale(0, RoundingMode.HALF_EVEN)
+                .longValueExact();
+    }
+
+    public static long divide(long minor, double rate) {
+        return BigDecimal.valueOf(minor)
+                .divide(BigDecimal.valueOf(rate), 0, RoundingMode.HALF_EVEN)
+                .longValueExact();
+    }
+
+    public static String format(long minor) {
+        return String.format("%,.2f", toMajor(minor));
+    }
+
+    /** Exact decimal with no grouping, e.g. 1234.50, for machine-readable exports. */
+    public static String plain(long minor) {
+        return BigDecimal.valueOf(minor, SCALE).toPlainString();
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.opaybanking.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "otp_code", indexes = @Index(name = "idx_otp_code_expires_at", columnList = "expires_at"))
+public class OtpCode {
+
+    // Normalized email
+    @Id
+    @Column(name = "email", length = 255)
+    private String email;
+
+    // SHA-256 of email and code; null while locked out
+    @Column(name = "code_hash", length = 64)
+    private String codeHash;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "locked_until", nullable = false)
+    private LocalDateTime lockedUntil;
+}
@@ -0,0 +1,68 @@
+package com.example.opaybanking.model;
+
+import com.example.opaybanking.enums.OutboxEventType;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.time.LocalDateTime;
+
+/**
+ * One domain event, written in the same transaction as the change it describes and
+ * delivered afterwards by {@link com.example.opaybanking.service.OutboxRelay}.
+ * Rows stay until published_at is set, so a crash between commit and delivery only
+ * delays the event. claimed_until is the relay's lease while it delivers the event
+ * outside any transaction.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "outbox_event", indexes = @Index(name = "idx_outbox_event_pending", columnList = "published_at, event_id"))
+public class OutboxEvent {
+
+    @Id
+    @PooledSequence(name = "outbox_event_seq")
+    @Column(name = "event_id")
+    private Long eventId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "event_type", nullable = false, updatable = false, length = 40)
+    private OutboxEventType eventType;
+
+    @Column(name = "wallet_id", updatable = false)
+    private Long walletId;
+
+    // Ordering key: taken from the wallet under its row lock, so a wallet's events are
+    // numbered in commit order. event_id is not, since each node draws ids from its own
+    // pooled block.
+    @Column(name = "wallet_seq", nullable = false, updatable = false)
+    @ColumnDefault("0")
+    private long walletSeq;
+
+    @Column(length = 40, updatable = false)
+    private String reference;
+
+    @Column(nullable = false, updatable = false, columnDefinition = "text")
+    private String payload;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "last_error")
+    private String lastError;
+
+    @Column(name = "dead_lettered", nullable = false)
+    private boolean deadLettered;
+
+    @Column(name = "claimed_until")
+    private LocalDateTime claimedUntil;
+
+    @Column(name = "published_at")
+    private LocalDateTime publishedAt;
+}
@@ -0,0 +1,22 @@
+package com.example.opaybanking.model;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Generates ids from the named database sequence using Hibernate's pooled optimizer,
+ * so inserts can be JDBC-batched (IDENTITY columns force one round trip per row).
+ * The block size comes from the {@value PooledSequenceGenerator#ALLOCATION_SIZE_SETTING}
+ * setting, see {@link PooledSequenceGenerator}.
+ */
+@IdGeneratorType(PooledSequenceGenerator.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface PooledSequence {
+
+    String name();
+}
@@ -0,0 +1,51 @@
+package com.example.opaybanking.model;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.id.OptimizableGenerator;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.id.enhanced.StandardOptimizerDescriptor;
+import org.hibernate.id.factory.spi.CustomIdGeneratorCreationContext;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.lang.reflect.Member;
+import java.util.Properties;
+
+/**
+ * Sequence generator behind {@link PooledSequence}. Each nextval reserves a block of
+ * ids that this node hands out from memory, so one sequence call is amortised over
+ * a whole block of inserts.
+ *
+ * The block size is read from spring.jpa.properties.milesbank.id.allocation-size
+ * (default 50) and must match the sequence's INCREMENT BY in the database;
+ * Hibernate refuses to start on a mismatch, so change both together
+ * (ALTER SEQUENCE ... INCREMENT BY n).
+ */
+public class PooledSequenceGenerator extends SequenceStyleGenerator {
+
+    public static final String ALLOCATION_SIZE_SETTING = "milesbank.id.allocation-size";
+    public static final int DEFAULT_ALLOCATION_SIZE = 50;
+
+    private final String sequenceName;
+
+    public PooledSequenceGenerator(PooledSequence config, Member member, CustomIdGeneratorCreationContext context) {
+        this.sequenceName = config.name();
+    }
+
+    @Override
+    public void configure(Type type, Properties parameters, ServiceRegistry serviceRegistry) throws MappingException {
+        Object configured = serviceRegistry.requireService(ConfigurationService.class)
+                .getSettings().get(ALLOCATION_SIZE_SETTING);
+        int allocationSize = configured == null ? DEFAULT_ALLOCATION_SIZE : Integer.parseInt(configured.toString().trim());
+        if (allocationSize < 1) {
+            throw new MappingException(ALLOCATION_SIZE_SETTING + " must be at least 1");
+        }
+
+        parameters.put(SEQUENCE_PARAM, sequenceName);
+        parameters.put(INCREMENT_PARAM, String.valueOf(allocationSize));
+        parameters.put(INITIAL_PARAM, "1");
+        parameters.put(OptimizableGenerator.OPT_PARAM, StandardOptimizerDescriptor.POOLED.getExternalName());
+        super.configure(type, parameters, serviceRegistry);
+    }
+}
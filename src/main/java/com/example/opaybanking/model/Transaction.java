@@ -2,29 +2,45 @@ package com.example.opaybanking.model;
 
 import com.example.opaybanking.enums.Status;
 import com.example.opaybanking.enums.TransactionType;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 import java.time.LocalDateTime;
 
 @Data @AllArgsConstructor @NoArgsConstructor
 @Entity
+// Both legs of a transfer share one reference, so it is unique per leg type.
+// Listing indexes match the (created_at, id) DESC keyset order; see V7 migration.
+@Table(indexes = {
+        @Index(name = "uk_transaction_reference_type", columnList = "reference, transaction_type", unique = true),
+        @Index(name = "idx_transaction_user_created", columnList = "user_id, created_at DESC, transaction_id DESC"),
+        @Index(name = "idx_transaction_wallet_created", columnList = "wallet_id, created_at DESC, transaction_id DESC")
+})
 public class Transaction {
-    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Id @PooledSequence(name = "transaction_seq")
     private int transactionId;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
+    @JsonIgnoreProperties({"hibernateLazyInitializer", "handler", "wallets", "transactions"})
     private User user;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "wallet_id")
     private Wallet wallet;
 
-    private double amount;
+    @Column(name = "amount_minor", nullable = false)
+    @ColumnDefault("0")
+    private long amountMinor;
+    // Stored as smallint ordinals with range checks; enum constants are append-only
+    @Enumerated(EnumType.ORDINAL)
     private TransactionType transactionType;
     private String reference;
+    @Enumerated(EnumType.ORDINAL)
     private Status transactionStatus;
     private String description;
     private LocalDateTime createdAt = LocalDateTime.now();
@@ -57,12 +73,17 @@ public class Transaction {
         this.wallet = wallet;
     }
 
-    public double getAmount() {
-        return amount;
+    public long getAmountMinor() {
+        return amountMinor;
     }
 
-    public void setAmount(double amount) {
-        this.amount = amount;
+    public void setAmountMinor(long amountMinor) {
+        this.amountMinor = amountMinor;
+    }
+
+    @JsonProperty("amount")
+    public double getAmountMajor() {
+        return Money.toMajor(amountMinor);
     }
 
     public TransactionType getTransactionType() {
@@ -84,7 +84,18 @@ public class User {
     }
 
     public void setEmail(String email) {
-        this.email = email;
+        this.email = normalizeEmail(email);
+    }
+
+    // Emails are stored trimmed and lower-cased so lookups can use the plain unique index
+    public static String normalizeEmail(String email) {
+        return email == null ? null : email.trim().toLowerCase(java.util.Locale.ROOT);
+    }
+
+    @PrePersist
+    @PreUpdate
+    void normalize() {
+        email = normalizeEmail(email);
     }
 
     public String getPassword() {
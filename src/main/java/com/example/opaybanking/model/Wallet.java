@@ -4,8 +4,10 @@ package com.example.opaybanking.model;
 import com.example.opaybanking.enums.Currency;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.time.LocalDateTime;
 
@@ -18,7 +20,7 @@ import java.time.LocalDateTime;
 public class Wallet {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @PooledSequence(name = "wallet_seq")
     private Long walletId;  // ← Change to Long
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -26,8 +28,9 @@ public class Wallet {
     @JsonIgnoreProperties({"wallets", "transactions"})  // ← BREAKS INFINITE LOOP
     private User user;
 
-    @Column(nullable = false)
-    private double balance = 0.0;
+    @Column(name = "balance_minor", nullable = false)
+    @ColumnDefault("0")
+    private long balanceMinor = 0L;
 
     @Column(unique = true, nullable = false, length = 10)
     private String accountNumber;
@@ -46,6 +49,22 @@ public class Wallet {
     @Column(nullable = false)
     private LocalDateTime createdAt;
 
+    // Written only by WalletRepo's PIN failure queries, never by entity saves
+    @Column(name = "pin_failed_attempts", nullable = false, insertable = false, updatable = false)
+    @ColumnDefault("0")
+    @JsonIgnore
+    private int pinFailedAttempts;
+
+    @Column(name = "pin_locked_until", insertable = false, updatable = false)
+    @JsonIgnore
+    private LocalDateTime pinLockedUntil;
+
+    // Last outbox sequence number handed out for this wallet; bumped under the wallet's row lock
+    @Column(name = "event_seq", nullable = false)
+    @ColumnDefault("0")
+    @JsonIgnore
+    private long eventSeq;
+
 
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -69,12 +88,17 @@ public class Wallet {
         this.user = user;
     }
 
-    public double getBalance() {
-        return balance;
+    public long getBalanceMinor() {
+        return balanceMinor;
+    }
+
+    public void setBalanceMinor(long balanceMinor) {
+        this.balanceMinor = balanceMinor;
     }
 
-    public void setBalance(double balance) {
-        this.balance = balance;
+    @JsonProperty("balance")
+    public double getBalanceMajor() {
+        return Money.toMajor(balanceMinor);
     }
 
     public String getAccountNumber() {
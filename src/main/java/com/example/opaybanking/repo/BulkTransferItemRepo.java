@@ -0,0 +1,35 @@
+package com.example.opaybanking.repo;
+
+import com.example.opaybanking.enums.Status;
+import com.example.opaybanking.model.BulkTransferItem;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface BulkTransferItemRepo extends JpaRepository<BulkTransferItem, Long> {
+
+    List<BulkTransferItem> findByJobIdOrderByLineNumberAsc(Long jobId);
+
+    @Query("SELECT i.itemId FROM BulkTransferItem i WHERE i.jobId = :jobId AND i.status = :status ORDER BY i.itemId")
+    List<Long> findIdsByJobIdAndStatus(@Param("jobId") Long jobId, @Param("status") Status status, Pageable pageable);
+
+    @Query("SELECT DISTINCT i.toAccountNumber FROM BulkTransferItem i WHERE i.jobId = :jobId AND i.status = :status")
+    List<String> findAccountNumbersByJobIdAndStatus(@Param("jobId") Long jobId, @Param("status") Status status);
+
+    // Per status: [status, item count, amount in minor units]
+    @Query("SELECT i.status, COUNT(i), COALESCE(SUM(i.amountMinor), 0) FROM BulkTransferItem i " +
+            "WHERE i.jobId = :jobId GROUP BY i.status")
+    List<Object[]> summarize(@Param("jobId") Long jobId);
+
+    @Modifying
+    @Query("UPDATE BulkTransferItem i SET i.status = com.example.opaybanking.enums.Status.FAILED, i.failureReason = :reason " +
+            "WHERE i.itemId IN :ids AND i.status = com.example.opaybanking.enums.Status.PENDING")
+    int failPending(@Param("ids") Collection<Long> ids, @Param("reason") String reason);
+}
@@ -0,0 +1,28 @@
+package com.example.opaybanking.repo;
+
+import com.example.opaybanking.enums.BulkJobStatus;
+import com.example.opaybanking.model.BulkTransferJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface BulkTransferJobRepo extends JpaRepository<BulkTransferJob, Long> {
+
+    // Atomically hands a queued (or abandoned) job to one worker across all nodes
+    @Modifying
+    @Transactional
+    @Query("UPDATE BulkTransferJob j SET j.status = com.example.opaybanking.enums.BulkJobStatus.PROCESSING, j.updatedAt = :now " +
+            "WHERE j.jobId = :jobId AND (j.status = com.example.opaybanking.enums.BulkJobStatus.QUEUED " +
+            "OR (j.status = com.example.opaybanking.enums.BulkJobStatus.PROCESSING AND j.updatedAt < :staleBefore))")
+    int claim(@Param("jobId") Long jobId, @Param("now") LocalDateTime now, @Param("staleBefore") LocalDateTime staleBefore);
+
+    @Query("SELECT j.jobId FROM BulkTransferJob j WHERE j.status = :status AND j.updatedAt < :before ORDER BY j.jobId")
+    List<Long> findIdsByStatusUpdatedBefore(@Param("status") BulkJobStatus status, @Param("before") LocalDateTime before);
+}
@@ -0,0 +1,35 @@
+package com.example.opaybanking.repo;
+
+import com.example.opaybanking.enums.PayoutStatus;
+import com.example.opaybanking.model.ExternalPayout;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ExternalPayoutRepo extends JpaRepository<ExternalPayout, Long> {
+
+    @Query("SELECT p.payoutId FROM ExternalPayout p WHERE p.status = com.example.opaybanking.enums.PayoutStatus.PENDING " +
+            "AND p.nextAttemptAt <= :now AND (p.lockedUntil IS NULL OR p.lockedUntil < :now) ORDER BY p.nextAttemptAt")
+    List<Long> findDueIds(@Param("now") LocalDateTime now, Pageable pageable);
+
+    // Atomically hands a due payout to one worker across all nodes and counts the attempt
+    @Modifying
+    @Transactional
+    @Query("UPDATE ExternalPayout p SET p.lockedUntil = :until, p.attempts = p.attempts + 1 " +
+            "WHERE p.payoutId = :payoutId AND p.status = com.example.opaybanking.enums.PayoutStatus.PENDING " +
+            "AND p.nextAttemptAt <= :now AND (p.lockedUntil IS NULL OR p.lockedUntil < :now)")
+    int claim(@Param("payoutId") Long payoutId, @Param("now") LocalDateTime now, @Param("until") LocalDateTime until);
+
+    Optional<ExternalPayout> findByReference(String reference);
+
+    List<ExternalPayout> findByStatusOrderByCreatedAt(PayoutStatus status, Pageable pageable);
+}
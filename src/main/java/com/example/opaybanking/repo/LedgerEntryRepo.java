@@ -0,0 +1,19 @@
+package com.example.opaybanking.repo;
+
+import com.example.opaybanking.model.LedgerEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface LedgerEntryRepo extends JpaRepository<LedgerEntry, Long> {
+
+    List<LedgerEntry> findByReferenceOrderByEntryIdAsc(String reference);
+
+    @Query("SELECT COALESCE(SUM(CASE WHEN e.direction = com.example.opaybanking.enums.EntryDirection.CREDIT " +
+            "THEN e.amountMinor ELSE -e.amountMinor END), 0) FROM LedgerEntry e WHERE e.walletId = :walletId")
+    long sumByWalletId(@Param("walletId") Long walletId);
+}
@@ -0,0 +1,31 @@
+package com.example.opaybanking.repo;
+
+import com.example.opaybanking.model.OtpCode;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface OtpCodeRepo extends JpaRepository<OtpCode, String> {
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM OtpCode o WHERE o.email = :email AND o.codeHash = :codeHash " +
+            "AND o.expiresAt > :now AND o.lockedUntil <= :now")
+    int consume(@Param("email") String email, @Param("codeHash") String codeHash, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE OtpCode o SET o.attempts = o.attempts + 1 WHERE o.email = :email")
+    int incrementAttempts(@Param("email") String email);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM OtpCode o WHERE o.expiresAt <= :now AND o.lockedUntil <= :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
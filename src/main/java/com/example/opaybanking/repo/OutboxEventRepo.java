@@ -0,0 +1,56 @@
+package com.example.opaybanking.repo;
+
+import com.example.opaybanking.model.OutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepo extends JpaRepository<OutboxEvent, Long> {
+
+    /**
+     * The oldest unpublished events of wallets that no relay currently holds, each wallet's
+     * in wallet_seq order. Wallets come whole or as a leading run of their events, never
+     * with a gap, so delivering the result in order cannot overtake an earlier event.
+     */
+    @Query(value = "SELECT e.* FROM (" +
+            "SELECT wallet_id, min(event_id) AS first_event FROM outbox_event " +
+            "WHERE published_at IS NULL AND wallet_id IS NOT NULL GROUP BY wallet_id " +
+            "HAVING bool_and(claimed_until IS NULL OR claimed_until < :now) " +
+            "ORDER BY first_event LIMIT :limit) w " +
+            "CROSS JOIN LATERAL (SELECT * FROM outbox_event o WHERE o.wallet_id = w.wallet_id AND o.published_at IS NULL " +
+            "ORDER BY o.wallet_seq, o.event_id LIMIT :limit) e " +
+            "ORDER BY w.first_event, e.wallet_seq, e.event_id LIMIT :limit", nativeQuery = true)
+    List<OutboxEvent> findClaimableWalletEvents(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    @Query(value = "SELECT * FROM outbox_event WHERE published_at IS NULL AND wallet_id IS NULL " +
+            "AND (claimed_until IS NULL OR claimed_until < :now) ORDER BY event_id LIMIT :limit", nativeQuery = true)
+    List<OutboxEvent> findClaimableUnorderedEvents(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.claimedUntil = :until WHERE e.eventId IN :ids")
+    int claim(@Param("ids") Collection<Long> ids, @Param("until") LocalDateTime until);
+
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.publishedAt = :now, e.claimedUntil = null WHERE e.eventId IN :ids")
+    int markPublished(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.claimedUntil = null WHERE e.eventId IN :ids")
+    int release(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT COUNT(e) FROM OutboxEvent e WHERE e.publishedAt IS NULL")
+    long countUnpublished();
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM OutboxEvent e WHERE e.publishedAt < :before AND e.deadLettered = false")
+    int deletePublishedBefore(@Param("before") LocalDateTime before);
+}
@@ -1,6 +1,8 @@
 package com.example.opaybanking.repo;
 
+import com.example.opaybanking.dto.TransactionRow;
 import com.example.opaybanking.model.Transaction;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -12,6 +14,12 @@ import java.util.List;
 @Repository
 public interface TransactionRepo extends JpaRepository<Transaction, Long> {
 
+    // Listings select TransactionRow columns only; the wallet join is for its account name
+    String ROW = "SELECT new com.example.opaybanking.dto.TransactionRow(t.transactionId, t.transactionType, " +
+            "t.reference, t.amountMinor, t.transactionStatus, t.description, t.beneficiaryAccount, " +
+            "t.beneficiaryName, t.beneficiaryBank, w.accountName, t.createdAt) " +
+            "FROM Transaction t LEFT JOIN t.wallet w ";
+
     List<Transaction> findByWalletWalletIdOrderByCreatedAtDesc(Long walletId);
 
     // For admin: get all
@@ -21,38 +29,56 @@ public interface TransactionRepo extends JpaRepository<Transaction, Long> {
     @Query("SELECT t FROM Transaction t WHERE t.user.userId = :userId " +
             "AND (CAST(:startDate AS timestamp) IS NULL OR t.createdAt >= :startDate) " +
             "AND (CAST(:endDate AS timestamp) IS NULL OR t.createdAt <= :endDate) " +
-            "ORDER BY t.amount DESC")
+            "ORDER BY t.amountMinor DESC")
     List<Transaction> findByUserAndDateRangeOrderByAmountDesc(
             @Param("userId") Long userId,
             @Param("startDate") LocalDateTime startDate,
             @Param("endDate") LocalDateTime endDate);
 
-    @Query("SELECT t FROM Transaction t WHERE t.user.userId = :userId ORDER BY t.createdAt DESC")
-    List<Transaction> findByUserUserIdOrderByCreatedAtDesc(@Param("userId") Long userId);
+    @Query(ROW + "WHERE t.user.userId = :userId ORDER BY t.createdAt DESC")
+    List<TransactionRow> findByUserUserIdOrderByCreatedAtDesc(@Param("userId") Long userId);
 
-    @Query("SELECT t FROM Transaction t WHERE t.user.userId = :userId ORDER BY t.amount DESC")
-    List<Transaction> findByUserUserIdOrderByAmountDesc(@Param("userId") Long userId);
+    @Query(ROW + "WHERE t.user.userId = :userId ORDER BY t.amountMinor DESC")
+    List<TransactionRow> findByUserUserIdOrderByAmountDesc(@Param("userId") Long userId);
 
     // Fixed: Date range + default sort by date desc
-    @Query("SELECT t FROM Transaction t WHERE t.user.userId = :userId " +
+    @Query(ROW + "WHERE t.user.userId = :userId " +
             "AND (CAST(:startDate AS timestamp) IS NULL OR t.createdAt >= :startDate) " +
             "AND (CAST(:endDate AS timestamp) IS NULL OR t.createdAt <= :endDate) " +
             "ORDER BY t.createdAt DESC")
-    List<Transaction> findByUserAndDateRangeOrderByDateDesc(
+    List<TransactionRow> findByUserAndDateRangeOrderByDateDesc(
             @Param("userId") Long userId,
             @Param("startDate") LocalDateTime startDate,
             @Param("endDate") LocalDateTime endDate);
 
     // Alternative method without NULL checks for better performance
-    @Query("SELECT t FROM Transaction t WHERE t.user.userId = :userId " +
+    @Query(ROW + "WHERE t.user.userId = :userId " +
             "AND t.createdAt BETWEEN :startDate AND :endDate " +
             "ORDER BY t.createdAt DESC")
-    List<Transaction> findByUserAndCreatedAtBetweenOrderByCreatedAtDesc(
+    List<TransactionRow> findByUserAndCreatedAtBetweenOrderByCreatedAtDesc(
             @Param("userId") Long userId,
             @Param("startDate") LocalDateTime startDate,
             @Param("endDate") LocalDateTime endDate);
 
+    // History keyset pages, newest first: the first page, then rows strictly after (before, beforeId)
+    @Query(ROW + "WHERE t.user.userId = :userId " +
+            "ORDER BY t.createdAt DESC, t.transactionId DESC")
+    List<TransactionRow> findHistoryHead(@Param("userId") Integer userId, Pageable page);
+
+    @Query(ROW + "WHERE t.user.userId = :userId " +
+            "AND t.createdAt <= :before AND (t.createdAt < :before OR t.transactionId < :beforeId) " +
+            "ORDER BY t.createdAt DESC, t.transactionId DESC")
+    List<TransactionRow> findHistoryPage(@Param("userId") Integer userId,
+                                      @Param("before") LocalDateTime before,
+                                      @Param("beforeId") Integer beforeId,
+                                      Pageable page);
+
     List<Transaction> findByUserUserIdAndCreatedAtBetween(long longValue, LocalDateTime start, LocalDateTime end);
 
-    List<Transaction> findByUserUserIdAndCreatedAtBetweenOrderByCreatedAtDesc(long longValue, LocalDateTime start, LocalDateTime end);
+    @Query(ROW + "WHERE t.user.userId = :userId " +
+            "AND t.createdAt BETWEEN :start AND :end " +
+            "ORDER BY t.createdAt DESC")
+    List<TransactionRow> findByUserUserIdAndCreatedAtBetweenOrderByCreatedAtDesc(@Param("userId") long userId,
+                                                                                @Param("start") LocalDateTime start,
+                                                                                @Param("end") LocalDateTime end);
 }
\ No newline at end of file
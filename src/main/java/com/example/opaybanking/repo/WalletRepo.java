@@ -1,13 +1,21 @@
 package com.example.opaybanking.repo;
 
+import com.example.opaybanking.dto.WalletBalance;
+import com.example.opaybanking.dto.WalletResponse;
 import com.example.opaybanking.enums.Currency;
 import com.example.opaybanking.model.User;
 import com.example.opaybanking.model.Wallet;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -22,6 +30,27 @@ public interface WalletRepo extends JpaRepository<Wallet, Integer> {
 
     Optional<Wallet> findByAccountNumber(String accountNumber);
 
+    // Wallet and owner in one query, for name enquiry and transfer recipients
+    @Query("SELECT w FROM Wallet w JOIN FETCH w.user WHERE w.accountNumber = :accountNumber")
+    Optional<Wallet> findWithOwnerByAccountNumber(@Param("accountNumber") String accountNumber);
+
+    List<Wallet> findByAccountNumberIn(Collection<String> accountNumbers);
+
+    // All of a user's balances in one statement, oldest wallet first per currency
+    @Query("SELECT new com.example.opaybanking.dto.WalletBalance(w.walletId, w.currency, w.balanceMinor) " +
+            "FROM Wallet w WHERE w.user.userId = :userId ORDER BY w.walletId ASC")
+    List<WalletBalance> findBalancesByUserId(@Param("userId") Integer userId);
+
+    // Admin listing: keyset page by walletId with owner and bank joined into the row, no entities loaded
+    @Query("SELECT new com.example.opaybanking.dto.WalletResponse(w.walletId, w.accountNumber, w.accountName, " +
+            "w.balanceMinor, w.currency, w.createdAt, u.userId, u.firstName, u.lastName, b.bankName, b.bankCode) " +
+            "FROM Wallet w LEFT JOIN w.user u LEFT JOIN w.bank b " +
+            "WHERE w.walletId > :afterId ORDER BY w.walletId ASC")
+    List<WalletResponse> findAdminPage(@Param("afterId") Long afterId, Pageable page);
+
+    @Query("SELECT w.accountNumber FROM Wallet w WHERE w.accountNumber IN :accountNumbers")
+    List<String> findTakenAccountNumbers(@Param("accountNumbers") Collection<String> accountNumbers);
+
     // Correct way: Return first wallet (oldest) by user + currency
     @Query("SELECT w FROM Wallet w WHERE w.user = :user AND w.currency = :currency ORDER BY w.walletId ASC")
     List<Wallet> findByUserAndCurrencyOrdered(@Param("user") User user, @Param("currency") Currency currency);
@@ -32,4 +61,26 @@ public interface WalletRepo extends JpaRepository<Wallet, Integer> {
     }
 
     Optional<Wallet> findByUserAndCurrency(User user, Currency currency);
-}
\ No newline at end of file
+
+    // Writes only the PIN column, so a balance or event_seq committed by a transfer meanwhile is kept
+    @Modifying
+    @Transactional
+    @Query("UPDATE Wallet w SET w.pin = :pin WHERE w.walletId = :walletId")
+    int updatePin(@Param("walletId") Long walletId, @Param("pin") String pin);
+
+    // PIN failures commit on their own so the "Invalid PIN" error that follows cannot roll them back.
+    // Callers must not hold this wallet's row lock.
+    @Modifying
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query("UPDATE Wallet w SET " +
+            "w.pinFailedAttempts = CASE WHEN w.pinFailedAttempts + 1 >= :maxAttempts THEN 0 ELSE w.pinFailedAttempts + 1 END, " +
+            "w.pinLockedUntil = CASE WHEN w.pinFailedAttempts + 1 >= :maxAttempts THEN :lockUntil ELSE w.pinLockedUntil END " +
+            "WHERE w.walletId = :walletId")
+    int recordPinFailure(@Param("walletId") Long walletId, @Param("maxAttempts") int maxAttempts,
+                         @Param("lockUntil") LocalDateTime lockUntil);
+
+    @Modifying
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query("UPDATE Wallet w SET w.pinFailedAttempts = 0, w.pinLockedUntil = null WHERE w.walletId = :walletId")
+    int resetPinFailures(@Param("walletId") Long walletId);
+}
@@ -2,10 +2,14 @@
 
 package com.example.opaybanking.repo;
 
+import com.example.opaybanking.dto.BillPaymentRow;
 import com.example.opaybanking.enums.BillType;
 import com.example.opaybanking.model.BillPayment;
 import com.example.opaybanking.model.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
@@ -15,6 +19,11 @@ import java.util.Optional;
 @Repository
 public interface billPaymentRepo extends JpaRepository<BillPayment, Integer> {
 
+    // History selects BillPaymentRow columns only, never the user
+    String ROW = "SELECT new com.example.opaybanking.dto.BillPaymentRow(b.billPaymentId, b.billType, b.reference, " +
+            "b.amountMinor, b.transactionStatus, b.phoneNumber, b.network, b.planId, b.details, b.createdAt) " +
+            "FROM BillPayment b ";
+
     List<BillPayment> findByUserUserIdOrderByCreatedAtDesc(Integer userId);
 
     Optional<BillPayment> findByReference(String reference);
@@ -27,5 +36,23 @@ public interface billPaymentRepo extends JpaRepository<BillPayment, Integer> {
             LocalDateTime end
     );
 
-    List<BillPayment> findByUserUserIdAndCreatedAtBetweenOrderByCreatedAtDesc(Integer userId, LocalDateTime start, LocalDateTime end);
+    // History keyset pages, newest first: the first page, then rows strictly after (before, beforeId)
+    @Query(ROW + "WHERE b.user.userId = :userId " +
+            "ORDER BY b.createdAt DESC, b.billPaymentId DESC")
+    List<BillPaymentRow> findHistoryHead(@Param("userId") Integer userId, Pageable page);
+
+    @Query(ROW + "WHERE b.user.userId = :userId " +
+            "AND b.createdAt <= :before AND (b.createdAt < :before OR b.billPaymentId < :beforeId) " +
+            "ORDER BY b.createdAt DESC, b.billPaymentId DESC")
+    List<BillPaymentRow> findHistoryPage(@Param("userId") Integer userId,
+                                      @Param("before") LocalDateTime before,
+                                      @Param("beforeId") Integer beforeId,
+                                      Pageable page);
+
+    @Query(ROW + "WHERE b.user.userId = :userId " +
+            "AND b.createdAt BETWEEN :start AND :end " +
+            "ORDER BY b.createdAt DESC")
+    List<BillPaymentRow> findByUserUserIdAndCreatedAtBetweenOrderByCreatedAtDesc(@Param("userId") Integer userId,
+                                                                                @Param("start") LocalDateTime start,
+                                                                                @Param("end") LocalDateTime end);
 }
\ No newline at end of file
@@ -1,10 +1,33 @@
 package com.example.opaybanking.repo;
 
+import com.example.opaybanking.dto.UserResponse;
 import com.example.opaybanking.model.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
 
 public interface userRepo extends JpaRepository<User, Integer> {
 
+    User findByEmail(String email);
+
+    // Emails are stored normalized, so an exact match on the unique index replaces the
+    // upper(email) = upper(?) comparison, which could not use any index
+    default User findByEmailIgnoreCase(String email) {
+        return email == null ? null : findByEmail(User.normalizeEmail(email));
+    }
+
+    @Query("SELECT new com.example.opaybanking.dto.UserResponse(u.userId, u.firstName, u.lastName, u.email, " +
+            "u.phoneNumber, u.address, u.accountStatus, u.role, u.dateTime, u.profilePictureUrl) " +
+            "FROM User u WHERE u.userId = :userId")
+    Optional<UserResponse> findResponseById(@Param("userId") Integer userId);
 
-    User findByEmailIgnoreCase(String email);
+    // Admin listing: keyset page by userId, profile columns only
+    @Query("SELECT new com.example.opaybanking.dto.UserResponse(u.userId, u.firstName, u.lastName, u.email, " +
+            "u.phoneNumber, u.address, u.accountStatus, u.role, u.dateTime, u.profilePictureUrl) " +
+            "FROM User u WHERE u.userId > :afterId ORDER BY u.userId ASC")
+    List<UserResponse> findAdminPage(@Param("afterId") Integer afterId, Pageable page);
 }
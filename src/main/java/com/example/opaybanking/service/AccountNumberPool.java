@@ -0,0 +1,159 @@
+package com.example.opaybanking.service;
+
+import com.example.opaybanking.repo.WalletRepo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Hands out NUBAN account numbers for new wallets without existence checks.
+ *
+ * Numbers are generated ahead of time in blocks: serials come from
+ * account_number_serial_seq, so nodes never generate the same number. Each serial is
+ * scrambled into a 9-digit serial so consecutive wallets do not get consecutive numbers,
+ * and a NUBAN check digit is appended. Numbers already held by legacy (random) wallets
+ * are dropped with one query per block. The rest go into account_number_pool, from
+ * which each node claims a batch into memory. {@link #next} pops from that in-memory
+ * queue and only touches the database when the queue has run dry.
+ *
+ * Numbers sitting in a node's queue when it stops are never issued; the 10^9 serial
+ * space makes that loss irrelevant.
+ */
+@Service
+@DependsOn("schemaMigrationRunner")
+public class AccountNumberPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(AccountNumberPool.class);
+    private static final String MILES_BANK_CODE = "190909";
+    private static final long SERIAL_SPACE = 1_000_000_000L;
+    // Multiplier coprime to 10^9, so serial -> (serial * M + C) mod 10^9 is a bijection
+    private static final long SCRAMBLE_MULTIPLIER = 387_420_489L;
+    private static final long SCRAMBLE_OFFSET = 190_909_001L;
+    private static final int[] NUBAN_WEIGHTS = {3, 7, 3};
+
+    private final JdbcTemplate jdbcTemplate;
+    private final WalletRepo walletRepo;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<String> local;
+    private final int claimBatch;
+    private final int blockSize;
+    private final int poolLowWater;
+
+    public AccountNumberPool(JdbcTemplate jdbcTemplate, WalletRepo walletRepo,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${wallet.account-number.claim-batch:100}") int claimBatch,
+                             @Value("${wallet.account-number.block-size:1000}") int blockSize,
+                             @Value("${wallet.account-number.pool-low-water:2000}") int poolLowWater) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.walletRepo = walletRepo;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.local = new ArrayBlockingQueue<>(claimBatch * 2);
+        this.claimBatch = claimBatch;
+        this.blockSize = blockSize;
+        this.poolLowWater = poolLowWater;
+    }
+
+    public String next() {
+        String accountNumber = local.poll();
+        if (accountNumber != null) return accountNumber;
+
+        refillLocal();
+        accountNumber = local.poll();
+        if (accountNumber == null) {
+            throw new RuntimeException("Could not allocate an account number. Please try again.");
+        }
+        return accountNumber;
+    }
+
+    @Scheduled(fixedDelayString = "${wallet.account-number.refill-interval-ms:10000}")
+    public void maintain() {
+        try {
+            if (local.size() < claimBatch) {
+                refillLocal();
+            }
+            Integer pooled = jdbcTemplate.queryForObject("SELECT count(*) FROM account_number_pool", Integer.class);
+            if (pooled != null && pooled < poolLowWater) {
+                generateBlock(blockSize);
+            }
+        } catch (Exception e) {
+            logger.warn("Account number pool maintenance failed: {}", e.getMessage());
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("local", local.size());
+        stats.put("pooled", jdbcTemplate.queryForObject("SELECT count(*) FROM account_number_pool", Integer.class));
+        return stats;
+    }
+
+    private synchronized void refillLocal() {
+        // Another thread may have refilled while this one waited
+        if (local.size() >= claimBatch) return;
+
+        List<String> claimed = claim(claimBatch);
+        if (claimed.isEmpty()) {
+            generateBlock(blockSize);
+            claimed = claim(claimBatch);
+        }
+        for (String accountNumber : claimed) {
+            local.offer(accountNumber);
+        }
+    }
+
+    // SKIP LOCKED lets nodes claim concurrently without waiting on each other's rows
+    private List<String> claim(int count) {
+        return jdbcTemplate.queryForList(
+                "DELETE FROM account_number_pool WHERE account_number IN (" +
+                        "SELECT account_number FROM account_number_pool LIMIT ? FOR UPDATE SKIP LOCKED) " +
+                        "RETURNING account_number",
+                String.class, count);
+    }
+
+    private void generateBlock(int count) {
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Long> serials = jdbcTemplate.queryForList(
+                    "SELECT nextval('account_number_serial_seq') FROM generate_series(1, ?)", Long.class, count);
+            List<String> numbers = new ArrayList<>(serials.size());
+            for (Long serial : serials) {
+                numbers.add(nuban(MILES_BANK_CODE, scramble(serial)));
+            }
+            Set<String> taken = new HashSet<>(walletRepo.findTakenAccountNumbers(numbers));
+            List<String> free = numbers.stream().filter(n -> !taken.contains(n)).toList();
+            jdbcTemplate.batchUpdate(
+                    "INSERT INTO account_number_pool (account_number) VALUES (?) ON CONFLICT DO NOTHING",
+                    free, 500, (ps, accountNumber) -> ps.setString(1, accountNumber));
+            logger.info("Generated {} account numbers ({} already taken)", free.size(), taken.size());
+        });
+    }
+
+    static long scramble(long serial) {
+        return Math.floorMod(serial * SCRAMBLE_MULTIPLIER + SCRAMBLE_OFFSET, SERIAL_SPACE);
+    }
+
+    /** 9-digit serial plus the NUBAN check digit over bank code and serial (weights 3, 7, 3 repeating). */
+    static String nuban(String bankCode, long serial) {
+        String digits = bankCode + String.format("%09d", serial);
+        int sum = 0;
+        for (int i = 0; i < digits.length(); i++) {
+            sum += (digits.charAt(i) - '0') * NUBAN_WEIGHTS[i % NUBAN_WEIGHTS.length];
+        }
+        int checkDigit = (10 - sum % 10) % 10;
+        return String.format("%09d", serial) + checkDigit;
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.opaybanking.service;
+
+import com.example.opaybanking.enums.Role;
+import com.example.opaybanking.model.AccountStatus;
+import com.example.opaybanking.model.User;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Per-node LRU of the user behind a JWT, keyed by the token's userId claim, so steady-state
+ * authenticated requests resolve the caller without a query. Entries hold the profile
+ * fields only (no password hash or BVN) and are dropped by userService whenever the user
+ * changes; auth.user-cache.ttl-seconds bounds how long another node can serve a stale copy.
+ *
+ * {@link #get} hands out a fresh detached User per call. It can be used as a reference
+ * (wallet owner, transaction user) but must never be saved; load the user to change it.
+ */
+@Component
+public class AuthenticatedUserCache {
+
+    private record Snapshot(Integer userId, String firstName, String lastName, String email, String phoneNumber,
+                            String address, LocalDateTime dateTime, AccountStatus accountStatus, Role role,
+                            String profilePictureUrl, long expiresAtMillis) {
+
+        User toUser() {
+            User user = new User();
+            user.setUserId(userId);
+            user.setFirstName(firstName);
+            user.setLastName(lastName);
+            user.setEmail(email);
+            user.setPhoneNumber(phoneNumber);
+            user.setAddress(address);
+            user.setDateTime(dateTime);
+            user.setAccountStatus(accountStatus);
+            user.setRole(role);
+            user.setProfilePictureUrl(profilePictureUrl);
+            return user;
+        }
+    }
+
+    private final Map<Integer, Snapshot> entries;
+    private final long ttlMillis;
+
+    public AuthenticatedUserCache(@Value("${auth.user-cache.max-entries:10000}") int maxEntries,
+                                  @Value("${auth.user-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.ttlMillis = ttlSeconds * 1000;
+        this.entries = new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Snapshot> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /** A detached copy of the cached user, or null if not cached or expired. */
+    public User get(Integer userId) {
+        Snapshot snapshot;
+        synchronized (entries) {
+            snapshot = entries.get(userId);
+            if (snapshot != null && snapshot.expiresAtMillis() < System.currentTimeMillis()) {
+                entries.remove(userId);
+                snapshot = null;
+            }
+        }
+        return snapshot == null ? null : snapshot.toUser();
+    }
+
+    public void put(User user) {
+        Snapshot snapshot = new Snapshot(user.getUserId(), user.getFirstName(), user.getLastName(), user.getEmail(),
+                user.getPhoneNumber(), user.getAddress(), user.getDateTime(), user.getAccountStatus(), user.getRole(),
+                user.getProfilePictureUrl(), System.currentTimeMillis() + ttlMillis);
+        synchronized (entries) {
+            entries.put(user.getUserId(), snapshot);
+        }
+    }
+
+    public void invalidate(Integer userId) {
+        synchronized (entries) {
+            entries.remove(userId);
+        }
+    }
+}
@@ -5,17 +5,19 @@ import com.example.opaybanking.dto.BillPaymentRequest;
 import com.example.opaybanking.dto.BillPaymentResponse;
 import com.example.opaybanking.enums.BillType;
 import com.example.opaybanking.enums.Currency;
+import com.example.opaybanking.enums.OutboxEventType;
 import com.example.opaybanking.enums.Status;
 import com.example.opaybanking.model.*;
 import com.example.opaybanking.repo.billPaymentRepo;
 import com.example.opaybanking.util.PhoneNumberValidator;
+import com.example.opaybanking.util.ReferenceGenerator;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
 
 @Service
 public class BillPaymentService {
@@ -24,12 +26,25 @@ public class BillPaymentService {
     private final WalletService walletService;
     private final userService userService;
     private final PhoneNumberValidator phoneNumberValidator;
-
-    public BillPaymentService(com.example.opaybanking.repo.billPaymentRepo billPaymentRepo, WalletService walletService, userService userService, PhoneNumberValidator phoneNumberValidator) {
+    private final WalletLockManager walletLockManager;
+    private final LedgerService ledgerService;
+    private final ReferenceGenerator referenceGenerator;
+    private final OutboxService outboxService;
+    private final MonthlySpendingService monthlySpendingService;
+
+    public BillPaymentService(com.example.opaybanking.repo.billPaymentRepo billPaymentRepo, WalletService walletService, userService userService, PhoneNumberValidator phoneNumberValidator,
+                              WalletLockManager walletLockManager, LedgerService ledgerService, ReferenceGenerator referenceGenerator,
+                              OutboxService outboxService,
+                              MonthlySpendingService monthlySpendingService) {
         this.billPaymentRepo = billPaymentRepo;
         this.walletService = walletService;
         this.userService = userService;
         this.phoneNumberValidator = phoneNumberValidator;
+        this.walletLockManager = walletLockManager;
+        this.ledgerService = ledgerService;
+        this.referenceGenerator = referenceGenerator;
+        this.outboxService = outboxService;
+        this.monthlySpendingService = monthlySpendingService;
     }
 
     @Transactional
@@ -37,10 +52,11 @@ public class BillPaymentService {
         User user = userService.getAuthenticatedUser(token);
 
         Wallet ngnWallet = walletService.getWalletByCurrency(token, Currency.NGN);
-        double amountToPay = getAmountToPay(req);
+        long amountToPay = getAmountToPay(req);
 
-        if (ngnWallet.getBalance() < amountToPay) {
-            return BillPaymentResponse.error("Insufficient NGN balance. Required: ₦" + String.format("%,.2f", amountToPay));
+        walletLockManager.lock(ngnWallet);
+        if (ngnWallet.getBalanceMinor() < amountToPay) {
+            return BillPaymentResponse.error("Insufficient NGN balance. Required: ₦" + Money.format(amountToPay));
         }
 
         if (req.billType() == BillType.AIRTIME || req.billType() == BillType.DATA) {
@@ -51,78 +67,80 @@ public class BillPaymentService {
 
         return switch (req.billType()) {
             case AIRTIME -> processAirtime(req, user, ngnWallet, amountToPay);
-            case DATA -> processData(req, user, ngnWallet);
+            case DATA -> processData(req, user, ngnWallet, amountToPay);
             case ELECTRICITY -> processElectricity(req, user, ngnWallet, amountToPay);
-            case TV -> processTv(req, user, ngnWallet);
+            case TV -> processTv(req, user, ngnWallet, amountToPay);
         };
     }
 
-    private double getAmountToPay(BillPaymentRequest req) {
+    private long getAmountToPay(BillPaymentRequest req) {
         return switch (req.billType()) {
-            case DATA -> findDataPlan(req.network(), req.planId()).getPrice();
-            case TV -> findTvPlan(req.tvProvider(), req.planId()).getPrice();
-            case AIRTIME, ELECTRICITY -> req.amount();
+            case DATA -> Money.ofMajor(findDataPlan(req.network(), req.planId()).getPrice());
+            case TV -> Money.ofMajor(findTvPlan(req.tvProvider(), req.planId()).getPrice());
+            case AIRTIME, ELECTRICITY -> Money.ofPositiveMajor(req.amount());
         };
     }
 
-    private BillPaymentResponse processAirtime(BillPaymentRequest req, User user, Wallet wallet, double amount) {
+    private BillPaymentResponse processAirtime(BillPaymentRequest req, User user, Wallet wallet, long amount) {
         String network = getNetwork(req.network(), req.phoneNumber());
         String ref = generateRef("AIR");
-        String details = String.format("₦%,.0f airtime → %s (%s)", amount, req.phoneNumber(), network);
+        String details = String.format("₦%,.0f airtime → %s (%s)", Money.toMajor(amount), req.phoneNumber(), network);
 
-        deductFromWallet(wallet, amount);
-        saveBillPayment(user, BillType.AIRTIME, amount, ref, details, req.phoneNumber(), network, null);
+        deductFromWallet(wallet, amount, ref);
+        saveBillPayment(user, wallet, BillType.AIRTIME, amount, ref, details, req.phoneNumber(), network, null);
 
-        return BillPaymentResponse.success("Airtime purchased successfully", ref, amount, details);
+        return BillPaymentResponse.success("Airtime purchased successfully", ref, Money.toMajor(amount), details);
     }
 
-    private BillPaymentResponse processData(BillPaymentRequest req, User user, Wallet wallet) {
+    private BillPaymentResponse processData(BillPaymentRequest req, User user, Wallet wallet, long amount) {
         String network = getNetwork(req.network(), req.phoneNumber());
         DataPlansConfig.DataPlan plan = findDataPlan(network, req.planId());
         String ref = generateRef("DAT");
         String details = plan.getName() + " data → " + req.phoneNumber();
 
-        deductFromWallet(wallet, plan.getPrice());
-        saveBillPayment(user, BillType.DATA, plan.getPrice(), ref, details, req.phoneNumber(), network, req.planId());
+        deductFromWallet(wallet, amount, ref);
+        saveBillPayment(user, wallet, BillType.DATA, amount, ref, details, req.phoneNumber(), network, req.planId());
 
-        return BillPaymentResponse.success("Data purchased successfully", ref, plan.getPrice(), details);
+        return BillPaymentResponse.success("Data purchased successfully", ref, Money.toMajor(amount), details);
     }
 
-    private BillPaymentResponse processElectricity(BillPaymentRequest req, User user, Wallet wallet, double amount) {
+    private BillPaymentResponse processElectricity(BillPaymentRequest req, User user, Wallet wallet, long amount) {
         if (req.meterNumber() == null || !req.meterNumber().matches("\\d{10,15}")) {
             return BillPaymentResponse.error("Invalid meter number. Must be 10-15 digits");
         }
 
         String ref = generateRef("ELC");
-        String details = String.format("₦%,.0f electricity → Meter %s", amount, req.meterNumber());
+        String details = String.format("₦%,.0f electricity → Meter %s", Money.toMajor(amount), req.meterNumber());
 
-        deductFromWallet(wallet, amount);
-        saveBillPayment(user, BillType.ELECTRICITY, amount, ref, details, null, null, req.meterNumber());
+        deductFromWallet(wallet, amount, ref);
+        saveBillPayment(user, wallet, BillType.ELECTRICITY, amount, ref, details, null, null, req.meterNumber());
 
-        return BillPaymentResponse.success("Electricity payment successful", ref, amount, details);
+        return BillPaymentResponse.success("Electricity payment successful", ref, Money.toMajor(amount), details);
     }
 
-    private BillPaymentResponse processTv(BillPaymentRequest req, User user, Wallet wallet) {
+    private BillPaymentResponse processTv(BillPaymentRequest req, User user, Wallet wallet, long amount) {
         TvPlansConfig.TvPlan plan = findTvPlan(req.tvProvider(), req.planId());
         String ref = generateRef("TV");
         String details = plan.getName() + " subscription";
 
-        deductFromWallet(wallet, plan.getPrice());
-        saveBillPayment(user, BillType.TV, plan.getPrice(), ref, details, req.phoneNumber(), req.tvProvider(), req.planId());
+        deductFromWallet(wallet, amount, ref);
+        saveBillPayment(user, wallet, BillType.TV, amount, ref, details, req.phoneNumber(), req.tvProvider(), req.planId());
 
-        return BillPaymentResponse.success("TV subscription successful", ref, plan.getPrice(), details);
+        return BillPaymentResponse.success("TV subscription successful", ref, Money.toMajor(amount), details);
     }
 
-    private void deductFromWallet(Wallet wallet, double amount) {
-        wallet.setBalance(wallet.getBalance() - amount);
-        walletService.saveWallet(wallet);
+    private void deductFromWallet(Wallet wallet, long amount, String ref) {
+        ledgerService.post(ref, "Bill payment", List.of(
+                LedgerService.Posting.debit(wallet, amount),
+                LedgerService.Posting.credit(LedgerService.GL_BILL_PAYMENTS, wallet.getCurrency(), amount)));
     }
 
-    private void saveBillPayment(User user, BillType type, double amount, String ref, String details,
+    private void saveBillPayment(User user, Wallet wallet, BillType type, long amount, String ref, String details,
                                  String phone, String network, String extra) {
         BillPayment payment = new BillPayment();
         payment.setUser(user);
-        payment.setAmount(amount);
+        payment.setWalletId(wallet.getWalletId());
+        payment.setAmountMinor(amount);
         payment.setBillType(type);
         payment.setReference(ref);
         payment.setTransactionStatus(Status.SUCCESSFUL);
@@ -133,10 +151,13 @@ public class BillPaymentService {
         payment.setCreatedAt(LocalDateTime.now());
 
         billPaymentRepo.save(payment);
+        monthlySpendingService.recordBill(payment);
+        outboxService.recordWalletEvent(OutboxEventType.BILL_PAID, wallet, ref, amount,
+                Map.of("billType", type.name(), "details", details));
     }
 
     private String generateRef(String prefix) {
-        return prefix + System.currentTimeMillis() + UUID.randomUUID().toString().substring(0, 6).toUpperCase();
+        return referenceGenerator.next(prefix);
     }
 
     private String getNetwork(String network, String phone) {
@@ -0,0 +1,432 @@
+package com.example.opaybanking.service;
+
+import com.example.opaybanking.dto.BulkTransferRequest;
+import com.example.opaybanking.dto.BulkTransferResponse;
+import com.example.opaybanking.enums.BulkJobStatus;
+import com.example.opaybanking.enums.Currency;
+import com.example.opaybanking.enums.OutboxEventType;
+import com.example.opaybanking.enums.Role;
+import com.example.opaybanking.enums.Status;
+import com.example.opaybanking.enums.TransactionType;
+import com.example.opaybanking.model.*;
+import com.example.opaybanking.repo.BulkTransferItemRepo;
+import com.example.opaybanking.repo.BulkTransferJobRepo;
+import com.example.opaybanking.repo.TransactionRepo;
+import com.example.opaybanking.repo.WalletRepo;
+import com.example.opaybanking.util.ReferenceGenerator;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.LockTimeoutException;
+import jakarta.persistence.PessimisticLockException;
+import jakarta.persistence.QueryTimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Payroll-style transfers from one wallet to many Miles Bank accounts.
+ * The request is authenticated and PIN-checked once, stored as a job with one row per
+ * recipient, and paid out by a small worker pool. Recipients are resolved with batched
+ * IN queries up front, then items are paid in chunks: each chunk is one transaction that
+ * locks the sender and its recipients with a single ordered SELECT ... FOR UPDATE and
+ * writes ledger entries, transactions and item results as batched inserts.
+ * A chunk that hits a transient database error (lock timeout, deadlock, serialization
+ * failure) is retried; if it still fails, its items are paid one at a time so only an
+ * item's own error marks it FAILED.
+ * Clients poll the job id for progress and per-line results.
+ */
+@Service
+public class BulkTransferService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkTransferService.class);
+    private static final String MILES_BANK = "Miles Bank";
+    private static final int LOOKUP_BATCH_SIZE = 1000;
+    private static final int MAX_DESCRIPTION_LENGTH = 255;
+
+    private final BulkTransferJobRepo jobRepo;
+    private final BulkTransferItemRepo itemRepo;
+    private final WalletRepo walletRepo;
+    private final TransactionRepo transactionRepo;
+    private final userService userService;
+    private final WalletService walletService;
+    private final WalletLockManager walletLockManager;
+    private final LedgerService ledgerService;
+    private final ReferenceGenerator referenceGenerator;
+    private final OutboxService outboxService;
+    private final MonthlySpendingService monthlySpendingService;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolExecutor workers;
+
+    private final int maxItems;
+    private final int chunkSize;
+    private final long staleAfterMs;
+    private final int transientRetries;
+    private final long retryBackoffMs;
+
+    private record Recipient(Long walletId, Currency currency, String accountName) {
+    }
+
+    public BulkTransferService(BulkTransferJobRepo jobRepo, BulkTransferItemRepo itemRepo, WalletRepo walletRepo,
+                               TransactionRepo transactionRepo, userService userService,
+                               WalletService walletService, WalletLockManager walletLockManager,
+                               LedgerService ledgerService, ReferenceGenerator referenceGenerator,
+                               OutboxService outboxService, MonthlySpendingService monthlySpendingService, PlatformTransactionManager transactionManager,
+                               @Value("${bulk.transfer.max-items:10000}") int maxItems,
+                               @Value("${bulk.transfer.chunk-size:200}") int chunkSize,
+                               @Value("${bulk.transfer.workers:2}") int workerCount,
+                               @Value("${bulk.transfer.queue-capacity:50}") int queueCapacity,
+                               @Value("${bulk.transfer.stale-after-ms:300000}") long staleAfterMs,
+                               @Value("${bulk.transfer.transient-retries:3}") int transientRetries,
+                               @Value("${bulk.transfer.retry-backoff-ms:200}") long retryBackoffMs) {
+        this.jobRepo = jobRepo;
+        this.itemRepo = itemRepo;
+        this.walletRepo = walletRepo;
+        this.transactionRepo = transactionRepo;
+        this.userService = userService;
+        this.walletService = walletService;
+        this.walletLockManager = walletLockManager;
+        this.ledgerService = ledgerService;
+        this.referenceGenerator = referenceGenerator;
+        this.outboxService = outboxService;
+        this.monthlySpendingService = monthlySpendingService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxItems = maxItems;
+        this.chunkSize = chunkSize;
+        this.staleAfterMs = staleAfterMs;
+        this.transientRetries = transientRetries;
+        this.retryBackoffMs = retryBackoffMs;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread t = new Thread(r, "bulk-transfer-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    public BulkTransferResponse submit(BulkTransferRequest req, String token) {
+        if (req.items() == null || req.items().isEmpty()) {
+            throw new RuntimeException("At least one transfer item is required");
+        }
+        if (req.items().size() > maxItems) {
+            throw new RuntimeException("A bulk transfer can contain at most " + maxItems + " items");
+        }
+
+        Currency currency;
+        try {
+            currency = Currency.valueOf(req.currency().toUpperCase());
+        } catch (Exception e) {
+            throw new RuntimeException("Invalid currency. Use NGN or USD");
+        }
+        if (req.description() != null && req.description().length() > MAX_DESCRIPTION_LENGTH) {
+            throw new RuntimeException("Description must be at most " + MAX_DESCRIPTION_LENGTH + " characters");
+        }
+
+        User user = userService.getAuthenticatedUser(token);
+        Wallet fromWallet = walletRepo.findFirstByUserAndCurrency(user, currency)
+                .orElseThrow(() -> new RuntimeException("You don't have a " + currency + " wallet. Create one first."));
+        if (!walletService.verifyPin(fromWallet, req.pin())) {
+            throw new RuntimeException("Invalid PIN");
+        }
+
+        List<BulkTransferItem> items = new ArrayList<>(req.items().size());
+        long total = 0;
+        int line = 0;
+        for (BulkTransferRequest.Item entry : req.items()) {
+            line++;
+            if (entry == null || entry.toAccountNumber() == null || entry.toAccountNumber().isBlank()) {
+                throw new RuntimeException("Line " + line + ": account number is required");
+            }
+            String toAccountNumber = entry.toAccountNumber().trim();
+            if (!toAccountNumber.matches("\\d{10}")) {
+                throw new RuntimeException("Line " + line + ": account number must be 10 digits");
+            }
+            String description = entry.description() != null && !entry.description().isBlank()
+                    ? entry.description().trim() : req.description();
+            if (description != null && description.length() > MAX_DESCRIPTION_LENGTH) {
+                throw new RuntimeException("Line " + line + ": description must be at most " + MAX_DESCRIPTION_LENGTH + " characters");
+            }
+            long amount;
+            try {
+                amount = Money.ofPositiveMajor(entry.amount());
+            } catch (RuntimeException e) {
+                throw new RuntimeException("Line " + line + ": " + e.getMessage());
+            }
+            BulkTransferItem item = new BulkTransferItem();
+            item.setLineNumber(line);
+            item.setToAccountNumber(toAccountNumber);
+            item.setAmountMinor(amount);
+            item.setDescription(description);
+            item.setStatus(Status.PENDING);
+            items.add(item);
+            total = Money.add(total, amount);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        BulkTransferJob job = new BulkTransferJob();
+        job.setReference(referenceGenerator.next("BULK"));
+        job.setUserId(user.getUserId());
+        job.setWalletId(fromWallet.getWalletId());
+        job.setCurrency(currency);
+        job.setStatus(BulkJobStatus.QUEUED);
+        job.setDescription(req.description());
+        job.setTotalItems(items.size());
+        job.setTotalAmountMinor(total);
+        job.setCreatedAt(now);
+        job.setUpdatedAt(now);
+
+        BulkTransferJob saved = transactionTemplate.execute(status -> {
+            BulkTransferJob persisted = jobRepo.save(job);
+            items.forEach(item -> item.setJobId(persisted.getJobId()));
+            itemRepo.saveAll(items);
+            return persisted;
+        });
+
+        dispatch(saved.getJobId());
+        logger.info("Bulk transfer {} queued: {} items, {} {}", saved.getReference(), items.size(),
+                Money.format(total), currency);
+        return BulkTransferResponse.from(saved, null);
+    }
+
+    public BulkTransferResponse getJob(Long jobId, String token) {
+        User user = userService.getAuthenticatedUser(token);
+        BulkTransferJob job = jobRepo.findById(jobId)
+                .orElseThrow(() -> new RuntimeException("Bulk transfer not found"));
+        if (!job.getUserId().equals(user.getUserId()) && user.getRole() != Role.ADMIN) {
+            throw new RuntimeException("Access denied");
+        }
+        return BulkTransferResponse.from(job, itemRepo.findByJobIdOrderByLineNumberAsc(jobId));
+    }
+
+    private void dispatch(Long jobId) {
+        try {
+            workers.execute(() -> run(jobId));
+        } catch (RejectedExecutionException e) {
+            // Stays QUEUED; the sweeper dispatches it once a worker is free
+            logger.warn("Bulk transfer workers are busy, job {} will be picked up by the sweeper", jobId);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${bulk.transfer.sweep-interval-ms:30000}")
+    public void dispatchWaitingJobs() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> waiting = new ArrayList<>(jobRepo.findIdsByStatusUpdatedBefore(BulkJobStatus.QUEUED, now.minusSeconds(30)));
+        waiting.addAll(jobRepo.findIdsByStatusUpdatedBefore(BulkJobStatus.PROCESSING, now.minusNanos(staleAfterMs * 1_000_000L)));
+        for (Long jobId : waiting) {
+            if (workers.getQueue().remainingCapacity() == 0) break;
+            dispatch(jobId);
+        }
+    }
+
+    private void run(Long jobId) {
+        LocalDateTime now = LocalDateTime.now();
+        if (jobRepo.claim(jobId, now, now.minusNanos(staleAfterMs * 1_000_000L)) == 0) {
+            return; // finished, or another worker owns it
+        }
+
+        try {
+            long start = System.currentTimeMillis();
+            Map<String, Recipient> recipients = resolveRecipients(jobId);
+
+            List<Long> chunk;
+            while (!(chunk = itemRepo.findIdsByJobIdAndStatus(jobId, Status.PENDING, PageRequest.of(0, chunkSize))).isEmpty()) {
+                List<Long> ids = chunk;
+                try {
+                    payWithRetry(jobId, ids, recipients);
+                } catch (RuntimeException e) {
+                    logger.warn("Bulk transfer {} chunk of {} failed ({}), paying its items one at a time",
+                            jobId, ids.size(), e.getMessage());
+                    payOneByOne(jobId, ids, recipients);
+                }
+            }
+
+            transactionTemplate.executeWithoutResult(status -> refreshCounts(jobId, true));
+            logger.info("Bulk transfer {} finished in {} ms", jobId, System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            // Left PROCESSING; the sweeper retries the remaining PENDING items once the job goes stale
+            logger.error("Bulk transfer {} stopped: {}", jobId, e.getMessage(), e);
+        }
+    }
+
+    private void payOneByOne(Long jobId, List<Long> itemIds, Map<String, Recipient> recipients) {
+        for (Long itemId : itemIds) {
+            List<Long> one = List.of(itemId);
+            try {
+                payWithRetry(jobId, one, recipients);
+            } catch (RuntimeException e) {
+                if (isTransient(e)) {
+                    // The item stays PENDING; the sweeper resumes the job once it goes stale
+                    throw e;
+                }
+                String reason = e.getMessage() != null ? e.getMessage() : "Transfer failed";
+                transactionTemplate.executeWithoutResult(status -> itemRepo.failPending(one, reason));
+            }
+        }
+        transactionTemplate.executeWithoutResult(status -> refreshCounts(jobId, false));
+    }
+
+    private void payWithRetry(Long jobId, List<Long> itemIds, Map<String, Recipient> recipients) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> payChunk(jobId, itemIds, recipients));
+                return;
+            } catch (RuntimeException e) {
+                if (attempt > transientRetries || !isTransient(e)) throw e;
+                logger.debug("Bulk transfer {} attempt {} hit a transient error: {}", jobId, attempt, e.getMessage());
+                try {
+                    Thread.sleep(retryBackoffMs * attempt);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    // Lock timeouts, deadlocks, serialization failures and dropped connections: worth retrying
+    static boolean isTransient(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof TransientDataAccessException || t instanceof RecoverableDataAccessException
+                    || t instanceof LockTimeoutException || t instanceof PessimisticLockException
+                    || t instanceof QueryTimeoutException) {
+                return true;
+            }
+            if (t instanceof SQLException sql && sql.getSQLState() != null) {
+                String state = sql.getSQLState();
+                // 40001 serialization_failure, 40P01 deadlock_detected, 55P03 lock_not_available, 08xxx connection
+                if (state.startsWith("40") || state.equals("55P03") || state.startsWith("08")) return true;
+            }
+        }
+        return false;
+    }
+
+    private Map<String, Recipient> resolveRecipients(Long jobId) {
+        List<String> accountNumbers = itemRepo.findAccountNumbersByJobIdAndStatus(jobId, Status.PENDING);
+        Map<String, Recipient> recipients = new HashMap<>(accountNumbers.size() * 2);
+        for (int i = 0; i < accountNumbers.size(); i += LOOKUP_BATCH_SIZE) {
+            List<String> batch = accountNumbers.subList(i, Math.min(i + LOOKUP_BATCH_SIZE, accountNumbers.size()));
+            for (Wallet wallet : walletRepo.findByAccountNumberIn(batch)) {
+                recipients.put(wallet.getAccountNumber(),
+                        new Recipient(wallet.getWalletId(), wallet.getCurrency(), wallet.getAccountName()));
+            }
+        }
+        return recipients;
+    }
+
+    private void payChunk(Long jobId, List<Long> itemIds, Map<String, Recipient> recipients) {
+        BulkTransferJob job = jobRepo.findById(jobId)
+                .orElseThrow(() -> new IllegalStateException("Bulk transfer " + jobId + " disappeared"));
+
+        List<BulkTransferItem> items = itemRepo.findAllById(itemIds).stream()
+                .filter(item -> item.getStatus() == Status.PENDING)
+                .sorted(Comparator.comparingLong(BulkTransferItem::getItemId))
+                .toList();
+
+        Set<Long> walletIds = new HashSet<>();
+        walletIds.add(job.getWalletId());
+        for (BulkTransferItem item : items) {
+            Recipient recipient = recipients.get(item.getToAccountNumber());
+            if (recipient != null) walletIds.add(recipient.walletId());
+        }
+        Map<Long, Wallet> wallets = walletLockManager.lockAllById(walletIds);
+
+        Wallet fromWallet = wallets.get(job.getWalletId());
+        if (fromWallet == null) {
+            throw new RuntimeException("Source wallet no longer exists");
+        }
+        User sender = fromWallet.getUser();
+
+        List<Transaction> transactions = new ArrayList<>(items.size() * 2);
+        for (BulkTransferItem item : items) {
+            Recipient recipient = recipients.get(item.getToAccountNumber());
+            Wallet toWallet = recipient != null ? wallets.get(recipient.walletId()) : null;
+            String failure = toWallet == null ? "Recipient account not found in Miles Bank"
+                    : toWallet.getWalletId().equals(fromWallet.getWalletId()) ? "You cannot transfer to your own account"
+                    : toWallet.getCurrency() != fromWallet.getCurrency() ? "Recipient wallet is not " + fromWallet.getCurrency()
+                    : fromWallet.getBalanceMinor() < item.getAmountMinor() ? "Insufficient balance"
+                    : null;
+            if (failure != null) {
+                item.setStatus(Status.FAILED);
+                item.setFailureReason(failure);
+                continue;
+            }
+
+            long amount = item.getAmountMinor();
+            String ref = referenceGenerator.next("TXN");
+            ledgerService.post(ref, "Bulk transfer " + job.getReference(), List.of(
+                    LedgerService.Posting.debit(fromWallet, amount),
+                    LedgerService.Posting.credit(toWallet, amount)));
+
+            String senderDesc = item.getDescription() != null ? item.getDescription() : "Transfer to " + toWallet.getAccountName();
+            String receiverDesc = item.getDescription() != null ? item.getDescription() : "From " + fromWallet.getAccountName();
+            transactions.add(TransactionService.createTx(sender, fromWallet, amount, TransactionType.TRANSFER_OUT, ref,
+                    senderDesc, toWallet.getAccountNumber(), toWallet.getAccountName(), MILES_BANK));
+            transactions.add(TransactionService.createTx(toWallet.getUser(), toWallet, amount, TransactionType.TRANSFER_IN, ref,
+                    receiverDesc, fromWallet.getAccountNumber(), fromWallet.getAccountName(), MILES_BANK));
+            outboxService.recordWalletEvent(OutboxEventType.TRANSFER_SENT, fromWallet, ref, amount, Map.of(
+                    "counterpartyAccount", toWallet.getAccountNumber(), "counterpartyWalletId", toWallet.getWalletId(),
+                    "bulkReference", job.getReference()));
+            outboxService.recordWalletEvent(OutboxEventType.TRANSFER_RECEIVED, toWallet, ref, amount, Map.of(
+                    "counterpartyAccount", fromWallet.getAccountNumber(), "counterpartyWalletId", fromWallet.getWalletId(),
+                    "bulkReference", job.getReference()));
+
+            item.setStatus(Status.SUCCESSFUL);
+            item.setReference(ref);
+            item.setBeneficiaryName(toWallet.getAccountName());
+        }
+        transactionRepo.saveAll(transactions);
+        monthlySpendingService.recordTransactions(transactions);
+        refreshCounts(job, false);
+    }
+
+    private void refreshCounts(Long jobId, boolean finished) {
+        jobRepo.findById(jobId).ifPresent(job -> refreshCounts(job, finished));
+    }
+
+    private void refreshCounts(BulkTransferJob job, boolean finished) {
+        int success = 0;
+        int failed = 0;
+        long paid = 0;
+        for (Object[] row : itemRepo.summarize(job.getJobId())) {
+            Status status = (Status) row[0];
+            int count = ((Number) row[1]).intValue();
+            if (status == Status.SUCCESSFUL) {
+                success = count;
+                paid = ((Number) row[2]).longValue();
+            } else if (status == Status.FAILED) {
+                failed = count;
+            }
+        }
+        job.setSuccessCount(success);
+        job.setFailedCount(failed);
+        job.setPaidAmountMinor(paid);
+        job.setUpdatedAt(LocalDateTime.now());
+        if (finished && success + failed == job.getTotalItems()) {
+            job.setStatus(failed == 0 ? BulkJobStatus.COMPLETED
+                    : success == 0 ? BulkJobStatus.FAILED
+                    : BulkJobStatus.PARTIALLY_COMPLETED);
+            job.setCompletedAt(LocalDateTime.now());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+}
@@ -2,10 +2,13 @@ package com.example.opaybanking.service;
 
 import com.example.opaybanking.dto.*;
 import com.example.opaybanking.enums.Currency;
+import com.example.opaybanking.enums.OutboxEventType;
 import com.example.opaybanking.model.Card;
+import com.example.opaybanking.model.Money;
 import com.example.opaybanking.model.User;
 import com.example.opaybanking.model.Wallet;
 import com.example.opaybanking.repo.cardRepo;
+import com.example.opaybanking.util.ReferenceGenerator;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -13,6 +16,8 @@ import java.security.SecureRandom;
 import java.time.LocalDateTime;
 import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
 
 @Service
 public class CardService {
@@ -20,14 +25,24 @@ public class CardService {
     private final cardRepo cardRepository;
     private final userService userService;
     private final WalletService walletService;
+    private final WalletLockManager walletLockManager;
+    private final LedgerService ledgerService;
+    private final ReferenceGenerator referenceGenerator;
+    private final OutboxService outboxService;
 
     private final SecureRandom random = new SecureRandom();
     private static final String MILES_BANK_BIN = "190909";
 
-    public CardService(cardRepo cardRepository, userService userService, WalletService walletService) {
+    public CardService(cardRepo cardRepository, userService userService, WalletService walletService,
+                       WalletLockManager walletLockManager, LedgerService ledgerService, ReferenceGenerator referenceGenerator,
+                       OutboxService outboxService) {
         this.cardRepository = cardRepository;
         this.userService = userService;
         this.walletService = walletService;
+        this.walletLockManager = walletLockManager;
+        this.ledgerService = ledgerService;
+        this.referenceGenerator = referenceGenerator;
+        this.outboxService = outboxService;
     }
 
     @Transactional
@@ -56,6 +71,11 @@ public class CardService {
         card.setActive(true);
         card.setCreatedAt(LocalDateTime.now());
         cardRepository.save(card);
+        outboxService.record(OutboxEventType.CARD_CREATED, null, null, Map.of(
+                "userId", user.getUserId(),
+                "cardType", req.cardType().name(),
+                "currency", currency.name(),
+                "last4", cardNumber.substring(cardNumber.length() - 4)));
 
         String fullName = user.getFirstName() + " " + user.getLastName();
 
@@ -92,24 +112,28 @@ public class CardService {
         if (!card.getExpiryDate().equals(req.expiry())) throw new RuntimeException("Invalid expiry date");
         if (!card.getPin().equals(req.pin())) throw new RuntimeException("Incorrect PIN");
 
+        long amount = Money.ofPositiveMajor(req.amount());
         Wallet senderWallet = walletService.getWalletByUserAndCurrency(card.getUser(), Currency.NGN);
-        if (senderWallet.getBalance() < req.amount()) {
-            throw new RuntimeException("Insufficient balance. Sender needs at least ₦" + req.amount());
-        }
-
         Wallet receiverWallet = walletService.getWalletByCurrency(token, Currency.NGN);
 
+        walletLockManager.lock(senderWallet, receiverWallet);
+        if (senderWallet.getBalanceMinor() < amount) {
+            throw new RuntimeException("Insufficient balance. Sender needs at least ₦" + Money.format(amount));
+        }
 
-        senderWallet.setBalance(senderWallet.getBalance() - req.amount());
-        receiverWallet.setBalance(receiverWallet.getBalance() + req.amount());
-
-        walletService.saveWallet(senderWallet);
-        walletService.saveWallet(receiverWallet);
+        String ref = referenceGenerator.next("TOP");
+        ledgerService.post(ref, "Card top-up", List.of(
+                LedgerService.Posting.debit(senderWallet, amount),
+                LedgerService.Posting.credit(receiverWallet, amount)));
+        outboxService.recordWalletEvent(OutboxEventType.CARD_TOP_UP_SENT, senderWallet, ref, amount,
+                Map.of("counterpartyAccount", receiverWallet.getAccountNumber(), "last4", cleanCardNo.substring(cleanCardNo.length() - 4)));
+        outboxService.recordWalletEvent(OutboxEventType.CARD_TOP_UP_RECEIVED, receiverWallet, ref, amount,
+                Map.of("counterpartyAccount", senderWallet.getAccountNumber()));
 
         return new TopUpResponse(
                 true,
-                "Top-up successful! ₦" + String.format("%,.2f", req.amount()) + " received",
-                req.amount()
+                "Top-up successful! ₦" + Money.format(amount) + " received",
+                Money.toMajor(amount)
         );
     }
 
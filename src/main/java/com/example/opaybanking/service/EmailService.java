@@ -15,14 +15,11 @@ import java.util.Optional;
 public class EmailService {
 
     private final Optional<JavaMailSender> mailSender;
-    private final OtpService otpService;
     private final boolean skipEmail;
 
     public EmailService(@Lazy Optional<JavaMailSender> mailSender,
-                        OtpService otpService,
                         @Value("${SKIP_EMAIL:false}") boolean skipEmail) {
         this.mailSender = mailSender;
-        this.otpService = otpService;
         this.skipEmail = skipEmail;
     }
 
@@ -46,11 +43,6 @@ public class EmailService {
             return;
         }
 
-        String cachedOtp = otpService.getOtp(to);
-        if (cachedOtp != null && !cachedOtp.equals(otp)) {
-            System.out.println("OTP mismatch: Sent " + otp + " vs Cached " + cachedOtp);
-        }
-
         sendHtmlEmail(to, "Your Miles Bank Verification Code", getOtpEmailHtml(otp));
     }
 
@@ -63,6 +55,15 @@ public class EmailService {
         sendHtmlEmail(to, "Account Updated", getUpdateNotificationHtml(firstName));
     }
 
+    /** Synchronous so the outbox relay only marks the alert delivered once the mail server accepted it. */
+    public void sendTransactionAlert(String to, String firstName, String subject, String summary) throws MessagingException {
+        if (!shouldSend()) {
+            System.out.println("SKIP_EMAIL=true → Transaction alert skipped for " + to + ": " + summary);
+            return;
+        }
+        sendHtmlEmail(to, subject, getTransactionAlertHtml(firstName, summary));
+    }
+
     private void sendHtmlEmail(String to, String subject, String htmlBody) throws MessagingException {
         MimeMessage message = mailSender.get().createMimeMessage();
         MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
@@ -138,4 +139,22 @@ public class EmailService {
             </body></html>
             """.formatted(firstName);
     }
-}
\ No newline at end of file
+
+    public String getTransactionAlertHtml(String firstName, String summary) {
+        return """
+            <!DOCTYPE html>
+            <html><body style="font-family:Arial;background:#f4f7fa;padding:20px">
+            <div style="max-width:600px;margin:auto;background:white;border-radius:12px;overflow:hidden">
+                <div style="background:#1e90ff;color:white;padding:30px;text-align:center">
+                    <h1>Miles Bank</h1>
+                </div>
+                <div style="padding:40px;text-align:center">
+                    <h2>Transaction Alert</h2>
+                    <p>Hi %s, %s</p>
+                    <p>If you didn't do this, contact support immediately.</p>
+                </div>
+            </div>
+            </body></html>
+            """.formatted(firstName, summary);
+    }
+}
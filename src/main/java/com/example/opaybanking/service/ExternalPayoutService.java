@@ -0,0 +1,342 @@
+package com.example.opaybanking.service;
+
+import com.example.opaybanking.dto.NameEnquiryResponse;
+import com.example.opaybanking.enums.OutboxEventType;
+import com.example.opaybanking.enums.PayoutStatus;
+import com.example.opaybanking.enums.Status;
+import com.example.opaybanking.enums.TransactionType;
+import com.example.opaybanking.model.ExternalPayout;
+import com.example.opaybanking.model.Money;
+import com.example.opaybanking.model.Transaction;
+import com.example.opaybanking.model.Wallet;
+import com.example.opaybanking.repo.ExternalPayoutRepo;
+import com.example.opaybanking.repo.TransactionRepo;
+import com.example.opaybanking.util.ReferenceGenerator;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Settles transfers to other banks off the request path. The transfer request only
+ * reserves funds and records a PENDING payout; once that commits, a bounded worker pool
+ * runs the name enquiry and calls the {@link PayoutGateway} without holding a database
+ * connection. Confirmed payouts release the reserve, rejected ones are reversed back to
+ * the wallet, and unconfirmed ones are retried with backoff by a scheduled sweep.
+ *
+ * Only a definite rejection is reversed. A timeout or error may still mean the partner
+ * paid, so once payout.max-attempts run out the gateway is asked for the outcome by
+ * reference; if that is still unknown the payout is parked in REVIEW with the funds
+ * reserved, for an admin to {@link #resolve} after reconciling with the partner.
+ */
+@Service
+public class ExternalPayoutService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExternalPayoutService.class);
+
+    private final ExternalPayoutRepo payoutRepo;
+    private final TransactionRepo transactionRepo;
+    private final NameEnquiryService nameEnquiryService;
+    private final PayoutGateway payoutGateway;
+    private final WalletLockManager walletLockManager;
+    private final LedgerService ledgerService;
+    private final ReferenceGenerator referenceGenerator;
+    private final OutboxService outboxService;
+    private final MonthlySpendingService monthlySpendingService;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolExecutor workers;
+
+    private final int maxAttempts;
+    private final long retryDelayMs;
+    private final long claimTimeoutMs;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public ExternalPayoutService(ExternalPayoutRepo payoutRepo, TransactionRepo transactionRepo,
+                                 NameEnquiryService nameEnquiryService, PayoutGateway payoutGateway,
+                                 WalletLockManager walletLockManager, LedgerService ledgerService,
+                                 ReferenceGenerator referenceGenerator, OutboxService outboxService, MonthlySpendingService monthlySpendingService,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${payout.workers:4}") int workerCount,
+                                 @Value("${payout.queue-capacity:500}") int queueCapacity,
+                                 @Value("${payout.max-attempts:5}") int maxAttempts,
+                                 @Value("${payout.retry-delay-ms:30000}") long retryDelayMs,
+                                 @Value("${payout.claim-timeout-ms:120000}") long claimTimeoutMs) {
+        this.payoutRepo = payoutRepo;
+        this.transactionRepo = transactionRepo;
+        this.nameEnquiryService = nameEnquiryService;
+        this.payoutGateway = payoutGateway;
+        this.walletLockManager = walletLockManager;
+        this.ledgerService = ledgerService;
+        this.referenceGenerator = referenceGenerator;
+        this.outboxService = outboxService;
+        this.monthlySpendingService = monthlySpendingService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxAttempts = maxAttempts;
+        this.retryDelayMs = retryDelayMs;
+        this.claimTimeoutMs = claimTimeoutMs;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread t = new Thread(r, "payout-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    /**
+     * Records a payout for a transfer whose funds were just moved to GL_EXTERNAL_CLEARING,
+     * and hands it to a worker once the surrounding transaction commits.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public ExternalPayout schedule(Transaction tx, Wallet wallet, String bankCode, String bankName,
+                                   String accountNumber, String accountName) {
+        LocalDateTime now = LocalDateTime.now();
+        ExternalPayout payout = new ExternalPayout();
+        payout.setTransactionId(tx.getTransactionId());
+        payout.setReference(tx.getReference());
+        payout.setWalletId(wallet.getWalletId());
+        payout.setCurrency(wallet.getCurrency());
+        payout.setAmountMinor(tx.getAmountMinor());
+        payout.setBankCode(bankCode);
+        payout.setBankName(bankName);
+        payout.setAccountNumber(accountNumber);
+        payout.setAccountName(accountName);
+        payout.setStatus(PayoutStatus.PENDING);
+        payout.setNextAttemptAt(now);
+        payout.setCreatedAt(now);
+        payoutRepo.save(payout);
+
+        Long payoutId = payout.getPayoutId();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                dispatch(payoutId);
+            }
+        });
+        return payout;
+    }
+
+    private void dispatch(Long payoutId) {
+        try {
+            workers.execute(() -> process(payoutId));
+        } catch (RejectedExecutionException e) {
+            // Stays PENDING; the sweeper dispatches it once a worker is free
+            logger.warn("Payout workers are busy, payout {} will be picked up by the sweeper", payoutId);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${payout.sweep-interval-ms:15000}")
+    public void dispatchDuePayouts() {
+        int capacity = workers.getQueue().remainingCapacity();
+        if (capacity == 0) return;
+        for (Long payoutId : payoutRepo.findDueIds(LocalDateTime.now(), PageRequest.of(0, capacity))) {
+            dispatch(payoutId);
+        }
+    }
+
+    private void process(Long payoutId) {
+        LocalDateTime now = LocalDateTime.now();
+        if (payoutRepo.claim(payoutId, now, now.plusNanos(claimTimeoutMs * 1_000_000L)) == 0) {
+            return; // settled, not due yet, or another worker has it
+        }
+        ExternalPayout payout = payoutRepo.findById(payoutId).orElse(null);
+        if (payout == null) return;
+
+        try {
+            if (!payout.isNameVerified()) {
+                NameEnquiryResponse enquiry = nameEnquiryService.verifyAccount(payout.getAccountNumber(), payout.getBankCode());
+                if (!enquiry.isSuccess()) {
+                    fail(payoutId, "Name enquiry failed: " + enquiry.getMessage());
+                    return;
+                }
+                payout.setAccountName(enquiry.getAccountName());
+                payout.setNameVerified(true);
+            }
+
+            PayoutGateway.PayoutResult result = payoutGateway.send(new PayoutGateway.PayoutInstruction(
+                    payout.getReference(), payout.getCurrency(), payout.getAmountMinor(), payout.getBankCode(),
+                    payout.getAccountNumber(), payout.getAccountName(), "Transfer " + payout.getReference()));
+
+            switch (result.outcome()) {
+                case SUCCESSFUL -> complete(payout, result.gatewayReference());
+                case FAILED -> fail(payoutId, result.message());
+                case PENDING -> retryOrReview(payout, result.message());
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Payout {} attempt {} failed: {}", payout.getReference(), payout.getAttempts(), e.getMessage());
+            retryOrReview(payout, e.getMessage());
+        }
+    }
+
+    // The outcome is unknown here, so the payout is never reversed from this path
+    private void retryOrReview(ExternalPayout payout, String message) {
+        if (payout.getAttempts() >= maxAttempts) {
+            PayoutGateway.PayoutResult result;
+            try {
+                result = payoutGateway.query(payout.getReference());
+            } catch (RuntimeException e) {
+                result = PayoutGateway.PayoutResult.pending(e.getMessage());
+            }
+            switch (result.outcome()) {
+                case SUCCESSFUL -> complete(payout, result.gatewayReference());
+                case FAILED -> fail(payout.getPayoutId(), result.message());
+                case PENDING -> review(payout, "Partner bank did not confirm the transfer after "
+                        + payout.getAttempts() + " attempts: " + message);
+            }
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            ExternalPayout current = entityManager.find(ExternalPayout.class, payout.getPayoutId());
+            if (current.getStatus() != PayoutStatus.PENDING) return;
+            current.setAccountName(payout.getAccountName());
+            current.setNameVerified(payout.isNameVerified());
+            current.setFailureReason(message);
+            current.setNextAttemptAt(LocalDateTime.now().plusNanos(retryDelayMs * payout.getAttempts() * 1_000_000L));
+            current.setLockedUntil(null);
+        });
+    }
+
+    private void review(ExternalPayout payout, String reason) {
+        transactionTemplate.executeWithoutResult(status -> {
+            ExternalPayout current = entityManager.find(ExternalPayout.class, payout.getPayoutId());
+            if (current.getStatus() != PayoutStatus.PENDING) return;
+            current.setAccountName(payout.getAccountName());
+            current.setNameVerified(payout.isNameVerified());
+            current.setFailureReason(reason);
+            current.setStatus(PayoutStatus.REVIEW);
+            current.setLockedUntil(null);
+        });
+        logger.warn("Payout {} needs manual review, funds stay reserved: {}", payout.getReference(), reason);
+    }
+
+    /**
+     * Settles a payout parked in REVIEW once an admin has confirmed the outcome with the
+     * partner bank: SUCCESSFUL releases the reserve (note is the partner's reference),
+     * FAILED reverses it to the wallet (note is the reason).
+     */
+    public ExternalPayout resolve(String reference, PayoutGateway.Outcome outcome, String note) {
+        ExternalPayout payout = payoutRepo.findByReference(reference)
+                .orElseThrow(() -> new RuntimeException("Payout not found"));
+        if (payout.getStatus() != PayoutStatus.REVIEW) {
+            throw new RuntimeException("Payout is " + payout.getStatus() + ", only payouts in REVIEW can be resolved");
+        }
+        switch (outcome) {
+            case SUCCESSFUL -> complete(payout, note);
+            case FAILED -> fail(payout.getPayoutId(), note == null ? "Rejected by partner bank" : note);
+            case PENDING -> throw new RuntimeException("Outcome must be SUCCESSFUL or FAILED");
+        }
+        return payoutRepo.findById(payout.getPayoutId()).orElse(payout);
+    }
+
+    public List<ExternalPayout> getPayoutsInReview(int limit) {
+        return payoutRepo.findByStatusOrderByCreatedAt(PayoutStatus.REVIEW, PageRequest.of(0, limit));
+    }
+
+    private static boolean isOpen(ExternalPayout payout) {
+        return payout.getStatus() == PayoutStatus.PENDING || payout.getStatus() == PayoutStatus.REVIEW;
+    }
+
+    private void complete(ExternalPayout payout, String gatewayReference) {
+        transactionTemplate.executeWithoutResult(status -> {
+            // Locked so a worker and an admin resolve cannot both settle it
+            ExternalPayout current = entityManager.find(ExternalPayout.class, payout.getPayoutId(), LockModeType.PESSIMISTIC_WRITE);
+            if (!isOpen(current)) return;
+
+            ledgerService.post(current.getReference(), "External payout settled", List.of(
+                    LedgerService.Posting.debit(LedgerService.GL_EXTERNAL_CLEARING, current.getCurrency(), current.getAmountMinor()),
+                    LedgerService.Posting.credit(LedgerService.GL_EXTERNAL_PAYOUTS, current.getCurrency(), current.getAmountMinor())));
+
+            Wallet wallet = walletLockManager.lockAllById(List.of(current.getWalletId())).get(current.getWalletId());
+            Transaction tx = entityManager.find(Transaction.class, current.getTransactionId());
+            if (tx != null) {
+                tx.setTransactionStatus(Status.SUCCESSFUL);
+                tx.setBeneficiaryName(payout.getAccountName());
+                // Counted in monthly spending from now on; it was left out while PENDING
+                monthlySpendingService.recordTransactions(List.of(tx));
+            }
+
+            current.setAccountName(payout.getAccountName());
+            current.setNameVerified(payout.isNameVerified());
+            current.setGatewayReference(gatewayReference);
+            current.setFailureReason(null);
+            current.setStatus(PayoutStatus.SUCCESSFUL);
+            current.setLockedUntil(null);
+            current.setCompletedAt(LocalDateTime.now());
+
+            Map<String, Object> event = new LinkedHashMap<>();
+            event.put("walletId", current.getWalletId());
+            event.put("currency", current.getCurrency().name());
+            event.put("amount", Money.toMajor(current.getAmountMinor()));
+            event.put("bankName", current.getBankName());
+            event.put("counterpartyAccount", current.getAccountNumber());
+            event.put("gatewayReference", gatewayReference);
+            outboxService.record(OutboxEventType.EXTERNAL_TRANSFER_SETTLED, wallet, current.getReference(), event);
+        });
+        logger.info("Payout {} settled", payout.getReference());
+    }
+
+    private void fail(Long payoutId, String reason) {
+        transactionTemplate.executeWithoutResult(status -> {
+            ExternalPayout current = entityManager.find(ExternalPayout.class, payoutId, LockModeType.PESSIMISTIC_WRITE);
+            if (!isOpen(current)) return;
+
+            Wallet wallet = walletLockManager.lockAllById(List.of(current.getWalletId())).get(current.getWalletId());
+            if (wallet == null) {
+                throw new IllegalStateException("Wallet " + current.getWalletId() + " for payout " + current.getReference() + " is gone");
+            }
+
+            String ref = referenceGenerator.next("REV");
+            ledgerService.post(ref, "Reversal of " + current.getReference(), List.of(
+                    LedgerService.Posting.debit(LedgerService.GL_EXTERNAL_CLEARING, current.getCurrency(), current.getAmountMinor()),
+                    LedgerService.Posting.credit(wallet, current.getAmountMinor())));
+
+            Transaction original = entityManager.find(Transaction.class, current.getTransactionId());
+            if (original != null) {
+                original.setTransactionStatus(Status.FAILED);
+            }
+            // Neither the failed transfer nor its reversal counts towards monthly spending
+            transactionRepo.save(TransactionService.createTx(wallet.getUser(), wallet,
+                    current.getAmountMinor(), TransactionType.REVERSAL, ref, "Reversal: " + reason,
+                    current.getAccountNumber(), current.getAccountName(), current.getBankName()));
+
+            current.setStatus(PayoutStatus.FAILED);
+            current.setFailureReason(reason);
+            current.setLockedUntil(null);
+            current.setCompletedAt(LocalDateTime.now());
+
+            outboxService.recordWalletEvent(OutboxEventType.EXTERNAL_TRANSFER_REVERSED, wallet, current.getReference(),
+                    current.getAmountMinor(), Map.of("reversalReference", ref, "reason", String.valueOf(reason)));
+        });
+        logger.info("Payout {} failed and was reversed: {}", payoutId, reason);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+}
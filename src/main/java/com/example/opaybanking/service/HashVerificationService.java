@@ -0,0 +1,141 @@
+package com.example.opaybanking.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs BCrypt checks on small dedicated pools instead of directly on request threads.
+ *
+ * Passwords (login) and PINs (money movement) get separate pools, so a burst of logins
+ * queues behind other logins and cannot take the CPU transfers need. Each pool has a
+ * bounded queue; when it is full the check is refused with "busy" rather than piling up
+ * waiting request threads. getStats() reports queue depth, rejections and latency.
+ */
+@Service
+public class HashVerificationService {
+
+    private final PasswordEncoder passwordEncoder;
+    private final Lane passwordLane;
+    private final Lane pinLane;
+    private final long timeoutMs;
+
+    public HashVerificationService(PasswordEncoder passwordEncoder,
+                                   @Value("${auth.hash.password.threads:2}") int passwordThreads,
+                                   @Value("${auth.hash.pin.threads:2}") int pinThreads,
+                                   @Value("${auth.hash.queue-capacity:200}") int queueCapacity,
+                                   @Value("${auth.hash.timeout-ms:5000}") long timeoutMs) {
+        this.passwordEncoder = passwordEncoder;
+        this.passwordLane = new Lane("password", passwordThreads, queueCapacity);
+        this.pinLane = new Lane("pin", pinThreads, queueCapacity);
+        this.timeoutMs = timeoutMs;
+    }
+
+    public boolean matchesPassword(String raw, String encoded) {
+        return matches(passwordLane, raw, encoded);
+    }
+
+    public boolean matchesPin(String raw, String encoded) {
+        return matches(pinLane, raw, encoded);
+    }
+
+    private boolean matches(Lane lane, String raw, String encoded) {
+        if (raw == null || encoded == null) return false;
+        long submittedAt = System.nanoTime();
+        Future<Boolean> result;
+        try {
+            result = lane.executor.submit(() -> {
+                long startedAt = System.nanoTime();
+                boolean ok = passwordEncoder.matches(raw, encoded);
+                lane.record(submittedAt, startedAt, System.nanoTime());
+                return ok;
+            });
+        } catch (RejectedExecutionException e) {
+            lane.rejected.increment();
+            throw new RuntimeException("Server is busy. Please try again shortly.");
+        }
+
+        try {
+            return result.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            result.cancel(true);
+            lane.timedOut.increment();
+            throw new RuntimeException("Server is busy. Please try again shortly.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Verification interrupted");
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Verification failed: " + e.getCause().getMessage());
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("password", passwordLane.stats());
+        stats.put("pin", pinLane.stats());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        passwordLane.executor.shutdown();
+        pinLane.executor.shutdown();
+    }
+
+    private static final class Lane {
+
+        final ThreadPoolExecutor executor;
+        final LongAdder completed = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+        final LongAdder timedOut = new LongAdder();
+        final LongAdder queueNanos = new LongAdder();
+        final LongAdder hashNanos = new LongAdder();
+        final AtomicLong maxTotalNanos = new AtomicLong();
+
+        Lane(String name, int threads, int queueCapacity) {
+            AtomicInteger threadCount = new AtomicInteger();
+            this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity), r -> {
+                        Thread t = new Thread(r, "hash-" + name + "-" + threadCount.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    });
+        }
+
+        void record(long submittedAt, long startedAt, long finishedAt) {
+            completed.increment();
+            queueNanos.add(startedAt - submittedAt);
+            hashNanos.add(finishedAt - startedAt);
+            maxTotalNanos.accumulateAndGet(finishedAt - submittedAt, Math::max);
+        }
+
+        Map<String, Object> stats() {
+            long done = completed.sum();
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("threads", executor.getMaximumPoolSize());
+            stats.put("active", executor.getActiveCount());
+            stats.put("queueDepth", executor.getQueue().size());
+            stats.put("completed", done);
+            stats.put("rejected", rejected.sum());
+            stats.put("timedOut", timedOut.sum());
+            stats.put("avgQueueMs", done == 0 ? 0.0 : queueNanos.sum() / 1e6 / done);
+            stats.put("avgHashMs", done == 0 ? 0.0 : hashNanos.sum() / 1e6 / done);
+            stats.put("maxTotalMs", maxTotalNanos.get() / 1e6);
+            return stats;
+        }
+    }
+}
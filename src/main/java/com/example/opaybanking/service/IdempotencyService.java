@@ -0,0 +1,312 @@
+package com.example.opaybanking.service;
+
+import com.example.opaybanking.dto.TransferResponse;
+import com.example.opaybanking.model.IdempotencyRecord;
+import com.example.opaybanking.repo.IdempotencyRecordRepo;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Makes money-moving POSTs safe to retry with an Idempotency-Key header.
+ * The first execution stores its TransferResponse in the same database transaction
+ * as the transfer itself; replays are answered from a bounded in-memory LRU, then
+ * from the idempotency_key table, without touching wallets. Concurrent duplicates
+ * on this node wait for the in-flight execution instead of racing it, and duplicates
+ * on other nodes lose on the primary key and read back the stored response.
+ */
+@Service
+public class IdempotencyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+    private static final int MAX_KEY_LENGTH = 100;
+    // Takes over a row that has expired but not been swept yet; a live row is left alone and nothing is written
+    private static final String STORE =
+            "INSERT INTO idempotency_key (scoped_key, request_hash, response_body, created_at, expires_at) " +
+                    "VALUES (?, ?, ?, ?, ?) " +
+                    "ON CONFLICT (scoped_key) DO UPDATE SET request_hash = EXCLUDED.request_hash, " +
+                    "response_body = EXCLUDED.response_body, created_at = EXCLUDED.created_at, " +
+                    "expires_at = EXCLUDED.expires_at " +
+                    "WHERE idempotency_key.expires_at < EXCLUDED.created_at";
+
+    private final IdempotencyRecordRepo idempotencyRecordRepo;
+    private final ObjectMapper objectMapper;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration ttl;
+    private final long inFlightWaitMs;
+
+    private final Map<String, CachedResponse> cache;
+    private final ConcurrentHashMap<String, CompletableFuture<TransferResponse>> inFlight = new ConcurrentHashMap<>();
+
+    private record CachedResponse(String requestHash, TransferResponse response, long expiresAtMillis) {
+    }
+
+    public IdempotencyService(IdempotencyRecordRepo idempotencyRecordRepo, ObjectMapper objectMapper,
+                              JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                              @Value("${idempotency.ttl-hours:24}") long ttlHours,
+                              @Value("${idempotency.cache.max-entries:10000}") int maxEntries,
+                              @Value("${idempotency.in-flight-wait-ms:30000}") long inFlightWaitMs) {
+        this.idempotencyRecordRepo = idempotencyRecordRepo;
+        this.objectMapper = objectMapper;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ttl = Duration.ofHours(ttlHours);
+        this.inFlightWaitMs = inFlightWaitMs;
+        this.cache = new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public TransferResponse execute(String userId, String operation, String key, Object request,
+                                    Supplier<TransferResponse> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        String scopedKey = scopedKey(userId, operation, key);
+        String requestHash = hash(request);
+
+        TransferResponse cached = fromCache(scopedKey, requestHash);
+        if (cached != null) return cached;
+
+        CompletableFuture<TransferResponse> mine = new CompletableFuture<>();
+        CompletableFuture<TransferResponse> running = inFlight.putIfAbsent(scopedKey, mine);
+        if (running != null) {
+            return await(running);
+        }
+
+        try {
+            TransferResponse response = executeOnce(scopedKey, requestHash, action);
+            mine.complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(scopedKey, mine);
+        }
+    }
+
+    // Keys are stored trimmed, so the length limit applies to the trimmed key too
+    private static String scopedKey(String userId, String operation, String key) {
+        String trimmed = key.trim();
+        if (trimmed.length() > MAX_KEY_LENGTH) {
+            throw new RuntimeException("Idempotency-Key must be at most " + MAX_KEY_LENGTH + " characters");
+        }
+        return userId + ":" + operation + ":" + trimmed;
+    }
+
+    /**
+     * Variant of {@link #execute} for actions that commit on another thread, such as the
+     * {@link TransferEngine}. The action receives a callback that stores the response;
+     * it must run inside the transaction that commits the transfer.
+     */
+    public CompletableFuture<TransferResponse> executeAsync(String userId, String operation, String key, Object request,
+                                                            Function<Consumer<TransferResponse>, CompletableFuture<TransferResponse>> action) {
+        if (key == null || key.isBlank()) {
+            return action.apply(response -> { });
+        }
+        String scopedKey = scopedKey(userId, operation, key);
+        String requestHash = hash(request);
+
+        TransferResponse cached = fromCache(scopedKey, requestHash);
+        if (cached != null) return CompletableFuture.completedFuture(cached);
+
+        CompletableFuture<TransferResponse> mine = new CompletableFuture<>();
+        CompletableFuture<TransferResponse> running = inFlight.putIfAbsent(scopedKey, mine);
+        if (running != null) {
+            return running.copy().orTimeout(inFlightWaitMs, TimeUnit.MILLISECONDS).exceptionally(error -> {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                if (cause instanceof TimeoutException) {
+                    throw new RuntimeException("A request with this Idempotency-Key is still being processed");
+                }
+                throw cause instanceof RuntimeException re ? re : new RuntimeException(cause);
+            });
+        }
+
+        CompletableFuture<TransferResponse> result;
+        try {
+            TransferResponse stored = fromTable(scopedKey, requestHash);
+            result = stored != null ? CompletableFuture.completedFuture(stored)
+                    : action.apply(response -> store(scopedKey, requestHash, response));
+        } catch (RuntimeException e) {
+            inFlight.remove(scopedKey, mine);
+            mine.completeExceptionally(e);
+            throw e;
+        }
+
+        return result
+                .handle((response, error) -> {
+                    if (error == null) {
+                        remember(scopedKey, requestHash, response);
+                        return CompletableFuture.completedFuture(response);
+                    }
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                    if (cause instanceof DataIntegrityViolationException) {
+                        // Another node committed the same key first; its transfer stands and ours was rolled back
+                        return CompletableFuture.supplyAsync(() -> {
+                            TransferResponse stored = fromTable(scopedKey, requestHash);
+                            if (stored == null) throw (DataIntegrityViolationException) cause;
+                            return stored;
+                        });
+                    }
+                    return CompletableFuture.<TransferResponse>failedFuture(cause);
+                })
+                .thenCompose(Function.identity())
+                .whenComplete((response, error) -> {
+                    inFlight.remove(scopedKey, mine);
+                    if (error == null) mine.complete(response);
+                    else mine.completeExceptionally(error);
+                });
+    }
+
+    private TransferResponse executeOnce(String scopedKey, String requestHash, Supplier<TransferResponse> action) {
+        TransferResponse stored = fromTable(scopedKey, requestHash);
+        if (stored != null) return stored;
+
+        try {
+            TransferResponse response = transactionTemplate.execute(status -> {
+                TransferResponse result = action.get();
+                store(scopedKey, requestHash, result);
+                return result;
+            });
+            remember(scopedKey, requestHash, response);
+            return response;
+        } catch (DataIntegrityViolationException e) {
+            // Another node committed the same key first; its transfer stands and ours was rolled back
+            stored = fromTable(scopedKey, requestHash);
+            if (stored != null) return stored;
+            throw e;
+        }
+    }
+
+    /**
+     * Stores the response in the caller's transaction. An expired row the sweep has not
+     * deleted yet is replaced; a live one means another request holds the key, reported as
+     * the same DataIntegrityViolationException a primary-key clash would raise.
+     */
+    private void store(String scopedKey, String requestHash, TransferResponse response) {
+        LocalDateTime now = LocalDateTime.now();
+        int stored = jdbcTemplate.update(STORE, scopedKey, requestHash, toJson(response), now, now.plus(ttl));
+        if (stored == 0) {
+            throw new DataIntegrityViolationException("Idempotency-Key " + scopedKey + " is already stored");
+        }
+    }
+
+    private TransferResponse await(CompletableFuture<TransferResponse> running) {
+        try {
+            return running.get(inFlightWaitMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw new RuntimeException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new RuntimeException("A request with this Idempotency-Key is still being processed");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for the original request");
+        }
+    }
+
+    private TransferResponse fromCache(String scopedKey, String requestHash) {
+        CachedResponse entry;
+        synchronized (cache) {
+            entry = cache.get(scopedKey);
+            if (entry != null && entry.expiresAtMillis() < System.currentTimeMillis()) {
+                cache.remove(scopedKey);
+                entry = null;
+            }
+        }
+        if (entry == null) return null;
+        checkSameRequest(entry.requestHash(), requestHash);
+        return entry.response();
+    }
+
+    private TransferResponse fromTable(String scopedKey, String requestHash) {
+        IdempotencyRecord record = idempotencyRecordRepo.findById(scopedKey).orElse(null);
+        if (record == null || record.getExpiresAt().isBefore(LocalDateTime.now())) return null;
+        checkSameRequest(record.getRequestHash(), requestHash);
+        TransferResponse response = fromJson(record.getResponseBody());
+        remember(scopedKey, requestHash, response);
+        return response;
+    }
+
+    private void remember(String scopedKey, String requestHash, TransferResponse response) {
+        long expiresAt = System.currentTimeMillis() + ttl.toMillis();
+        synchronized (cache) {
+            cache.put(scopedKey, new CachedResponse(requestHash, response, expiresAt));
+        }
+    }
+
+    private void checkSameRequest(String storedHash, String requestHash) {
+        if (!storedHash.equals(requestHash)) {
+            throw new RuntimeException("Idempotency-Key was already used for a different request");
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${idempotency.sweep-interval-ms:600000}")
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        synchronized (cache) {
+            cache.values().removeIf(entry -> entry.expiresAtMillis() < now);
+        }
+        int deleted = idempotencyRecordRepo.deleteExpired(LocalDateTime.now());
+        if (deleted > 0) {
+            logger.info("Removed {} expired idempotency keys", deleted);
+        }
+    }
+
+    private String hash(Object request) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(objectMapper.writeValueAsString(request).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException("Could not hash request", e);
+        }
+    }
+
+    private String toJson(TransferResponse response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize transfer response", e);
+        }
+    }
+
+    private TransferResponse fromJson(String body) {
+        try {
+            return objectMapper.readValue(body, TransferResponse.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not read stored transfer response", e);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.opaybanking.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** Node-local store; codes issued here cannot be verified on another node. */
+@Service
+@ConditionalOnProperty(name = "otp.store", havingValue = "memory")
+public class InMemoryOtpStore implements OtpStore {
+
+    private final Map<String, OtpEntry> entries = new ConcurrentHashMap<>();
+
+    @Override
+    public OtpEntry find(String email) {
+        return entries.get(email);
+    }
+
+    @Override
+    public void save(String email, OtpEntry entry) {
+        entries.put(email, entry);
+    }
+
+    @Override
+    public boolean consume(String email, String codeHash, long nowMillis) {
+        boolean[] consumed = {false};
+        entries.computeIfPresent(email, (key, entry) -> {
+            if (codeHash.equals(entry.codeHash()) && !entry.isExpired(nowMillis) && !entry.isLocked(nowMillis)) {
+                consumed[0] = true;
+                return null;
+            }
+            return entry;
+        });
+        return consumed[0];
+    }
+
+    @Override
+    public int incrementAttempts(String email) {
+        OtpEntry updated = entries.computeIfPresent(email, (key, entry) -> new OtpEntry(
+                entry.codeHash(), entry.expiresAtMillis(), entry.attempts() + 1, entry.lockedUntilMillis()));
+        return updated != null ? updated.attempts() : 0;
+    }
+
+    @Override
+    public void lock(String email, long lockedUntilMillis) {
+        entries.put(email, new OtpEntry(null, 0, 0, lockedUntilMillis));
+    }
+
+    @Override
+    public int purgeExpired(long nowMillis) {
+        int before = entries.size();
+        entries.values().removeIf(entry -> entry.isExpired(nowMillis) && !entry.isLocked(nowMillis));
+        return Math.max(0, before - entries.size());
+    }
+}
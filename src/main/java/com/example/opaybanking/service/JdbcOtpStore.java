@@ -0,0 +1,70 @@
+package com.example.opaybanking.service;
+
+import com.example.opaybanking.model.OtpCode;
+import com.example.opaybanking.repo.OtpCodeRepo;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Keeps codes in the otp_code table so a code issued by one node verifies on any other.
+ * Consumption and attempt counting are single conditional statements, so concurrent
+ * verifications cannot both succeed or lose an attempt.
+ */
+@Service
+@ConditionalOnProperty(name = "otp.store", havingValue = "jdbc", matchIfMissing = true)
+public class JdbcOtpStore implements OtpStore {
+
+    private final OtpCodeRepo otpCodeRepo;
+
+    public JdbcOtpStore(OtpCodeRepo otpCodeRepo) {
+        this.otpCodeRepo = otpCodeRepo;
+    }
+
+    @Override
+    public OtpEntry find(String email) {
+        return otpCodeRepo.findById(email)
+                .map(o -> new OtpEntry(o.getCodeHash(), millis(o.getExpiresAt()), o.getAttempts(), millis(o.getLockedUntil())))
+                .orElse(null);
+    }
+
+    @Override
+    public void save(String email, OtpEntry entry) {
+        otpCodeRepo.save(new OtpCode(email, entry.codeHash(), utc(entry.expiresAtMillis()),
+                entry.attempts(), utc(entry.lockedUntilMillis())));
+    }
+
+    @Override
+    public boolean consume(String email, String codeHash, long nowMillis) {
+        return otpCodeRepo.consume(email, codeHash, utc(nowMillis)) == 1;
+    }
+
+    @Override
+    @Transactional
+    public int incrementAttempts(String email) {
+        if (otpCodeRepo.incrementAttempts(email) == 0) return 0;
+        return otpCodeRepo.findById(email).map(OtpCode::getAttempts).orElse(0);
+    }
+
+    @Override
+    public void lock(String email, long lockedUntilMillis) {
+        otpCodeRepo.save(new OtpCode(email, null, utc(0), 0, utc(lockedUntilMillis)));
+    }
+
+    @Override
+    public int purgeExpired(long nowMillis) {
+        return otpCodeRepo.deleteExpired(utc(nowMillis));
+    }
+
+    private static LocalDateTime utc(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC);
+    }
+
+    private static long millis(LocalDateTime utc) {
+        return utc.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+}
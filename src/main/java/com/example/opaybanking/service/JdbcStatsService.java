@@ -0,0 +1,47 @@
+package com.example.opaybanking.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Round-trip counters from Hibernate statistics (enable with HIBERNATE_STATISTICS=true).
+ * Reset, drive a fixed number of transfers, then read statementsPerTransaction to compare
+ * write paths: a batched flush counts as one prepared statement per entity type.
+ */
+@Service
+public class JdbcStatsService {
+
+    private final Statistics statistics;
+
+    public JdbcStatsService(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", statistics.isStatisticsEnabled());
+        if (!statistics.isStatisticsEnabled()) return stats;
+
+        long transactions = statistics.getSuccessfulTransactionCount();
+        long statements = statistics.getPrepareStatementCount();
+        stats.put("since", Instant.ofEpochMilli(statistics.getStartTime()));
+        stats.put("transactions", transactions);
+        stats.put("statementsPrepared", statements);
+        stats.put("statementsPerTransaction", transactions == 0 ? 0.0 : (double) statements / transactions);
+        stats.put("entityInserts", statistics.getEntityInsertCount());
+        stats.put("entityUpdates", statistics.getEntityUpdateCount());
+        stats.put("queries", statistics.getQueryExecutionCount());
+        stats.put("flushes", statistics.getFlushCount());
+        return stats;
+    }
+
+    public void reset() {
+        statistics.clear();
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.opaybanking.service;
+
+import com.example.opaybanking.model.RevokedToken;
+import com.example.opaybanking.repo.RevokedTokenRepo;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * Shares revocations through the revoked_token table. Timestamps are stored as UTC so
+ * nodes in different zones agree on the polling cursor.
+ */
+@Service
+@ConditionalOnProperty(name = "auth.token-blacklist.store", havingValue = "jdbc", matchIfMissing = true)
+public class JdbcTokenRevocationStore implements TokenRevocationStore {
+
+    private final RevokedTokenRepo revokedTokenRepo;
+
+    public JdbcTokenRevocationStore(RevokedTokenRepo revokedTokenRepo) {
+        this.revokedTokenRepo = revokedTokenRepo;
+    }
+
+    @Override
+    public void revoke(String jti, Instant expiresAt) {
+        revokedTokenRepo.save(new RevokedToken(jti, utc(expiresAt), utc(Instant.now())));
+    }
+
+    @Override
+    public List<Revocation> revokedSince(Instant since) {
+        return revokedTokenRepo.findLiveRevokedSince(utc(since), utc(Instant.now())).stream()
+                .map(r -> new Revocation(r.getJti(), r.getExpiresAt().toInstant(ZoneOffset.UTC),
+                        r.getRevokedAt().toInstant(ZoneOffset.UTC)))
+                .toList();
+    }
+
+    @Override
+    public int purgeExpired(Instant now) {
+        return revokedTokenRepo.deleteExpired(utc(now));
+    }
+
+    @Override
+    public boolean isShared() {
+        return true;
+    }
+
+    private static LocalDateTime utc(Instant instant) {
+        return LocalDateTime.ofInstant(instant, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.opaybanking.service;
+
+import com.example.opaybanking.enums.Currency;
+import com.example.opaybanking.enums.EntryDirection;
+import com.example.opaybanking.model.LedgerEntry;
+import com.example.opaybanking.model.Money;
+import com.example.opaybanking.model.Wallet;
+import com.example.opaybanking.repo.LedgerEntryRepo;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Single entry point for every balance change. Each call appends a balanced set of
+ * debit/credit postings for one reference to ledger_entry in one batched insert, and
+ * applies the wallet side of those postings to Wallet.balanceMinor, which is kept as
+ * an incrementally maintained projection of the journal. Once the surrounding
+ * transaction commits, the new balances are written through to {@link WalletBalanceCache}.
+ * Callers must already hold the wallet row locks (see {@link WalletLockManager}).
+ */
+@Service
+public class LedgerService {
+
+    public static final String GL_FX_POSITION = "GL_FX_POSITION";
+    public static final String GL_EXTERNAL_PAYOUTS = "GL_EXTERNAL_PAYOUTS";
+    // Funds reserved for transfers to other banks until the partner confirms or rejects them
+    public static final String GL_EXTERNAL_CLEARING = "GL_EXTERNAL_CLEARING";
+    public static final String GL_BILL_PAYMENTS = "GL_BILL_PAYMENTS";
+    public static final String GL_ADJUSTMENTS = "GL_ADJUSTMENTS";
+
+    private final LedgerEntryRepo ledgerEntryRepo;
+    private final WalletBalanceCache balanceCache;
+
+    public LedgerService(LedgerEntryRepo ledgerEntryRepo, WalletBalanceCache balanceCache) {
+        this.ledgerEntryRepo = ledgerEntryRepo;
+        this.balanceCache = balanceCache;
+    }
+
+    public record Posting(Wallet wallet, String glAccount, Currency currency, EntryDirection direction, long amountMinor) {
+
+        public static Posting debit(Wallet wallet, long amountMinor) {
+            return new Posting(wallet, null, wallet.getCurrency(), EntryDirection.DEBIT, amountMinor);
+        }
+
+        public static Posting credit(Wallet wallet, long amountMinor) {
+            return new Posting(wallet, null, wallet.getCurrency(), EntryDirection.CREDIT, amountMinor);
+        }
+
+        public static Posting debit(String glAccount, Currency currency, long amountMinor) {
+            return new Posting(null, glAccount, currency, EntryDirection.DEBIT, amountMinor);
+        }
+
+        public static Posting credit(String glAccount, Currency currency, long amountMinor) {
+            return new Posting(null, glAccount, currency, EntryDirection.CREDIT, amountMinor);
+        }
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<LedgerEntry> post(String reference, String description, List<Posting> postings) {
+        checkBalanced(reference, postings);
+
+        LocalDateTime now = LocalDateTime.now();
+        List<LedgerEntry> entries = new ArrayList<>(postings.size());
+        Map<Long, Long> balances = new HashMap<>();
+        for (Posting posting : postings) {
+            LedgerEntry entry = new LedgerEntry();
+            entry.setReference(reference);
+            entry.setCurrency(posting.currency());
+            entry.setDirection(posting.direction());
+            entry.setAmountMinor(posting.amountMinor());
+            entry.setDescription(description);
+            entry.setCreatedAt(now);
+
+            Wallet wallet = posting.wallet();
+            if (wallet != null) {
+                long balance = posting.direction() == EntryDirection.CREDIT
+                        ? Money.add(wallet.getBalanceMinor(), posting.amountMinor())
+                        : Money.subtract(wallet.getBalanceMinor(), posting.amountMinor());
+                if (balance < 0) {
+                    throw new RuntimeException("Insufficient balance in " + wallet.getCurrency() + " wallet");
+                }
+                wallet.setBalanceMinor(balance);
+                balances.put(wallet.getWalletId(), balance);
+                entry.setWalletId(wallet.getWalletId());
+                entry.setAccount(wallet.getAccountNumber());
+                entry.setBalanceAfterMinor(balance);
+            } else {
+                entry.setAccount(posting.glAccount());
+            }
+            entries.add(entry);
+        }
+        if (!balances.isEmpty()) {
+            writeThroughOnCommit(balances);
+        }
+        return ledgerEntryRepo.saveAll(entries);
+    }
+
+    private void writeThroughOnCommit(Map<Long, Long> balances) {
+        long sequence = balanceCache.nextWriteSequence();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    balances.forEach((walletId, balance) -> balanceCache.applyCommitted(walletId, balance, sequence));
+                } else {
+                    balances.keySet().forEach(balanceCache::evictWallet);
+                }
+            }
+        });
+    }
+
+    private void checkBalanced(String reference, List<Posting> postings) {
+        if (postings.isEmpty()) {
+            throw new IllegalArgumentException("Ledger posting " + reference + " has no entries");
+        }
+        Map<Currency, Long> net = new EnumMap<>(Currency.class);
+        for (Posting posting : postings) {
+            if (posting.amountMinor() <= 0) {
+                throw new IllegalArgumentException("Ledger posting " + reference + " has a non-positive amount");
+            }
+            long signed = posting.direction() == EntryDirection.CREDIT ? posting.amountMinor() : -posting.amountMinor();
+            net.merge(posting.currency(), signed, Money::add);
+        }
+        net.forEach((currency, sum) -> {
+            if (sum != 0) {
+                throw new IllegalStateException("Ledger posting " + reference + " is unbalanced in " + currency + " by " + sum);
+            }
+        });
+    }
+
+    public Map<String, Object> reconcile(Wallet wallet) {
+        long journal = ledgerEntryRepo.sumByWalletId(wallet.getWalletId());
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("walletId", wallet.getWalletId());
+        result.put("accountNumber", wallet.getAccountNumber());
+        result.put("balanceMinor", wallet.getBalanceMinor());
+        result.put("journalBalanceMinor", journal);
+        result.put("differenceMinor", wallet.getBalanceMinor() - journal);
+        result.put("balanced", wallet.getBalanceMinor() == journal);
+        return result;
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.opaybanking.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Single-node store: the blacklist's own memory is the only copy, so there is nothing
+ * to write or poll. A logout here is not seen by other nodes and is forgotten on restart.
+ */
+@Service
+@ConditionalOnProperty(name = "auth.token-blacklist.store", havingValue = "local")
+public class LocalTokenRevocationStore implements TokenRevocationStore {
+
+    @Override
+    public void revoke(String jti, Instant expiresAt) {
+    }
+
+    @Override
+    public List<Revocation> revokedSince(Instant since) {
+        return List.of();
+    }
+
+    @Override
+    public int purgeExpired(Instant now) {
+        return 0;
+    }
+
+    @Override
+    public boolean isShared() {
+        return false;
+    }
+}
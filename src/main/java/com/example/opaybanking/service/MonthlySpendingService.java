@@ -0,0 +1,246 @@
+package com.example.opaybanking.service;
+
+import com.example.opaybanking.enums.BillType;
+import com.example.opaybanking.enums.Currency;
+import com.example.opaybanking.enums.Status;
+import com.example.opaybanking.enums.TransactionType;
+import com.example.opaybanking.model.BillPayment;
+import com.example.opaybanking.model.Transaction;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps monthly_spending: per user, wallet, month and category, the total and count of
+ * the money that actually moved, that is SUCCESSFUL transaction and bill payment rows.
+ * A transfer to another bank is counted when its payout settles, not while it is
+ * PENDING. If the payout fails, the transfer is never counted, and neither is the
+ * REVERSAL that hands its reserve back.
+ *
+ * The record methods must be called inside the transaction that inserts the rows,
+ * after their wallets are locked. Totals then commit or roll back with the rows, and
+ * writes to one wallet's totals are already serialized by its wallet lock. Upserts go
+ * in key order so two transactions touching the same rows cannot deadlock.
+ *
+ * {@link #startRebuild} recomputes every user's totals from the raw rows, one user per
+ * transaction, holding that user's wallet locks so no transfer can post in between.
+ */
+@Service
+@DependsOn("schemaMigrationRunner")
+public class MonthlySpendingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MonthlySpendingService.class);
+    private static final int REBUILD_BATCH = 500;
+
+    private static final String UPSERT =
+            "INSERT INTO monthly_spending (user_id, month, wallet_id, category, total_minor, entry_count) " +
+                    "VALUES (?, ?, ?, ?, ?, ?) " +
+                    "ON CONFLICT (user_id, month, wallet_id, category) DO UPDATE SET " +
+                    "total_minor = monthly_spending.total_minor + EXCLUDED.total_minor, " +
+                    "entry_count = monthly_spending.entry_count + EXCLUDED.entry_count";
+
+    public record Key(Integer userId, LocalDate month, Long walletId, String category) {
+    }
+
+    public record Total(Long walletId, Currency currency, String category, long totalMinor, int count) {
+    }
+
+    private static final Comparator<Key> KEY_ORDER = Comparator.comparing(Key::userId)
+            .thenComparing(Key::month)
+            .thenComparing(Key::walletId)
+            .thenComparing(Key::category);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final WalletLockManager walletLockManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "spending-rebuild");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private final AtomicLong rebuiltUsers = new AtomicLong();
+    private volatile LocalDateTime rebuildStartedAt;
+    private volatile LocalDateTime rebuildFinishedAt;
+    private volatile String rebuildError;
+
+    public MonthlySpendingService(JdbcTemplate jdbcTemplate, WalletLockManager walletLockManager,
+                                  PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.walletLockManager = walletLockManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /** Money in: everything else a wallet records is money out. */
+    public static boolean isInflow(String category) {
+        return category.equals(TransactionType.DEPOSIT.name())
+                || category.equals(TransactionType.TRANSFER_IN.name())
+                || category.equals(TransactionType.CURRENCY_EXCHANGE_IN.name())
+                || category.equals(TransactionType.REVERSAL.name());
+    }
+
+    /** Counts the rows that are SUCCESSFUL; anything else passed in is skipped. */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordTransactions(Collection<Transaction> transactions) {
+        Map<Key, long[]> deltas = new TreeMap<>(KEY_ORDER);
+        for (Transaction tx : transactions) {
+            if (!counts(tx)) continue;
+            add(deltas, new Key(tx.getUser().getUserId(), monthOf(tx.getCreatedAt()),
+                    tx.getWallet().getWalletId(), tx.getTransactionType().name()), tx.getAmountMinor(), 1);
+        }
+        upsert(deltas);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordBill(BillPayment bill) {
+        if (bill.getTransactionStatus() != Status.SUCCESSFUL) return;
+        Map<Key, long[]> deltas = new TreeMap<>(KEY_ORDER);
+        add(deltas, new Key(bill.getUser().getUserId(), monthOf(bill.getCreatedAt()),
+                bill.getWalletId(), bill.getBillType().name()), bill.getAmountMinor(), 1);
+        upsert(deltas);
+    }
+
+    // Same rule as the rebuild's WHERE clause
+    private static boolean counts(Transaction tx) {
+        return tx.getUser() != null && tx.getWallet() != null
+                && tx.getTransactionStatus() == Status.SUCCESSFUL
+                && tx.getTransactionType() != TransactionType.REVERSAL;
+    }
+
+    /** The user's totals for one month: at most wallets x categories rows, read from the primary key. */
+    public List<Total> totals(Integer userId, YearMonth month) {
+        return jdbcTemplate.query(
+                "SELECT s.wallet_id, w.currency, s.category, s.total_minor, s.entry_count " +
+                        "FROM monthly_spending s LEFT JOIN wallet w ON w.wallet_id = s.wallet_id " +
+                        "WHERE s.user_id = ? AND s.month = ? ORDER BY s.wallet_id, s.category",
+                (rs, i) -> new Total(rs.getLong(1),
+                        rs.getString(2) != null ? Currency.valueOf(rs.getString(2)) : null,
+                        rs.getString(3), rs.getLong(4), rs.getInt(5)),
+                userId, Date.valueOf(month.atDay(1)));
+    }
+
+    /** Starts a full rebuild in the background; false if one is already running. */
+    public boolean startRebuild() {
+        if (!rebuilding.compareAndSet(false, true)) return false;
+        rebuiltUsers.set(0);
+        rebuildStartedAt = LocalDateTime.now();
+        rebuildFinishedAt = null;
+        rebuildError = null;
+        rebuildExecutor.execute(() -> {
+            try {
+                Integer after = 0;
+                List<Integer> userIds;
+                do {
+                    userIds = jdbcTemplate.queryForList(
+                            "SELECT user_id FROM users WHERE user_id > ? ORDER BY user_id LIMIT ?",
+                            Integer.class, after, REBUILD_BATCH);
+                    for (Integer userId : userIds) {
+                        rebuildUser(userId);
+                        rebuiltUsers.incrementAndGet();
+                        after = userId;
+                    }
+                } while (userIds.size() == REBUILD_BATCH);
+                logger.info("Monthly spending rebuilt for {} users", rebuiltUsers.get());
+            } catch (Exception e) {
+                rebuildError = e.getMessage();
+                logger.error("Monthly spending rebuild failed after {} users: {}", rebuiltUsers.get(), e.getMessage());
+            } finally {
+                rebuildFinishedAt = LocalDateTime.now();
+                rebuilding.set(false);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Recomputes one user's totals from the raw rows. Bills paid before bill_payments
+     * recorded a wallet, from a wallet since deleted, cannot be attributed and are
+     * totalled under wallet 0 rather than dropped.
+     */
+    public void rebuildUser(Integer userId) {
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Long> walletIds = jdbcTemplate.queryForList(
+                    "SELECT wallet_id FROM wallet WHERE user_id = ?", Long.class, userId);
+            walletLockManager.lockAllById(walletIds);
+
+            Map<Key, long[]> totals = new TreeMap<>(KEY_ORDER);
+            TransactionType[] types = TransactionType.values();
+            jdbcTemplate.query(
+                    "SELECT wallet_id, date_trunc('month', created_at)::date, transaction_type, sum(amount_minor), count(*) " +
+                            "FROM \"transaction\" WHERE user_id = ? AND wallet_id IS NOT NULL " +
+                            "AND transaction_status = ? AND transaction_type <> ? " +
+                            "GROUP BY 1, 2, 3",
+                    rs -> {
+                        add(totals, new Key(userId, rs.getDate(2).toLocalDate(), rs.getLong(1),
+                                types[rs.getInt(3)].name()), rs.getLong(4), rs.getLong(5));
+                    }, userId, Status.SUCCESSFUL.ordinal(), TransactionType.REVERSAL.ordinal());
+            BillType[] billTypes = BillType.values();
+            jdbcTemplate.query(
+                    "SELECT coalesce(wallet_id, 0), date_trunc('month', created_at)::date, bill_type, sum(amount_minor), count(*) " +
+                            "FROM bill_payments WHERE user_id = ? AND transaction_status = ? GROUP BY 1, 2, 3",
+                    rs -> {
+                        add(totals, new Key(userId, rs.getDate(2).toLocalDate(), rs.getLong(1),
+                                billTypes[rs.getInt(3)].name()), rs.getLong(4), rs.getLong(5));
+                    }, userId, Status.SUCCESSFUL.ordinal());
+
+            jdbcTemplate.update("DELETE FROM monthly_spending WHERE user_id = ?", userId);
+            upsert(totals);
+        });
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("rebuilding", rebuilding.get());
+        stats.put("rebuiltUsers", rebuiltUsers.get());
+        stats.put("startedAt", rebuildStartedAt);
+        stats.put("finishedAt", rebuildFinishedAt);
+        stats.put("error", rebuildError);
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    private static LocalDate monthOf(LocalDateTime createdAt) {
+        return (createdAt != null ? createdAt : LocalDateTime.now()).toLocalDate().withDayOfMonth(1);
+    }
+
+    private static void add(Map<Key, long[]> deltas, Key key, long amountMinor, long count) {
+        long[] delta = deltas.computeIfAbsent(key, k -> new long[2]);
+        delta[0] += amountMinor;
+        delta[1] += count;
+    }
+
+    private void upsert(Map<Key, long[]> deltas) {
+        if (deltas.isEmpty()) return;
+        List<Object[]> rows = new ArrayList<>(deltas.size());
+        deltas.forEach((key, delta) -> rows.add(new Object[]{
+                key.userId(), Date.valueOf(key.month()), key.walletId(), key.category(), delta[0], (int) delta[1]}));
+        jdbcTemplate.batchUpdate(UPSERT, rows);
+    }
+}
@@ -1,82 +1,120 @@
 package com.example.opaybanking.service;
 
+import com.example.opaybanking.model.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.HexFormat;
 import java.util.concurrent.TimeUnit;
 
+/**
+ * Issues and checks six-digit one-time passwords. Codes are kept in the {@link OtpStore}
+ * as hashes, accepted once, and dropped after otp.ttl-minutes. After otp.max-attempts
+ * wrong guesses the email is locked out for otp.lockout-minutes: the pending code is
+ * discarded and no new one is issued until the lockout ends.
+ *
+ * Re-issuing a code keeps the failed-attempt count of the one it replaces, so asking for
+ * a fresh code does not buy more guesses, and an email can be sent at most one code per
+ * otp.resend-interval-seconds.
+ */
 @Service
 public class OtpService {
-    private final Map<String, OtpDetails> otpCache = new HashMap<>();
+
+    private static final Logger logger = LoggerFactory.getLogger(OtpService.class);
+
+    private final OtpStore store;
     private final SecureRandom random = new SecureRandom();
+    private final long ttlMillis;
+    private final int maxAttempts;
+    private final long lockoutMillis;
+    private final long resendIntervalMillis;
+
+    public OtpService(OtpStore store,
+                      @Value("${otp.ttl-minutes:10}") long ttlMinutes,
+                      @Value("${otp.max-attempts:5}") int maxAttempts,
+                      @Value("${otp.lockout-minutes:15}") long lockoutMinutes,
+                      @Value("${otp.resend-interval-seconds:60}") long resendIntervalSeconds) {
+        this.store = store;
+        this.ttlMillis = TimeUnit.MINUTES.toMillis(ttlMinutes);
+        this.maxAttempts = maxAttempts;
+        this.lockoutMillis = TimeUnit.MINUTES.toMillis(lockoutMinutes);
+        this.resendIntervalMillis = TimeUnit.SECONDS.toMillis(resendIntervalSeconds);
+    }
 
     public String generateOtp(String email) {
-        String key = email.toLowerCase();
+        String key = User.normalizeEmail(email);
+        long now = System.currentTimeMillis();
+        OtpStore.OtpEntry existing = store.find(key);
+        if (existing != null && existing.isLocked(now)) {
+            throw new RuntimeException("Too many invalid OTP attempts. Try again in "
+                    + minutesLeft(existing.lockedUntilMillis(), now) + " minutes.");
+        }
+
+        int attempts = 0;
+        if (existing != null && existing.codeHash() != null && !existing.isExpired(now)) {
+            // A live code was issued expiresAt - ttl ago
+            long nextIssueAt = existing.expiresAtMillis() - ttlMillis + resendIntervalMillis;
+            if (now < nextIssueAt) {
+                throw new RuntimeException("Please wait "
+                        + TimeUnit.MILLISECONDS.toSeconds(nextIssueAt - now + 999) + " seconds before requesting a new OTP.");
+            }
+            attempts = existing.attempts();
+        }
+
         String otp = String.format("%06d", random.nextInt(1000000));
-        otpCache.put(key, new OtpDetails(otp, System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(10)));
-        System.out.println("=== OTP GENERATED ===");
-        System.out.println("Email: " + email);
-        System.out.println("Key: " + key);
-        System.out.println("OTP: " + otp);
-        System.out.println("Expires in: 10 minutes");
-        System.out.println("=====================");
+        store.save(key, new OtpStore.OtpEntry(hash(key, otp), now + ttlMillis, attempts, 0));
+        logger.debug("OTP issued for {}", key);
         return otp;
     }
 
     public boolean verifyOtp(String email, String otp) {
-        String key = email.toLowerCase();
-        OtpDetails details = otpCache.get(key);
-        if (details == null) {
-            System.out.println("=== OTP VERIFICATION FAILED ===");
-            System.out.println("Email: " + email);
-            System.out.println("Key: " + key);
-            System.out.println("Reason: OTP not found");
-            System.out.println("===============================");
-            return false;
+        if (email == null || otp == null) return false;
+        String key = User.normalizeEmail(email);
+        long now = System.currentTimeMillis();
+        if (store.consume(key, hash(key, otp), now)) {
+            return true;
         }
 
-        if (System.currentTimeMillis() > details.expiryTime) {
-            otpCache.remove(key);
-            System.out.println("=== OTP VERIFICATION FAILED ===");
-            System.out.println("Email: " + email);
-            System.out.println("Reason: OTP expired");
-            System.out.println("Stored OTP: " + details.otp);
-            System.out.println("===============================");
+        OtpStore.OtpEntry entry = store.find(key);
+        if (entry == null || entry.isLocked(now)) {
             return false;
         }
-
-        boolean isValid = otp.equals(details.otp);
-        if (isValid) {
-            otpCache.remove(key);
-            System.out.println("=== OTP VERIFICATION SUCCESS ===");
-            System.out.println("Email: " + email);
-            System.out.println("OTP: " + otp);
-            System.out.println("================================");
-        } else {
-            System.out.println("=== OTP VERIFICATION FAILED ===");
-            System.out.println("Email: " + email);
-            System.out.println("Reason: OTP mismatch");
-            System.out.println("Input OTP: " + otp);
-            System.out.println("Stored OTP: " + details.otp);
-            System.out.println("===============================");
+        if (entry.isExpired(now)) {
+            return false;
         }
-        return isValid;
+        int attempts = store.incrementAttempts(key);
+        if (attempts >= maxAttempts) {
+            store.lock(key, now + lockoutMillis);
+            logger.warn("OTP locked for {} after {} failed attempts", key, attempts);
+        }
+        return false;
     }
 
-    public String getOtp(String email) {
-        String key = email.toLowerCase();
-        OtpDetails details = otpCache.get(key);
-        return (details != null && System.currentTimeMillis() <= details.expiryTime) ? details.otp : null;
+    @Scheduled(fixedDelayString = "${otp.sweep-interval-ms:60000}")
+    public void evictExpired() {
+        int removed = store.purgeExpired(System.currentTimeMillis());
+        if (removed > 0) {
+            logger.debug("Evicted {} expired OTPs", removed);
+        }
     }
 
-    private static class OtpDetails {
-        String otp;
-        long expiryTime;
+    private static long minutesLeft(long untilMillis, long nowMillis) {
+        return Math.max(1, TimeUnit.MILLISECONDS.toMinutes(untilMillis - nowMillis + 59_999));
+    }
 
-        OtpDetails(String otp, long expiryTime) {
-            this.otp = otp;
-            this.expiryTime = expiryTime;
+    private static String hash(String key, String otp) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest((key + ":" + otp).getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,42 @@
+package com.example.opaybanking.service;
+
+/**
+ * Backing store for one-time passwords, keyed by normalized email. Holds only a hash of
+ * each code. OtpService owns the policy (expiry, attempt limit, lockout); stores just
+ * have to make {@link #consume} and {@link #incrementAttempts} atomic so two nodes, or
+ * two threads, cannot both accept one code or lose a failed attempt.
+ */
+public interface OtpStore {
+
+    OtpEntry find(String email);
+
+    /** Replaces whatever is stored for the email, including its attempt count. */
+    void save(String email, OtpEntry entry);
+
+    /**
+     * Removes the entry if it holds codeHash, has not expired and is not locked.
+     * Returns true if this call removed it, i.e. the code is accepted exactly once.
+     */
+    boolean consume(String email, String codeHash, long nowMillis);
+
+    /** Adds one failed attempt and returns the new count, or 0 if nothing is stored. */
+    int incrementAttempts(String email);
+
+    /** Drops the code and refuses new ones until lockedUntilMillis. */
+    void lock(String email, long lockedUntilMillis);
+
+    /** Removes entries that are both expired and no longer locked. */
+    int purgeExpired(long nowMillis);
+
+    /** codeHash is null while the email is locked out. */
+    record OtpEntry(String codeHash, long expiresAtMillis, int attempts, long lockedUntilMillis) {
+
+        boolean isLocked(long nowMillis) {
+            return lockedUntilMillis > nowMillis;
+        }
+
+        boolean isExpired(long nowMillis) {
+            return expiresAtMillis <= nowMillis;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.opaybanking.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Fans outbox events out to every {@link OutboxEventListener}. Each listener gets its
+ * own outbox.consumer.threads single-threaded lanes and an event always goes to lane
+ * walletId % lanes, so one wallet's events are handled in order while different
+ * wallets proceed in parallel and a slow listener never holds up the others.
+ */
+@Service
+public class OutboxEventBus {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxEventBus.class);
+
+    private record Subscription(OutboxEventListener listener, ExecutorService[] lanes) {
+    }
+
+    private final List<Subscription> subscriptions = new ArrayList<>();
+
+    public OutboxEventBus(List<OutboxEventListener> listeners,
+                          @Value("${outbox.consumer.threads:4}") int threadsPerListener) {
+        for (OutboxEventListener listener : listeners) {
+            ExecutorService[] lanes = new ExecutorService[threadsPerListener];
+            for (int i = 0; i < threadsPerListener; i++) {
+                String threadName = "outbox-" + listener.name() + "-" + i;
+                lanes[i] = Executors.newSingleThreadExecutor(r -> {
+                    Thread t = new Thread(r, threadName);
+                    t.setDaemon(true);
+                    return t;
+                });
+            }
+            subscriptions.add(new Subscription(listener, lanes));
+            logger.info("Outbox listener '{}' registered with {} lanes", listener.name(), threadsPerListener);
+        }
+    }
+
+    /** Completes when every interested listener has handled the event; fails if any of them threw. */
+    public CompletableFuture<Void> publish(OutboxEventListener.Event event) {
+        List<CompletableFuture<Void>> deliveries = new ArrayList<>(subscriptions.size());
+        for (Subscription subscription : subscriptions) {
+            OutboxEventListener listener = subscription.listener();
+            if (!listener.supports(event.type())) continue;
+
+            ExecutorService[] lanes = subscription.lanes();
+            int lane = event.walletId() == null ? 0 : (int) Math.floorMod(event.walletId(), (long) lanes.length);
+            deliveries.add(CompletableFuture.runAsync(() -> {
+                try {
+                    listener.onEvent(event);
+                } catch (Exception e) {
+                    throw new IllegalStateException(listener.name() + ": " + e.getMessage(), e);
+                }
+            }, lanes[lane]));
+        }
+        return CompletableFuture.allOf(deliveries.toArray(CompletableFuture[]::new));
+    }
+
+    public boolean hasListeners() {
+        return !subscriptions.isEmpty();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Subscription subscription : subscriptions) {
+            for (ExecutorService lane : subscription.lanes()) {
+                lane.shutdown();
+            }
+        }
+    }
+}
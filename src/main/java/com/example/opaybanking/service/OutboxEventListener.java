@@ -0,0 +1,28 @@
+package com.example.opaybanking.service;
+
+import com.example.opaybanking.enums.OutboxEventType;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.time.LocalDateTime;
+
+/**
+ * In-process consumer of outbox events. Delivery is at-least-once: an event is
+ * redelivered (to every listener) until all listeners have handled it, so handlers
+ * must be idempotent, keyed on {@link Event#eventId()} or the reference.
+ * Events for the same wallet reach a listener one at a time, in the order they were written.
+ */
+public interface OutboxEventListener {
+
+    /** Used for thread names and logs. */
+    String name();
+
+    default boolean supports(OutboxEventType type) {
+        return true;
+    }
+
+    void onEvent(Event event) throws Exception;
+
+    record Event(long eventId, OutboxEventType type, Long walletId, String reference,
+                 JsonNode payload, LocalDateTime createdAt) {
+    }
+}
@@ -0,0 +1,240 @@
+package com.example.opaybanking.service;
+
+import com.example.opaybanking.model.OutboxEvent;
+import com.example.opaybanking.repo.OutboxEventRepo;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drains outbox_event into the {@link OutboxEventBus} in three steps, so no connection
+ * or lock is held while listeners run:
+ * 1. claim a batch in a short transaction (serialized across nodes by an advisory
+ *    lock) by setting claimed_until on it, and commit;
+ * 2. deliver it with no transaction open;
+ * 3. mark delivered events published and release the rest, in a second short transaction.
+ *
+ * A wallet's events are claimed only while no relay holds any of them, and delivered
+ * one after another in wallet_seq order: the next is sent only once the previous one
+ * has been handled, and the first failure stops that wallet until the next run, so its
+ * events are retried, and delivered, in their original order. Wallets proceed in
+ * parallel. Events that keep failing are dead-lettered after outbox.max-attempts.
+ */
+@Service
+public class OutboxRelay {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxRelay.class);
+    private static final long ADVISORY_LOCK_KEY = 190910L;
+
+    private final OutboxEventRepo outboxEventRepo;
+    private final OutboxEventBus eventBus;
+    private final ObjectMapper objectMapper;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final int batchSize;
+    private final long handlerTimeoutMs;
+    private final int maxAttempts;
+    private final int retentionDays;
+
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder deadLettered = new LongAdder();
+
+    public OutboxRelay(OutboxEventRepo outboxEventRepo, OutboxEventBus eventBus, ObjectMapper objectMapper,
+                       JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                       @Value("${outbox.relay.batch-size:200}") int batchSize,
+                       @Value("${outbox.relay.handler-timeout-ms:10000}") long handlerTimeoutMs,
+                       @Value("${outbox.max-attempts:10}") int maxAttempts,
+                       @Value("${outbox.retention-days:7}") int retentionDays) {
+        this.outboxEventRepo = outboxEventRepo;
+        this.eventBus = eventBus;
+        this.objectMapper = objectMapper;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.handlerTimeoutMs = handlerTimeoutMs;
+        this.maxAttempts = maxAttempts;
+        this.retentionDays = retentionDays;
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.relay.interval-ms:500}")
+    public void relay() {
+        int published;
+        do {
+            List<OutboxEvent> batch = transactionTemplate.execute(status -> claim());
+            if (batch == null || batch.isEmpty()) return;
+            published = deliver(batch);
+        } while (published == batchSize);
+    }
+
+    private List<OutboxEvent> claim() {
+        Boolean leader = jdbcTemplate.queryForObject("SELECT pg_try_advisory_xact_lock(?)", Boolean.class, ADVISORY_LOCK_KEY);
+        if (!Boolean.TRUE.equals(leader)) return List.of();
+
+        LocalDateTime now = LocalDateTime.now();
+        List<OutboxEvent> batch = new ArrayList<>(outboxEventRepo.findClaimableWalletEvents(now, batchSize));
+        if (batch.size() < batchSize) {
+            batch.addAll(outboxEventRepo.findClaimableUnorderedEvents(now, batchSize - batch.size()));
+        }
+        if (batch.isEmpty()) return batch;
+
+        // Outlives the delivery deadline, so a relay that dies mid-batch only delays these events
+        LocalDateTime until = now.plusNanos(TimeUnit.MILLISECONDS.toNanos(handlerTimeoutMs * 2));
+        outboxEventRepo.claim(batch.stream().map(OutboxEvent::getEventId).toList(), until);
+        return batch;
+    }
+
+    private int deliver(List<OutboxEvent> batch) {
+        // One ordered queue per wallet; events with no wallet each go on their own
+        Map<Long, List<OutboxEvent>> queues = new LinkedHashMap<>();
+        List<List<OutboxEvent>> lanes = new ArrayList<>();
+        for (OutboxEvent event : batch) {
+            if (event.getWalletId() == null) {
+                lanes.add(List.of(event));
+            } else {
+                queues.computeIfAbsent(event.getWalletId(), id -> {
+                    List<OutboxEvent> queue = new ArrayList<>();
+                    lanes.add(queue);
+                    return queue;
+                }).add(event);
+            }
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(handlerTimeoutMs);
+        Set<Long> succeeded = ConcurrentHashMap.newKeySet();
+        Map<Long, String> errors = new ConcurrentHashMap<>();
+        CompletableFuture<?>[] runs = new CompletableFuture<?>[lanes.size()];
+        for (int i = 0; i < runs.length; i++) {
+            runs[i] = deliverInOrder(lanes.get(i), 0, deadline, succeeded, errors);
+        }
+        try {
+            CompletableFuture.allOf(runs).get(handlerTimeoutMs + 1000, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            logger.warn("Outbox delivery did not finish cleanly: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Snapshot: a straggler finishing now is treated as not attempted and sent again
+        Set<Long> published = Set.copyOf(succeeded);
+        Map<Long, String> failed = Map.copyOf(errors);
+        transactionTemplate.executeWithoutResult(status -> settle(batch, published, failed));
+        return published.size();
+    }
+
+    /** Sends events[index], and the rest of the queue only if it succeeds. */
+    private CompletableFuture<Void> deliverInOrder(List<OutboxEvent> events, int index, long deadlineNanos,
+                                                   Set<Long> succeeded, Map<Long, String> errors) {
+        long remaining = deadlineNanos - System.nanoTime();
+        if (index == events.size() || remaining <= 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        OutboxEvent event = events.get(index);
+        CompletableFuture<Void> delivery;
+        try {
+            delivery = eventBus.publish(toMessage(event));
+        } catch (RuntimeException e) {
+            delivery = CompletableFuture.failedFuture(e);
+        }
+        return delivery.orTimeout(remaining, TimeUnit.NANOSECONDS)
+                .handle((ok, error) -> error)
+                .thenCompose(error -> {
+                    if (error != null) {
+                        errors.put(event.getEventId(), describe(error));
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    succeeded.add(event.getEventId());
+                    return deliverInOrder(events, index + 1, deadlineNanos, succeeded, errors);
+                });
+    }
+
+    private void settle(List<OutboxEvent> batch, Set<Long> published, Map<Long, String> failed) {
+        LocalDateTime now = LocalDateTime.now();
+        if (!published.isEmpty()) {
+            outboxEventRepo.markPublished(published, now);
+            delivered.add(published.size());
+        }
+
+        List<Long> untouched = new ArrayList<>();
+        for (OutboxEvent event : batch) {
+            if (!published.contains(event.getEventId()) && !failed.containsKey(event.getEventId())) {
+                untouched.add(event.getEventId());
+            }
+        }
+        if (!untouched.isEmpty()) {
+            outboxEventRepo.release(untouched);
+        }
+
+        for (OutboxEvent event : outboxEventRepo.findAllById(failed.keySet())) {
+            String error = failed.get(event.getEventId());
+            failures.increment();
+            event.setAttempts(event.getAttempts() + 1);
+            event.setLastError(error.length() > 255 ? error.substring(0, 255) : error);
+            event.setClaimedUntil(null);
+            if (event.getAttempts() >= maxAttempts) {
+                event.setDeadLettered(true);
+                event.setPublishedAt(now);
+                deadLettered.increment();
+                logger.error("Outbox event {} ({}) dead-lettered after {} attempts: {}",
+                        event.getEventId(), event.getEventType(), event.getAttempts(), error);
+            } else {
+                logger.warn("Outbox event {} ({}) failed, attempt {}: {}",
+                        event.getEventId(), event.getEventType(), event.getAttempts(), error);
+            }
+        }
+    }
+
+    private String describe(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof TimeoutException) return "Timed out after " + handlerTimeoutMs + " ms";
+        return String.valueOf(cause.getMessage());
+    }
+
+    private OutboxEventListener.Event toMessage(OutboxEvent event) {
+        try {
+            return new OutboxEventListener.Event(event.getEventId(), event.getEventType(), event.getWalletId(),
+                    event.getReference(), objectMapper.readTree(event.getPayload()), event.getCreatedAt());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable payload in outbox event " + event.getEventId(), e);
+        }
+    }
+
+    @Scheduled(cron = "${outbox.cleanup-cron:0 30 3 * * *}")
+    public void deleteOldEvents() {
+        int deleted = outboxEventRepo.deletePublishedBefore(LocalDateTime.now().minusDays(retentionDays));
+        if (deleted > 0) {
+            logger.info("Removed {} published outbox events older than {} days", deleted, retentionDays);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pending", outboxEventRepo.countUnpublished());
+        stats.put("delivered", delivered.sum());
+        stats.put("failures", failures.sum());
+        stats.put("deadLettered", deadLettered.sum());
+        return stats;
+    }
+}
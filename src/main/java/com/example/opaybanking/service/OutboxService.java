@@ -0,0 +1,87 @@
+package com.example.opaybanking.service;
+
+import com.example.opaybanking.enums.OutboxEventType;
+import com.example.opaybanking.model.Money;
+import com.example.opaybanking.model.OutboxEvent;
+import com.example.opaybanking.model.Wallet;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Writes outbox events. Must be called inside the transaction that makes the change,
+ * so the event exists if and only if the change committed; the insert is flushed in
+ * the same JDBC batch as the rest of that transaction's writes.
+ */
+@Service
+public class OutboxService {
+
+    private final ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public OutboxService(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * wallet may be null for events that belong to no wallet. Otherwise it must be locked
+     * by the caller: the event takes the wallet's next sequence number, which is the
+     * order the relay delivers that wallet's events in.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(OutboxEventType type, Wallet wallet, String reference, Map<String, Object> payload) {
+        OutboxEvent event = new OutboxEvent();
+        event.setEventType(type);
+        if (wallet != null) {
+            wallet.setEventSeq(wallet.getEventSeq() + 1);
+            event.setWalletId(wallet.getWalletId());
+            event.setWalletSeq(wallet.getEventSeq());
+        }
+        event.setReference(reference);
+        event.setPayload(toJson(payload));
+        event.setCreatedAt(LocalDateTime.now());
+        entityManager.persist(event);
+    }
+
+    /** Records an event about money moving in or out of a wallet, with its balance afterwards. */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordWalletEvent(OutboxEventType type, Wallet wallet, String reference, long amountMinor,
+                                  Map<String, Object> details) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("walletId", wallet.getWalletId());
+        payload.put("userId", wallet.getUser() != null ? wallet.getUser().getUserId() : null);
+        payload.put("accountNumber", wallet.getAccountNumber());
+        payload.put("currency", wallet.getCurrency().name());
+        payload.put("amount", Money.toMajor(amountMinor));
+        payload.put("balance", Money.toMajor(wallet.getBalanceMinor()));
+        payload.putAll(details);
+        record(type, wallet, reference, payload);
+    }
+
+    /** TRANSFER_SENT for the payer and TRANSFER_RECEIVED for the payee of one wallet-to-wallet transfer. */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordTransfer(String reference, Wallet fromWallet, long debitedMinor, Wallet toWallet, long creditedMinor) {
+        recordWalletEvent(OutboxEventType.TRANSFER_SENT, fromWallet, reference, debitedMinor,
+                Map.of("counterpartyAccount", toWallet.getAccountNumber(), "counterpartyWalletId", toWallet.getWalletId()));
+        recordWalletEvent(OutboxEventType.TRANSFER_RECEIVED, toWallet, reference, creditedMinor,
+                Map.of("counterpartyAccount", fromWallet.getAccountNumber(), "counterpartyWalletId", fromWallet.getWalletId()));
+    }
+
+    private String toJson(Map<String, Object> payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize outbox payload", e);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.opaybanking.service;
+
+import com.example.opaybanking.enums.Currency;
+
+/**
+ * Sends money to an account at another bank. Implementations must treat
+ * {@link PayoutInstruction#reference()} as an idempotency key: the settlement worker
+ * retries with the same reference when an earlier attempt's outcome was unknown.
+ */
+public interface PayoutGateway {
+
+    PayoutResult send(PayoutInstruction instruction);
+
+    /**
+     * Looks up what the partner did with an earlier send. PENDING when it is still in
+     * flight or the partner has no record of the reference, since a send that timed out
+     * may yet arrive.
+     */
+    PayoutResult query(String reference);
+
+    record PayoutInstruction(String reference, Currency currency, long amountMinor, String bankCode,
+                             String accountNumber, String accountName, String narration) {
+    }
+
+    enum Outcome { SUCCESSFUL, FAILED, PENDING }
+
+    /** PENDING means the partner has not confirmed yet (or could not be reached); the payout is retried. */
+    record PayoutResult(Outcome outcome, String gatewayReference, String message) {
+
+        public static PayoutResult successful(String gatewayReference) {
+            return new PayoutResult(Outcome.SUCCESSFUL, gatewayReference, "OK");
+        }
+
+        public static PayoutResult failed(String message) {
+            return new PayoutResult(Outcome.FAILED, null, message);
+        }
+
+        public static PayoutResult pending(String message) {
+            return new PayoutResult(Outcome.PENDING, null, message);
+        }
+    }
+}
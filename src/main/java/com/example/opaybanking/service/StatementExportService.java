@@ -0,0 +1,281 @@
+package com.example.opaybanking.service;
+
+import com.example.opaybanking.enums.BillType;
+import com.example.opaybanking.enums.Status;
+import com.example.opaybanking.enums.TransactionType;
+import com.example.opaybanking.model.Money;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Streams a user's statement (transfers and bill payments, oldest first) for a date
+ * range as CSV or NDJSON.
+ *
+ * Each table is read through its own server-side cursor: inside a read-only
+ * transaction the Postgres driver fetches statement.fetch-size rows at a time instead
+ * of buffering the whole result. Both queries walk the (user_id, created_at) indexes in
+ * order, and the two streams are merged here row by row, so nothing has to sort the
+ * whole range before the first row goes out. Memory stays flat however long the
+ * statement is, and output is flushed after every fetch.
+ *
+ * An export holds a pooled connection for as long as the download runs, so at most
+ * statement.max-concurrent run at once and a range covers at most statement.max-days.
+ */
+@Service
+public class StatementExportService {
+
+    public enum Format {
+        CSV, NDJSON;
+
+        public static Format parse(String value) {
+            if (value != null) {
+                for (Format format : values()) {
+                    if (format.name().equalsIgnoreCase(value.trim())) return format;
+                }
+            }
+            throw new RuntimeException("Invalid format. Use 'csv' or 'ndjson'");
+        }
+    }
+
+    private static final String CSV_HEADER =
+            "date,reference,type,direction,amount,currency,status,description,counterparty,counterparty_account,bank\n";
+
+    // Ascending scans of idx_transaction_user_created and idx_bill_payments_user_created
+    public static final String TRANSFERS_SQL =
+            "SELECT t.created_at, t.transaction_type AS kind, t.reference, t.description, t.amount_minor, " +
+                    "t.transaction_status AS status, t.beneficiary_name AS counterparty, " +
+                    "t.beneficiary_account AS counterparty_account, t.beneficiary_bank AS bank, w.currency " +
+                    "FROM \"transaction\" t LEFT JOIN wallet w ON w.wallet_id = t.wallet_id " +
+                    "WHERE t.user_id = ? AND t.created_at >= ? AND t.created_at < ? " +
+                    "ORDER BY t.created_at, t.transaction_id";
+    public static final String BILLS_SQL =
+            "SELECT b.created_at, b.bill_type AS kind, b.reference, b.details AS description, b.amount_minor, " +
+                    "b.transaction_status AS status, coalesce(b.phone_number, b.plan_id) AS counterparty, " +
+                    "NULL AS counterparty_account, b.network AS bank, 'NGN' AS currency " +
+                    "FROM bill_payments b " +
+                    "WHERE b.user_id = ? AND b.created_at >= ? AND b.created_at < ? " +
+                    "ORDER BY b.created_at, b.bill_payment_id";
+
+    private static final TransactionType[] TRANSACTION_TYPES = TransactionType.values();
+    private static final BillType[] BILL_TYPES = BillType.values();
+    private static final Status[] STATUSES = Status.values();
+
+    private final JdbcTemplate cursorJdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ObjectMapper objectMapper;
+    private final int fetchSize;
+    private final int maxDays;
+    private final Semaphore exports;
+
+    public StatementExportService(DataSource dataSource, PlatformTransactionManager transactionManager,
+                                  ObjectMapper objectMapper,
+                                  @Value("${statement.fetch-size:1000}") int fetchSize,
+                                  @Value("${statement.max-days:366}") int maxDays,
+                                  @Value("${statement.max-concurrent:4}") int maxConcurrent) {
+        this.cursorJdbcTemplate = new JdbcTemplate(dataSource);
+        this.cursorJdbcTemplate.setFetchSize(fetchSize);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        this.fetchSize = fetchSize;
+        this.maxDays = maxDays;
+        this.exports = new Semaphore(maxConcurrent);
+    }
+
+    /** from and to are inclusive calendar days. */
+    public StreamingResponseBody export(Integer userId, LocalDate from, LocalDate to, Format format) {
+        if (to.isBefore(from)) {
+            throw new RuntimeException("'to' must not be before 'from'");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= maxDays) {
+            throw new RuntimeException("A statement can cover at most " + maxDays + " days");
+        }
+        Timestamp start = Timestamp.valueOf(from.atStartOfDay());
+        Timestamp end = Timestamp.valueOf(to.plusDays(1).atStartOfDay());
+
+        // Taken now so a refused export gets an error response instead of a truncated download
+        if (!exports.tryAcquire()) {
+            throw new RuntimeException("Too many statement downloads in progress, please try again shortly");
+        }
+        return out -> {
+            try {
+                stream(out, userId, start, end, format);
+            } finally {
+                exports.release();
+            }
+        };
+    }
+
+    private void stream(OutputStream out, Integer userId, Timestamp start, Timestamp end, Format format) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        JsonGenerator json = format == Format.NDJSON ? ndjsonGenerator(writer) : null;
+        if (format == Format.CSV) {
+            writer.write(CSV_HEADER);
+            writer.flush();
+        }
+
+        int[] rows = {0};
+        RowWriter rowWriter = (rs, transfer) -> {
+            if (json != null) writeJson(json, rs, transfer);
+            else writeCsv(writer, rs, transfer);
+            if (++rows[0] % fetchSize == 0) {
+                if (json != null) json.flush();
+                writer.flush();
+            }
+        };
+        try {
+            // Autocommit off (the transaction) plus a fetch size is what makes the driver use cursors
+            readOnlyTransaction.executeWithoutResult(status -> cursorJdbcTemplate.execute(
+                    (ConnectionCallback<Void>) connection -> {
+                        merge(connection, userId, start, end, rowWriter);
+                        return null;
+                    }));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        if (json != null) json.close();
+        writer.flush();
+    }
+
+    private interface RowWriter {
+        void write(ResultSet rs, boolean transfer) throws SQLException, IOException;
+    }
+
+    // Oldest first; on equal timestamps transfers go before bill payments
+    private void merge(Connection connection, Integer userId, Timestamp start, Timestamp end, RowWriter rowWriter)
+            throws SQLException {
+        try (PreparedStatement transferQuery = cursor(connection, TRANSFERS_SQL, userId, start, end);
+             PreparedStatement billQuery = cursor(connection, BILLS_SQL, userId, start, end);
+             ResultSet transfers = transferQuery.executeQuery();
+             ResultSet bills = billQuery.executeQuery()) {
+            Timestamp nextTransfer = transfers.next() ? transfers.getTimestamp("created_at") : null;
+            Timestamp nextBill = bills.next() ? bills.getTimestamp("created_at") : null;
+            while (nextTransfer != null || nextBill != null) {
+                boolean transfer = nextBill == null || (nextTransfer != null && nextTransfer.compareTo(nextBill) <= 0);
+                ResultSet rs = transfer ? transfers : bills;
+                try {
+                    rowWriter.write(rs, transfer);
+                } catch (IOException e) {
+                    // Client went away: abort the queries instead of reading the rest
+                    throw new UncheckedIOException(e);
+                }
+                if (transfer) {
+                    nextTransfer = transfers.next() ? transfers.getTimestamp("created_at") : null;
+                } else {
+                    nextBill = bills.next() ? bills.getTimestamp("created_at") : null;
+                }
+            }
+        }
+    }
+
+    private PreparedStatement cursor(Connection connection, String sql, Integer userId, Timestamp start, Timestamp end)
+            throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(sql);
+        statement.setFetchSize(fetchSize);
+        statement.setInt(1, userId);
+        statement.setTimestamp(2, start);
+        statement.setTimestamp(3, end);
+        return statement;
+    }
+
+    private JsonGenerator ndjsonGenerator(Writer writer) throws IOException {
+        JsonGenerator json = objectMapper.createGenerator(writer);
+        json.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+        // One object per line, no separator in front of the next
+        json.setRootValueSeparator(null);
+        return json;
+    }
+
+    private void writeCsv(Writer writer, ResultSet rs, boolean transfer) throws SQLException, IOException {
+        String kind = kindOf(rs, transfer);
+        writer.write(rs.getTimestamp("created_at").toLocalDateTime().toString());
+        writer.write(',');
+        writer.write(csv(rs.getString("reference")));
+        writer.write(',');
+        writer.write(kind);
+        writer.write(',');
+        writer.write(MonthlySpendingService.isInflow(kind) ? "CR" : "DR");
+        writer.write(',');
+        writer.write(Money.plain(rs.getLong("amount_minor")));
+        writer.write(',');
+        writer.write(csv(rs.getString("currency")));
+        writer.write(',');
+        writer.write(statusOf(rs));
+        writer.write(',');
+        writer.write(csv(rs.getString("description")));
+        writer.write(',');
+        writer.write(csv(rs.getString("counterparty")));
+        writer.write(',');
+        writer.write(csv(rs.getString("counterparty_account")));
+        writer.write(',');
+        writer.write(csv(rs.getString("bank")));
+        writer.write('\n');
+    }
+
+    private void writeJson(JsonGenerator json, ResultSet rs, boolean transfer) throws SQLException, IOException {
+        String kind = kindOf(rs, transfer);
+        json.writeStartObject();
+        json.writeStringField("date", rs.getTimestamp("created_at").toLocalDateTime().toString());
+        json.writeStringField("reference", rs.getString("reference"));
+        json.writeStringField("type", kind);
+        json.writeStringField("direction", MonthlySpendingService.isInflow(kind) ? "CR" : "DR");
+        json.writeNumberField("amount", Money.toMajor(rs.getLong("amount_minor")));
+        json.writeStringField("currency", rs.getString("currency"));
+        json.writeStringField("status", statusOf(rs));
+        json.writeStringField("description", rs.getString("description"));
+        json.writeStringField("counterparty", rs.getString("counterparty"));
+        json.writeStringField("counterpartyAccount", rs.getString("counterparty_account"));
+        json.writeStringField("bank", rs.getString("bank"));
+        json.writeEndObject();
+        json.writeRaw('\n');
+    }
+
+    private static String kindOf(ResultSet rs, boolean transfer) throws SQLException {
+        int kind = rs.getInt("kind");
+        if (rs.wasNull()) return "";
+        return transfer ? TRANSACTION_TYPES[kind].name() : BILL_TYPES[kind].name();
+    }
+
+    private static String statusOf(ResultSet rs) throws SQLException {
+        int status = rs.getInt("status");
+        return rs.wasNull() ? "" : STATUSES[status].name();
+    }
+
+    // Quotes fields that need it, and defuses values a spreadsheet would run as a formula
+    static String csv(String value) {
+        if (value == null || value.isEmpty()) return "";
+        char first = value.charAt(0);
+        if (first == '=' || first == '+' || first == '-' || first == '@' || first == '\t' || first == '\r') {
+            value = "'" + value;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
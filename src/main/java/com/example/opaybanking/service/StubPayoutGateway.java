@@ -0,0 +1,71 @@
+package com.example.opaybanking.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Local stand-in for a partner bank. Waits payout.stub.latency-ms to mimic the network
+ * round trip and settles everything, except account numbers ending in "0000", which
+ * are rejected so the failure and reversal path can be exercised. Nothing is sent, so it
+ * only runs when payout.gateway=stub is set explicitly. It remembers the last
+ * payout.stub.max-results outcomes for {@link #query}.
+ */
+@Service
+@ConditionalOnProperty(name = "payout.gateway", havingValue = "stub")
+public class StubPayoutGateway implements PayoutGateway {
+
+    private static final Logger logger = LoggerFactory.getLogger(StubPayoutGateway.class);
+
+    private final long latencyMs;
+    private final Map<String, PayoutResult> results;
+
+    public StubPayoutGateway(@Value("${payout.stub.latency-ms:300}") long latencyMs,
+                             @Value("${payout.stub.max-results:10000}") int maxResults) {
+        this.latencyMs = latencyMs;
+        this.results = new LinkedHashMap<>(1024, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PayoutResult> eldest) {
+                return size() > maxResults;
+            }
+        };
+        logger.warn("payout.gateway=stub: external transfers are simulated and no money leaves the bank");
+    }
+
+    @Override
+    public PayoutResult send(PayoutInstruction instruction) {
+        try {
+            Thread.sleep(latencyMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return PayoutResult.pending("Interrupted");
+        }
+
+        if (instruction.accountNumber().endsWith("0000")) {
+            logger.info("Stub gateway rejected payout {}", instruction.reference());
+            return remember(instruction.reference(), PayoutResult.failed("Beneficiary account is dormant"));
+        }
+        logger.info("Stub gateway settled payout {} to {}/{}", instruction.reference(),
+                instruction.bankCode(), instruction.accountNumber());
+        return remember(instruction.reference(), PayoutResult.successful("STUB-" + instruction.reference()));
+    }
+
+    @Override
+    public PayoutResult query(String reference) {
+        synchronized (results) {
+            return results.getOrDefault(reference, PayoutResult.pending("Unknown reference"));
+        }
+    }
+
+    private PayoutResult remember(String reference, PayoutResult result) {
+        synchronized (results) {
+            results.put(reference, result);
+        }
+        return result;
+    }
+}
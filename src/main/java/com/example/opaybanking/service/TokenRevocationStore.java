@@ -0,0 +1,26 @@
+package com.example.opaybanking.service;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Where revoked token ids live so every node can see them. The blacklist keeps its own
+ * in-memory copy and only talks to the store on logout and when polling for
+ * revocations made elsewhere.
+ */
+public interface TokenRevocationStore {
+
+    void revoke(String jti, Instant expiresAt);
+
+    /** Revocations recorded at or after since that have not expired yet. */
+    List<Revocation> revokedSince(Instant since);
+
+    /** Drops revocations whose tokens have expired. Returns how many were removed. */
+    int purgeExpired(Instant now);
+
+    /** False when the store only lives in this JVM and there is nothing to poll. */
+    boolean isShared();
+
+    record Revocation(String jti, Instant expiresAt, Instant revokedAt) {
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.opaybanking.service;
+
+import com.example.opaybanking.enums.OutboxEventType;
+import com.example.opaybanking.model.User;
+import com.example.opaybanking.repo.userRepo;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Emails a debit/credit alert to the wallet owner for every money movement.
+ * Off by default; enable with notifications.transaction-alerts.enabled=true.
+ */
+@Component
+@ConditionalOnProperty(name = "notifications.transaction-alerts.enabled", havingValue = "true")
+public class TransactionAlertListener implements OutboxEventListener {
+
+    private static final Set<OutboxEventType> ALERTED = EnumSet.of(
+            OutboxEventType.TRANSFER_SENT, OutboxEventType.TRANSFER_RECEIVED,
+            OutboxEventType.EXTERNAL_TRANSFER_PENDING, OutboxEventType.EXTERNAL_TRANSFER_REVERSED,
+            OutboxEventType.BILL_PAID, OutboxEventType.CARD_TOP_UP_SENT, OutboxEventType.CARD_TOP_UP_RECEIVED,
+            OutboxEventType.BALANCE_ADJUSTED);
+
+    private final userRepo userRepo;
+    private final EmailService emailService;
+
+    public TransactionAlertListener(userRepo userRepo, EmailService emailService) {
+        this.userRepo = userRepo;
+        this.emailService = emailService;
+    }
+
+    @Override
+    public String name() {
+        return "transaction-alerts";
+    }
+
+    @Override
+    public boolean supports(OutboxEventType type) {
+        return ALERTED.contains(type);
+    }
+
+    @Override
+    public void onEvent(Event event) throws Exception {
+        JsonNode payload = event.payload();
+        if (!payload.hasNonNull("userId")) return;
+        User user = userRepo.findById(payload.get("userId").asInt()).orElse(null);
+        if (user == null) return;
+
+        String amount = payload.path("currency").asText() + " " + String.format("%,.2f", payload.path("amount").asDouble());
+        boolean credit = switch (event.type()) {
+            case TRANSFER_RECEIVED, CARD_TOP_UP_RECEIVED, EXTERNAL_TRANSFER_REVERSED -> true;
+            case BALANCE_ADJUSTED -> "CREDIT".equals(payload.path("direction").asText());
+            default -> false;
+        };
+        String summary = (credit ? "your account was credited with " : "your account was debited with ") + amount
+                + " (ref " + event.reference() + "). Available balance: "
+                + String.format("%,.2f", payload.path("balance").asDouble()) + ".";
+
+        emailService.sendTransactionAlert(user.getEmail(), user.getFirstName(),
+                credit ? "Credit Alert" : "Debit Alert", summary);
+    }
+}
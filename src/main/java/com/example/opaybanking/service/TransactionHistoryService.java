@@ -1,15 +1,31 @@
 package com.example.opaybanking.service;
 
+import com.example.opaybanking.dto.BillPaymentRow;
+import com.example.opaybanking.dto.HistoryPage;
+import com.example.opaybanking.dto.MonthlySummaryResponse;
 import com.example.opaybanking.dto.TransactionHistoryResponse;
+import com.example.opaybanking.dto.TransactionRow;
 import com.example.opaybanking.model.*;
 import com.example.opaybanking.repo.billPaymentRepo;
 import com.example.opaybanking.repo.TransactionRepo;
+import com.example.opaybanking.enums.Role;
+import com.example.opaybanking.util.KeysetJsonStream;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
 import java.time.*;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
 
 @Service
 public class TransactionHistoryService {
@@ -17,33 +33,67 @@ public class TransactionHistoryService {
     private final TransactionRepo transactionRepo;
     private final billPaymentRepo billPaymentRepo;
     private final userService userService;
+    private final MonthlySpendingService monthlySpendingService;
+    private final StatementExportService statementExportService;
 
     private static final DateTimeFormatter DATE_FMT = DateTimeFormatter.ofPattern("dd MMM yyyy, hh:mm a");
+    private static final Comparator<TransactionHistoryResponse> NEWEST_FIRST =
+            Comparator.comparing(TransactionHistoryResponse::createdAt).reversed();
 
     public TransactionHistoryService(TransactionRepo transactionRepo,
                                      billPaymentRepo billPaymentRepo,
-                                     userService userService) {
+                                     userService userService,
+                                     MonthlySpendingService monthlySpendingService,
+                                     StatementExportService statementExportService) {
         this.transactionRepo = transactionRepo;
         this.billPaymentRepo = billPaymentRepo;
         this.userService = userService;
+        this.monthlySpendingService = monthlySpendingService;
+        this.statementExportService = statementExportService;
     }
 
-    public List<TransactionHistoryResponse> getAllHistory(String token) {
+    /**
+     * One page of transfers and bill payments, newest first.
+     *
+     * Each table is read with a (createdAt, id) DESC keyset query starting where the
+     * previous page left that table, and the two streams are merged lazily until limit
+     * rows are taken, so a page costs two limit-sized index scans however old the account
+     * is. The cursor records both tables' positions; clients treat it as opaque.
+     */
+    public HistoryPage getHistoryPage(String token, String cursor, int limit) {
         User user = userService.getAuthenticatedUser(token);
-        List<TransactionHistoryResponse> history = new ArrayList<>();
-
-        List<Transaction> transfers = transactionRepo
-                .findByUserUserIdOrderByCreatedAtDesc(user.getUserId().longValue());
-        transfers.forEach(tx -> history.add(mapTransfer(tx)));
-
-        List<BillPayment> bills = billPaymentRepo
-                .findByUserUserIdOrderByCreatedAtDesc(user.getUserId());
-        bills.forEach(bill -> history.add(mapBill(bill)));
+        Integer userId = user.getUserId();
+        int max = KeysetJsonStream.clampLimit(limit);
+        Position[] after = decodeCursor(cursor);
 
+        Source transfers = new Source(after[0], (pos, size) -> (pos == null
+                ? transactionRepo.findHistoryHead(userId, PageRequest.of(0, size))
+                : transactionRepo.findHistoryPage(userId, pos.createdAt(), pos.id(), PageRequest.of(0, size)))
+                .stream().map(this::mapTransfer).toList());
+        Source bills = new Source(after[1], (pos, size) -> (pos == null
+                ? billPaymentRepo.findHistoryHead(userId, PageRequest.of(0, size))
+                : billPaymentRepo.findHistoryPage(userId, pos.createdAt(), pos.id(), PageRequest.of(0, size)))
+                .stream().map(this::mapBill).toList());
+        List<Source> sources = List.of(transfers, bills);
 
-        history.sort((a, b) -> b.createdAt().compareTo(a.createdAt()));
+        List<TransactionHistoryResponse> items = new ArrayList<>(max);
+        while (items.size() < max) {
+            // One row past the page is enough to tell whether another page exists
+            int want = max - items.size() + 1;
+            Source newest = null;
+            for (Source source : sources) {
+                TransactionHistoryResponse head = source.peek(want);
+                if (head != null && (newest == null || NEWEST_FIRST.compare(head, newest.peek(want)) < 0)) {
+                    newest = source;
+                }
+            }
+            if (newest == null) break;
+            items.add(newest.take());
+        }
 
-        return history;
+        boolean more = sources.stream().anyMatch(source -> source.peek(1) != null);
+        String nextCursor = more ? encodeCursor(transfers.position, bills.position) : null;
+        return new HistoryPage(items, items.size(), nextCursor);
     }
 
     public List<TransactionHistoryResponse> getHistoryByMonth(String token, String monthYear) {
@@ -54,12 +104,12 @@ public class TransactionHistoryService {
 
         List<TransactionHistoryResponse> history = new ArrayList<>();
 
-        List<Transaction> transfers = transactionRepo
+        List<TransactionRow> transfers = transactionRepo
                 .findByUserUserIdAndCreatedAtBetweenOrderByCreatedAtDesc(
                         user.getUserId().longValue(), start, end);
         transfers.forEach(tx -> history.add(mapTransfer(tx)));
 
-        List<BillPayment> bills = billPaymentRepo
+        List<BillPaymentRow> bills = billPaymentRepo
                 .findByUserUserIdAndCreatedAtBetweenOrderByCreatedAtDesc(user.getUserId(), start, end);
         bills.forEach(bill -> history.add(mapBill(bill)));
 
@@ -68,6 +118,43 @@ public class TransactionHistoryService {
         return history;
     }
 
+    /** Inflow, outflow and per-category totals for one month, from the precomputed monthly_spending rows. */
+    public MonthlySummaryResponse getMonthSummary(String token, String monthYear) {
+        User user = userService.getAuthenticatedUser(token);
+        YearMonth ym = parseMonthYear(monthYear);
+
+        Map<Long, List<MonthlySpendingService.Total>> byWallet = new LinkedHashMap<>();
+        for (MonthlySpendingService.Total total : monthlySpendingService.totals(user.getUserId(), ym)) {
+            byWallet.computeIfAbsent(total.walletId(), id -> new ArrayList<>()).add(total);
+        }
+
+        List<MonthlySummaryResponse.WalletTotals> wallets = new ArrayList<>();
+        byWallet.forEach((walletId, totals) -> {
+            long inflow = 0, outflow = 0;
+            int count = 0;
+            Map<String, Double> categories = new LinkedHashMap<>();
+            for (MonthlySpendingService.Total total : totals) {
+                if (MonthlySpendingService.isInflow(total.category())) inflow += total.totalMinor();
+                else outflow += total.totalMinor();
+                count += total.count();
+                categories.put(total.category(), Money.toMajor(total.totalMinor()));
+            }
+            wallets.add(new MonthlySummaryResponse.WalletTotals(walletId, totals.get(0).currency(),
+                    Money.toMajor(inflow), Money.toMajor(outflow), count, categories));
+        });
+        return new MonthlySummaryResponse(ym.toString(), wallets);
+    }
+
+    /** The caller's statement, or any user's for an admin (finance) passing userId. */
+    public StreamingResponseBody exportStatement(String token, Integer userId, LocalDate from, LocalDate to,
+                                                 StatementExportService.Format format) {
+        User user = userService.getAuthenticatedUser(token);
+        if (userId != null && !userId.equals(user.getUserId()) && user.getRole() != Role.ADMIN) {
+            throw new RuntimeException("Admin access required");
+        }
+        return statementExportService.export(userId != null ? userId : user.getUserId(), from, to, format);
+    }
+
     public TransactionHistoryResponse getHistoryById(String token, Long id, String type) {
         User user = userService.getAuthenticatedUser(token);
 
@@ -77,62 +164,62 @@ public class TransactionHistoryService {
                         .orElseThrow(() -> new RuntimeException("Transaction not found"));
                 if (!tx.getUser().getUserId().equals(user.getUserId()))
                     throw new RuntimeException("Access denied");
-                yield mapTransfer(tx);
+                yield mapTransfer(TransactionRow.from(tx));
             }
             case "AIRTIME", "DATA", "TV", "ELECTRICITY" -> {
                 BillPayment bill = billPaymentRepo.findById(id.intValue())
                         .orElseThrow(() -> new RuntimeException("Bill payment not found"));
                 if (!bill.getUser().getUserId().equals(user.getUserId()))
                     throw new RuntimeException("Access denied");
-                yield mapBill(bill);
+                yield mapBill(BillPaymentRow.from(bill));
             }
             default -> throw new RuntimeException("Invalid type: " + type);
         };
     }
 
-    private TransactionHistoryResponse mapTransfer(Transaction tx) {
-        String desc = tx.getDescription() != null && !tx.getDescription().isBlank()
-                ? tx.getDescription()
-                : switch (tx.getTransactionType()) {
-            case TRANSFER_OUT -> "Sent to " + tx.getBeneficiaryName();
-            case TRANSFER_IN -> "Received from " + tx.getWallet().getAccountName();
+    private TransactionHistoryResponse mapTransfer(TransactionRow tx) {
+        String desc = tx.description() != null && !tx.description().isBlank()
+                ? tx.description()
+                : switch (tx.transactionType()) {
+            case TRANSFER_OUT -> "Sent to " + tx.beneficiaryName();
+            case TRANSFER_IN -> "Received from " + tx.walletAccountName();
             case CURRENCY_EXCHANGE_OUT, CURRENCY_EXCHANGE_IN -> "Currency Exchange";
-            default -> tx.getTransactionType().name();
+            default -> tx.transactionType().name();
         };
 
         return new TransactionHistoryResponse(
-                (long) tx.getTransactionId(),
+                (long) tx.transactionId(),
                 "TRANSFER",
                 desc,
-                tx.getAmount(),
-                tx.getTransactionStatus().name(),
-                tx.getReference(),
-                tx.getBeneficiaryName(),
-                DATE_FMT.format(tx.getCreatedAt()),
-                tx.getBeneficiaryBank(),
+                Money.toMajor(tx.amountMinor()),
+                tx.transactionStatus().name(),
+                tx.reference(),
+                tx.beneficiaryName(),
+                DATE_FMT.format(tx.createdAt()),
+                tx.beneficiaryBank(),
                 null,
                 null,
-                tx.getCreatedAt()
+                tx.createdAt()
         );
     }
 
-    private TransactionHistoryResponse mapBill(BillPayment bill) {
-        String beneficiary = bill.getPhoneNumber() != null ? bill.getPhoneNumber() : bill.getPlanId();
-        String desc = bill.getDetails() != null ? bill.getDetails() : bill.getBillType() + " Payment";
+    private TransactionHistoryResponse mapBill(BillPaymentRow bill) {
+        String beneficiary = bill.phoneNumber() != null ? bill.phoneNumber() : bill.planId();
+        String desc = bill.details() != null ? bill.details() : bill.billType() + " Payment";
 
         return new TransactionHistoryResponse(
-                bill.getBillPaymentId().longValue(),
-                bill.getBillType().name(),
+                bill.billPaymentId().longValue(),
+                bill.billType().name(),
                 desc,
-                bill.getAmount(),
-                bill.getTransactionStatus().name(),
-                bill.getReference(),
+                Money.toMajor(bill.amountMinor()),
+                bill.transactionStatus().name(),
+                bill.reference(),
                 beneficiary,
-                DATE_FMT.format(bill.getCreatedAt()),
+                DATE_FMT.format(bill.createdAt()),
                 null,
-                bill.getNetwork(),
-                bill.getPlanId(),
-                bill.getCreatedAt()
+                bill.network(),
+                bill.planId(),
+                bill.createdAt()
         );
     }
 
@@ -147,4 +234,63 @@ public class TransactionHistoryService {
             throw new RuntimeException("Invalid format. Use '2025-11' or 'November 2025'");
         }
     }
+
+    // The last row taken from one table: the next read starts strictly after it
+    private record Position(LocalDateTime createdAt, Integer id) {
+    }
+
+    // One table's side of the merge: buffers a keyset page and fetches the next only when drained
+    private static final class Source {
+
+        private final BiFunction<Position, Integer, List<TransactionHistoryResponse>> fetch;
+        private final Deque<TransactionHistoryResponse> buffer = new ArrayDeque<>();
+        private Position position;
+        private boolean exhausted;
+
+        Source(Position position, BiFunction<Position, Integer, List<TransactionHistoryResponse>> fetch) {
+            this.position = position;
+            this.fetch = fetch;
+        }
+
+        TransactionHistoryResponse peek(int size) {
+            if (buffer.isEmpty() && !exhausted) {
+                List<TransactionHistoryResponse> rows = fetch.apply(position, size);
+                buffer.addAll(rows);
+                exhausted = rows.size() < size;
+            }
+            return buffer.peekFirst();
+        }
+
+        TransactionHistoryResponse take() {
+            TransactionHistoryResponse row = buffer.pollFirst();
+            position = new Position(row.createdAt(), row.id().intValue());
+            return row;
+        }
+    }
+
+    // transferCreatedAt,transferId,billCreatedAt,billId (blank = not started), base64url
+    private static String encodeCursor(Position transfer, Position bill) {
+        String raw = positionPart(transfer) + "," + positionPart(bill);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String positionPart(Position position) {
+        return position == null ? "," : position.createdAt() + "," + position.id();
+    }
+
+    private static Position[] decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) return new Position[2];
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(",", -1);
+            if (parts.length != 4) throw new IllegalArgumentException();
+            return new Position[]{positionOf(parts[0], parts[1]), positionOf(parts[2], parts[3])};
+        } catch (RuntimeException e) {
+            throw new RuntimeException("Invalid cursor");
+        }
+    }
+
+    private static Position positionOf(String createdAt, String id) {
+        if (createdAt.isEmpty()) return null;
+        return new Position(LocalDateTime.parse(createdAt), Integer.valueOf(id));
+    }
 }
\ No newline at end of file
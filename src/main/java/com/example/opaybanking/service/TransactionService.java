@@ -4,6 +4,7 @@
     import com.example.opaybanking.enums.*;
     import com.example.opaybanking.model.*;
     import com.example.opaybanking.repo.*;
+    import com.example.opaybanking.util.ReferenceGenerator;
     import org.springframework.stereotype.Service;
     import org.springframework.transaction.annotation.Transactional;
 
@@ -11,7 +12,9 @@
     import java.time.Month;
     import java.time.YearMonth;
     import java.util.List;
-    import java.util.UUID;
+    import java.util.Map;
+    import java.util.concurrent.CompletableFuture;
+    import java.util.function.Consumer;
 
     @Service
 
@@ -20,203 +23,162 @@
         private final TransactionRepo transactionRepo;
         private final WalletRepo walletRepo;
         private final WalletService walletService;
-        private final NameEnquiryService nameEnquiryService;
         private final userService userService;
         private final ExchangeRateService exchangeRateService;
         private final BankRepo bankRepo;
         private final BankService bankService;
+        private final WalletLockManager walletLockManager;
+        private final LedgerService ledgerService;
+        private final ExternalPayoutService externalPayoutService;
+        private final ReferenceGenerator referenceGenerator;
+        private final OutboxService outboxService;
+        private final TransferEngine transferEngine;
+        private final TransferContextResolver transferContextResolver;
+        private final MonthlySpendingService monthlySpendingService;
 
         private static final String MILES_BANK = "Miles Bank";
         private static final String MILES_BANK_CODE = "190909";
 
         public TransactionService(TransactionRepo transactionRepo, WalletRepo walletRepo, WalletService walletService,
-                                  NameEnquiryService nameEnquiryService, com.example.opaybanking.service.userService userService, ExchangeRateService exchangeRateService, BankRepo bankRepo, BankService bankService) {
+                                  com.example.opaybanking.service.userService userService, ExchangeRateService exchangeRateService, BankRepo bankRepo, BankService bankService,
+                                  WalletLockManager walletLockManager, LedgerService ledgerService,
+                                  ExternalPayoutService externalPayoutService, ReferenceGenerator referenceGenerator,
+                                  OutboxService outboxService, TransferEngine transferEngine,
+                                  TransferContextResolver transferContextResolver,
+                                  MonthlySpendingService monthlySpendingService) {
             this.transactionRepo = transactionRepo;
             this.walletRepo = walletRepo;
             this.walletService = walletService;
-            this.nameEnquiryService = nameEnquiryService;
             this.userService = userService;
             this.exchangeRateService = exchangeRateService;
             this.bankRepo = bankRepo;
             this.bankService = bankService;
+            this.walletLockManager = walletLockManager;
+            this.ledgerService = ledgerService;
+            this.externalPayoutService = externalPayoutService;
+            this.referenceGenerator = referenceGenerator;
+            this.outboxService = outboxService;
+            this.transferEngine = transferEngine;
+            this.transferContextResolver = transferContextResolver;
+            this.monthlySpendingService = monthlySpendingService;
         }
 
-        private Wallet getUserWalletByCurrency(String token, String currencyStr) {
-            Currency currency;
-            try {
-                currency = Currency.valueOf(currencyStr.toUpperCase());
-            } catch (Exception e) {
-                throw new RuntimeException("Invalid currency. Use NGN or USD");
-            }
-
-            User user = userService.getAuthenticatedUser(token);
-            return walletRepo.findFirstByUserAndCurrency(user, currency)
-                    .orElseThrow(() -> new RuntimeException(
-                            "You don't have a " + currency + " wallet. Create one first."
-                    ));
+        private static String describe(String description, String fallback) {
+            return description != null && !description.trim().isEmpty() ? description.trim() : fallback;
         }
 
-        @Transactional
-        public TransferResponse internalTransfer(InternalTransferRequest req, String token) {
-            Wallet fromWallet = getUserWalletByCurrency(token, req.currency());
-
-            if (fromWallet.getAccountNumber().equals(req.toAccountNumber())) {
-                throw new RuntimeException("You cannot transfer to your own account");
-            }
-            if (!walletService.verifyPin(fromWallet.getWalletId().longValue(), req.pin(), token)) {
-                throw new RuntimeException("Invalid PIN");
-            }
-            if (fromWallet.getBalance() < req.amount()) {
-                throw new RuntimeException("Insufficient balance in " + req.currency() + " wallet");
-            }
-
-            NameEnquiryResponse enquiry = walletService.verifyMilesBankAccount(req.toAccountNumber());
-            if (!enquiry.isSuccess()) throw new RuntimeException("Recipient not found");
-
-            Wallet toWallet = walletRepo.findByAccountNumber(req.toAccountNumber())
-                    .orElseThrow(() -> new RuntimeException("Recipient wallet not found"));
-
-            if (fromWallet.getCurrency() != toWallet.getCurrency()) {
+        private TransferContext resolveInternal(InternalTransferRequest req, String token) {
+            TransferContext ctx = transferContextResolver.resolve(token, req.currency(), req.pin(), req.toAccountNumber());
+            if (ctx.fromWallet().getCurrency() != ctx.toWallet().getCurrency()) {
                 throw new RuntimeException("Use cross-currency transfer for different currencies");
             }
+            return ctx;
+        }
 
-            fromWallet.setBalance(fromWallet.getBalance() - req.amount());
-            toWallet.setBalance(toWallet.getBalance() + req.amount());
-            walletRepo.save(fromWallet);
-            walletRepo.save(toWallet);
-
-            String ref = "TXN" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
-
-            String senderDesc = (req.description() != null && !req.description().trim().isEmpty())
-                    ? req.description().trim()
-                    : "Transfer to " + enquiry.getAccountName();
-
-            String receiverDesc = (req.description() != null && !req.description().trim().isEmpty())
-                    ? req.description().trim()
-                    : "From " + fromWallet.getAccountName();
-
-            Transaction outTx = createTx(
-                    userService.getAuthenticatedUser(token),
-                    fromWallet,
-                    req.amount(),
-                    TransactionType.TRANSFER_OUT,
-                    ref,
-                    senderDesc,
-                    req.toAccountNumber(),
-                    enquiry.getAccountName(),
-                    MILES_BANK
-            );
-
-            Transaction inTx = createTx(
-                    toWallet.getUser(),
-                    toWallet,
-                    req.amount(),
-                    TransactionType.TRANSFER_IN,
-                    ref,
-                    receiverDesc,
-                    fromWallet.getAccountNumber(),
-                    fromWallet.getAccountName(),
-                    MILES_BANK
-            );
-
-            transactionRepo.save(outTx);
-            transactionRepo.save(inTx);
+        @Transactional
+        public TransferResponse internalTransfer(InternalTransferRequest req, String token) {
+            long amount = Money.ofPositiveMajor(req.amount());
+            TransferContext ctx = resolveInternal(req, token);
+            return payMilesBankWallet(ctx, amount, "Insufficient balance in " + req.currency() + " wallet",
+                    describe(req.description(), "Transfer to " + ctx.recipientName()),
+                    describe(req.description(), "From " + ctx.fromWallet().getAccountName()));
+        }
 
-            return new TransferResponse(
-                    true,
-                    "Transfer successful",
-                    ref,
-                    fromWallet.getAccountNumber(),
-                    req.toAccountNumber(),
-                    enquiry.getAccountName(),
-                    MILES_BANK,
-                    req.amount(),
-                    fromWallet.getBalance()
-            );
+        /**
+         * Same checks as {@link #internalTransfer}, then hands the money movement to the
+         * {@link TransferEngine}; the future completes once the transfer has committed.
+         */
+        public CompletableFuture<TransferResponse> submitInternalTransfer(InternalTransferRequest req, String token,
+                                                                          Consumer<TransferResponse> withinTransaction) {
+            long amount = Money.ofPositiveMajor(req.amount());
+            TransferContext ctx = resolveInternal(req, token);
+            return transferEngine.submit(new TransferEngine.InternalTransfer(
+                    ctx.fromWallet().getWalletId(), ctx.toWallet().getWalletId(), amount,
+                    describe(req.description(), "Transfer to " + ctx.recipientName()),
+                    describe(req.description(), "From " + ctx.fromWallet().getAccountName()),
+                    withinTransaction));
         }
 
         @Transactional
         public TransferResponse crossCurrencyTransfer(CrossCurrencyTransferRequest req, String token) {
-            Wallet fromWallet = getUserWalletByCurrency(token, req.currency());
-
-            if (fromWallet.getAccountNumber().equals(req.toAccountNumber())) {
-                throw new RuntimeException("You cannot transfer to your own account");
-            }
-            if (!walletService.verifyPin(fromWallet.getWalletId().longValue(), req.pin(), token)) {
-                throw new RuntimeException("Invalid PIN");
-            }
-            if (fromWallet.getBalance() < req.amount()) {
-                throw new RuntimeException("Insufficient balance in " + req.currency() + " wallet");
-            }
-
-            NameEnquiryResponse enquiry = walletService.verifyMilesBankAccount(req.toAccountNumber());
-            if (!enquiry.isSuccess()) throw new RuntimeException("Recipient not found");
-
-            Wallet toWallet = walletRepo.findByAccountNumber(req.toAccountNumber())
-                    .orElseThrow(() -> new RuntimeException("Recipient wallet not found"));
+            long amount = Money.ofPositiveMajor(req.amount());
+            TransferContext ctx = transferContextResolver.resolve(token, req.currency(), req.pin(), req.toAccountNumber());
+            Wallet fromWallet = ctx.fromWallet();
+            Wallet toWallet = ctx.toWallet();
 
             if (fromWallet.getCurrency() == toWallet.getCurrency()) {
                 throw new RuntimeException("Use internal transfer for same currency");
             }
 
-            ExchangeRate rate = exchangeRateService.getRate();
-            double converted = fromWallet.getCurrency() == Currency.NGN
-                    ? req.amount() / rate.getNgnToUsd()
-                    : req.amount() * rate.getNgnToUsd();
+            walletLockManager.lock(fromWallet, toWallet);
+            if (fromWallet.getBalanceMinor() < amount) {
+                throw new RuntimeException("Insufficient balance in " + req.currency() + " wallet");
+            }
 
-            fromWallet.setBalance(fromWallet.getBalance() - req.amount());
-            toWallet.setBalance(toWallet.getBalance() + converted);
-            walletRepo.save(fromWallet);
-            walletRepo.save(toWallet);
+            ExchangeRate rate = exchangeRateService.getRate();
+            long converted = fromWallet.getCurrency() == Currency.NGN
+                    ? Money.divide(amount, rate.getNgnToUsd())
+                    : Money.multiply(amount, rate.getNgnToUsd());
+            // A few kobo can round down to 0 cents, which the ledger would refuse to post
+            if (converted <= 0) {
+                throw new RuntimeException("Amount too small to convert");
+            }
 
-            String ref = "FX" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+            String ref = referenceGenerator.next("FX");
+            ledgerService.post(ref, "FX transfer", List.of(
+                    LedgerService.Posting.debit(fromWallet, amount),
+                    LedgerService.Posting.credit(LedgerService.GL_FX_POSITION, fromWallet.getCurrency(), amount),
+                    LedgerService.Posting.debit(LedgerService.GL_FX_POSITION, toWallet.getCurrency(), converted),
+                    LedgerService.Posting.credit(toWallet, converted)));
 
-            Transaction outTx = createTx(userService.getAuthenticatedUser(token), fromWallet, req.amount(),
-                    TransactionType.CURRENCY_EXCHANGE_OUT, ref, "FX Transfer", req.toAccountNumber(), enquiry.getAccountName(), MILES_BANK);
+            Transaction outTx = createTx(ctx.principal(), fromWallet, amount,
+                    TransactionType.CURRENCY_EXCHANGE_OUT, ref, "FX Transfer", req.toAccountNumber(), ctx.recipientName(), MILES_BANK);
             Transaction inTx = createTx(toWallet.getUser(), toWallet, converted,
                     TransactionType.CURRENCY_EXCHANGE_IN, ref, "FX Received", fromWallet.getAccountNumber(), fromWallet.getAccountName(), MILES_BANK);
 
-            transactionRepo.save(outTx);
-            transactionRepo.save(inTx);
+            transactionRepo.saveAll(List.of(outTx, inTx));
+            monthlySpendingService.recordTransactions(List.of(outTx, inTx));
+            outboxService.recordTransfer(ref, fromWallet, amount, toWallet, converted);
 
             return new TransferResponse(true, "FX Transfer successful", ref,
-                    fromWallet.getAccountNumber(), req.toAccountNumber(), enquiry.getAccountName(),
-                    MILES_BANK, converted, toWallet.getBalance());
+                    fromWallet.getAccountNumber(), req.toAccountNumber(), ctx.recipientName(),
+                    MILES_BANK, Money.toMajor(converted), Money.toMajor(toWallet.getBalanceMinor()));
         }
 
         @Transactional
         public TransferResponse externalTransfer(ExternalTransferRequest req, String token) {
-            Wallet fromWallet = getUserWalletByCurrency(token, req.currency());
-
-            if (!walletService.verifyPin(fromWallet.getWalletId().longValue(), req.pin(), token))
-                throw new RuntimeException("Invalid PIN");
-            if (fromWallet.getBalance() < req.amount())
-                throw new RuntimeException("Insufficient balance");
+            long amount = Money.ofPositiveMajor(req.amount());
 
             if (MILES_BANK_CODE.equals(req.bankCode())) {
-                return processMilesBankTransfer(req, fromWallet, token);
+                TransferContext ctx = transferContextResolver.resolve(token, req.currency(), req.pin(), req.accountNumber());
+                return payMilesBankWallet(ctx, amount, "Insufficient balance",
+                        "Transfer to " + ctx.recipientName(), "From " + ctx.fromWallet().getAccountName());
             }
 
+            TransferContext ctx = transferContextResolver.resolveSender(token, req.currency(), req.pin());
+            Wallet fromWallet = ctx.fromWallet();
 
             String bankName = bankService.resolveBankName(req.bankCode());
             if ("Unknown Bank".equals(bankName))
                 throw new RuntimeException("Bank not supported. Code: " + req.bankCode());
+            if (!req.accountNumber().trim().matches("\\d{10}"))
+                throw new RuntimeException("Account number must be 10 digits");
 
-            NameEnquiryResponse enquiry = nameEnquiryService.verifyAccount(req.accountNumber(), req.bankCode());
-            if (!enquiry.isSuccess())
-                throw new RuntimeException("Name enquiry failed: " + enquiry.getMessage());
-
-
-
-            fromWallet.setBalance(fromWallet.getBalance() - req.amount());
-            walletRepo.save(fromWallet);
+            // Name enquiry and the payout itself run on the settlement workers after commit,
+            // so this transaction only reserves the funds and never waits on the partner bank
+            walletLockManager.lock(fromWallet);
+            if (fromWallet.getBalanceMinor() < amount)
+                throw new RuntimeException("Insufficient balance");
 
-            String ref = "EXT" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+            String ref = referenceGenerator.next("EXT");
+            ledgerService.post(ref, "External transfer to " + bankName, List.of(
+                    LedgerService.Posting.debit(fromWallet, amount),
+                    LedgerService.Posting.credit(LedgerService.GL_EXTERNAL_CLEARING, fromWallet.getCurrency(), amount)));
 
             Transaction tx = createTx(
-                    userService.getAuthenticatedUser(token),
+                    ctx.principal(),
                     fromWallet,
-                    req.amount(),
+                    amount,
                     TransactionType.TRANSFER_OUT,
                     ref,
                     req.description() != null && !req.description().isBlank() ? req.description() : "Transfer to " + req.accountName(),
@@ -224,68 +186,69 @@
                     req.accountName(),
                     bankName
             );
+            // Not in monthly spending yet: ExternalPayoutService counts it once the payout settles
+            tx.setTransactionStatus(Status.PENDING);
             transactionRepo.save(tx);
+            externalPayoutService.schedule(tx, fromWallet, req.bankCode(), bankName, req.accountNumber().trim(), req.accountName());
+            outboxService.recordWalletEvent(OutboxEventType.EXTERNAL_TRANSFER_PENDING, fromWallet, ref, amount, Map.of(
+                    "bankCode", req.bankCode(),
+                    "bankName", bankName,
+                    "counterpartyAccount", req.accountNumber().trim()));
 
             return new TransferResponse(
                     true,
-                    "Transfer scheduled successfully",
+                    "Transfer is being processed",
                     ref,
                     fromWallet.getAccountNumber(),
                     req.accountNumber(),
                     req.accountName(),
                     bankName,
-                    req.amount(),
-                    fromWallet.getBalance()
+                    Money.toMajor(amount),
+                    Money.toMajor(fromWallet.getBalanceMinor())
             );
         }
-        private TransferResponse processMilesBankTransfer(ExternalTransferRequest req, Wallet fromWallet, String token) {
-            User sender = userService.getAuthenticatedUser(token);
 
-            NameEnquiryResponse enquiry = walletService.verifyMilesBankAccount(req.accountNumber());
-            if (!enquiry.isSuccess()) {
-                throw new RuntimeException("Recipient not found in Miles Bank");
-            }
-
-            Wallet toWallet = walletRepo.findByAccountNumber(req.accountNumber())
-                    .orElseThrow(() -> new RuntimeException("Recipient wallet not found"));
+        /** Same-currency transfer between two Miles Bank wallets, shared by the internal and bank-code 190909 paths. */
+        private TransferResponse payMilesBankWallet(TransferContext ctx, long amount, String insufficientMessage,
+                                                    String senderDesc, String receiverDesc) {
+            Wallet fromWallet = ctx.fromWallet();
+            Wallet toWallet = ctx.toWallet();
 
-            if (fromWallet.getAccountNumber().equals(toWallet.getAccountNumber())) {
-                throw new RuntimeException("You cannot transfer to your own account");
+            walletLockManager.lock(fromWallet, toWallet);
+            if (fromWallet.getBalanceMinor() < amount) {
+                throw new RuntimeException(insufficientMessage);
             }
 
-            fromWallet.setBalance(fromWallet.getBalance() - req.amount());
-            toWallet.setBalance(toWallet.getBalance() + req.amount());
-            walletRepo.save(fromWallet);
-            walletRepo.save(toWallet);
-
-            String ref = "TXN" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+            String ref = referenceGenerator.next("TXN");
+            ledgerService.post(ref, "Internal transfer", List.of(
+                    LedgerService.Posting.debit(fromWallet, amount),
+                    LedgerService.Posting.credit(toWallet, amount)));
 
             Transaction outTx = createTx(
-                    sender, fromWallet, req.amount(), TransactionType.TRANSFER_OUT,
-                    ref, "Transfer to " + enquiry.getAccountName(),
-                    req.accountNumber(), enquiry.getAccountName(), MILES_BANK
+                    ctx.principal(), fromWallet, amount, TransactionType.TRANSFER_OUT,
+                    ref, senderDesc, toWallet.getAccountNumber(), ctx.recipientName(), MILES_BANK
             );
 
             Transaction inTx = createTx(
-                    toWallet.getUser(), toWallet, req.amount(), TransactionType.TRANSFER_IN,
-                    ref, "From " + fromWallet.getAccountName(),
-                    fromWallet.getAccountNumber(), fromWallet.getAccountName(), MILES_BANK
+                    toWallet.getUser(), toWallet, amount, TransactionType.TRANSFER_IN,
+                    ref, receiverDesc, fromWallet.getAccountNumber(), fromWallet.getAccountName(), MILES_BANK
             );
 
-            transactionRepo.save(outTx);
-            transactionRepo.save(inTx);
+            transactionRepo.saveAll(List.of(outTx, inTx));
+            monthlySpendingService.recordTransactions(List.of(outTx, inTx));
+            outboxService.recordTransfer(ref, fromWallet, amount, toWallet, amount);
 
             return new TransferResponse(true, "Transfer successful", ref,
-                    fromWallet.getAccountNumber(), req.accountNumber(),
-                    enquiry.getAccountName(), "Miles Bank", req.amount(), fromWallet.getBalance());
+                    fromWallet.getAccountNumber(), toWallet.getAccountNumber(),
+                    ctx.recipientName(), MILES_BANK, Money.toMajor(amount), Money.toMajor(fromWallet.getBalanceMinor()));
         }
 
-        private Transaction createTx(User user, Wallet wallet, Double amount, TransactionType type,
+        static Transaction createTx(User user, Wallet wallet, long amountMinor, TransactionType type,
                                      String ref, String desc, String benAcc, String benName, String benBank) {
             Transaction tx = new Transaction();
             tx.setUser(user);
             tx.setWallet(wallet);
-            tx.setAmount(amount);
+            tx.setAmountMinor(amountMinor);
             tx.setTransactionType(type);
             tx.setReference(ref);
             tx.setTransactionStatus(Status.SUCCESSFUL);
@@ -302,17 +265,17 @@
             Long userId = user.getUserId().longValue();
 
             if (start != null && end != null) {
-                List<Transaction> txns = transactionRepo.findByUserAndCreatedAtBetweenOrderByCreatedAtDesc(userId, start, end);
+                List<TransactionRow> txns = transactionRepo.findByUserAndCreatedAtBetweenOrderByCreatedAtDesc(userId, start, end);
                 return txns.stream().map(this::toDto).toList();
             } else {
-                List<Transaction> txns = transactionRepo.findByUserAndDateRangeOrderByDateDesc(userId, start, end);
+                List<TransactionRow> txns = transactionRepo.findByUserAndDateRangeOrderByDateDesc(userId, start, end);
                 return txns.stream().map(this::toDto).toList();
             }
         }
 
         public List<TransactionResponseDto> getUserTransactionsByAmountDesc(String token) {
             User user = userService.getAuthenticatedUser(token);
-            List<Transaction> txns = transactionRepo.findByUserUserIdOrderByAmountDesc(user.getUserId().longValue());
+            List<TransactionRow> txns = transactionRepo.findByUserUserIdOrderByAmountDesc(user.getUserId().longValue());
             return txns.stream().map(this::toDto).toList();
         }
 
@@ -332,7 +295,7 @@
             LocalDateTime start = yearMonth.atDay(1).atStartOfDay();
             LocalDateTime end = yearMonth.atEndOfMonth().atTime(23, 59, 59);
 
-            List<Transaction> txns = transactionRepo.findByUserAndCreatedAtBetweenOrderByCreatedAtDesc(userId, start, end);
+            List<TransactionRow> txns = transactionRepo.findByUserAndCreatedAtBetweenOrderByCreatedAtDesc(userId, start, end);
             return txns.stream().map(this::toDto).toList();
         }
 
@@ -353,31 +316,31 @@
             return transactionRepo.findByWalletWalletIdOrderByCreatedAtDesc(walletId);
         }
 
-        private TransactionResponseDto toDto(Transaction tx) {
-            String formattedDate = tx.getCreatedAt()
+        private TransactionResponseDto toDto(TransactionRow tx) {
+            String formattedDate = tx.createdAt()
                     .format(java.time.format.DateTimeFormatter.ofPattern("dd MMM yyyy, hh:mm a"));
 
             return new TransactionResponseDto(
-                    (long) tx.getTransactionId(),
-                    tx.getTransactionType().name(),
-                    tx.getReference(),
-                    tx.getAmount(),
-                    tx.getBeneficiaryName(),
-                    tx.getBeneficiaryAccount(),
-                    tx.getBeneficiaryBank(),
-                    tx.getDescription() != null ? tx.getDescription() : getDefaultDescription(tx),
-                    tx.getTransactionStatus().name(),
+                    (long) tx.transactionId(),
+                    tx.transactionType().name(),
+                    tx.reference(),
+                    Money.toMajor(tx.amountMinor()),
+                    tx.beneficiaryName(),
+                    tx.beneficiaryAccount(),
+                    tx.beneficiaryBank(),
+                    tx.description() != null ? tx.description() : getDefaultDescription(tx),
+                    tx.transactionStatus().name(),
                     formattedDate
             );
         }
 
-        private String getDefaultDescription(Transaction tx) {
-            return switch (tx.getTransactionType()) {
-                case TRANSFER_OUT -> "Sent to " + tx.getBeneficiaryName();
-                case TRANSFER_IN -> "Received from " + tx.getWallet().getAccountName();
+        private String getDefaultDescription(TransactionRow tx) {
+            return switch (tx.transactionType()) {
+                case TRANSFER_OUT -> "Sent to " + tx.beneficiaryName();
+                case TRANSFER_IN -> "Received from " + tx.walletAccountName();
                 case CURRENCY_EXCHANGE_OUT -> "FX Transfer Out";
                 case CURRENCY_EXCHANGE_IN -> "FX Transfer In";
-                default -> tx.getTransactionType().name();
+                default -> tx.transactionType().name();
             };
         }
 
@@ -392,7 +355,7 @@
 
         public List<TransactionResponseDto> getUserTransactions(String token) {
             User user = userService.getAuthenticatedUser(token);
-            List<Transaction> txns = transactionRepo.findByUserUserIdOrderByCreatedAtDesc(user.getUserId().longValue());
+            List<TransactionRow> txns = transactionRepo.findByUserUserIdOrderByCreatedAtDesc(user.getUserId().longValue());
             return txns.stream().map(this::toDto).toList();
         }
     }
@@ -0,0 +1,12 @@
+package com.example.opaybanking.service;
+
+import com.example.opaybanking.model.User;
+import com.example.opaybanking.model.Wallet;
+
+/**
+ * Who is paying whom, resolved once per transfer request by {@link TransferContextResolver}
+ * and handed down, so the transfer itself never looks the caller or the wallets up again.
+ * toWallet and recipientName are null for transfers leaving Miles Bank.
+ */
+public record TransferContext(User principal, Wallet fromWallet, Wallet toWallet, String recipientName) {
+}
@@ -0,0 +1,69 @@
+package com.example.opaybanking.service;
+
+import com.example.opaybanking.enums.Currency;
+import com.example.opaybanking.model.User;
+import com.example.opaybanking.model.Wallet;
+import com.example.opaybanking.repo.WalletRepo;
+import org.springframework.stereotype.Service;
+
+/**
+ * Builds the {@link TransferContext} for a transfer request with a fixed number of
+ * queries: the caller, the caller's wallet in the requested currency and, for
+ * Miles Bank recipients, the recipient wallet with its owner in one join. The PIN is
+ * checked against the wallet already loaded.
+ */
+@Service
+public class TransferContextResolver {
+
+    private final userService userService;
+    private final WalletRepo walletRepo;
+    private final WalletService walletService;
+
+    public TransferContextResolver(userService userService, WalletRepo walletRepo, WalletService walletService) {
+        this.userService = userService;
+        this.walletRepo = walletRepo;
+        this.walletService = walletService;
+    }
+
+    /** Caller and paying wallet only, for transfers to other banks. */
+    public TransferContext resolveSender(String token, String currency, String pin) {
+        User principal = userService.getAuthenticatedUser(token);
+        Wallet fromWallet = senderWallet(principal, currency);
+        checkPin(fromWallet, pin);
+        return new TransferContext(principal, fromWallet, null, null);
+    }
+
+    /** Caller, paying wallet and the Miles Bank wallet behind toAccountNumber. */
+    public TransferContext resolve(String token, String currency, String pin, String toAccountNumber) {
+        User principal = userService.getAuthenticatedUser(token);
+        Wallet fromWallet = senderWallet(principal, currency);
+
+        if (fromWallet.getAccountNumber().equals(toAccountNumber)) {
+            throw new RuntimeException("You cannot transfer to your own account");
+        }
+        checkPin(fromWallet, pin);
+
+        Wallet toWallet = walletRepo.findWithOwnerByAccountNumber(toAccountNumber)
+                .orElseThrow(() -> new RuntimeException("Account not found in Miles Bank"));
+        return new TransferContext(principal, fromWallet, toWallet, WalletService.ownerName(toWallet));
+    }
+
+    private Wallet senderWallet(User principal, String currencyStr) {
+        Currency currency;
+        try {
+            currency = Currency.valueOf(currencyStr.toUpperCase());
+        } catch (Exception e) {
+            throw new RuntimeException("Invalid currency. Use NGN or USD");
+        }
+        return walletRepo.findFirstByUserAndCurrency(principal, currency)
+                .orElseThrow(() -> new RuntimeException(
+                        "You don't have a " + currency + " wallet. Create one first."
+                ));
+    }
+
+    private void checkPin(Wallet wallet, String pin) {
+        if (!walletService.verifyPin(wallet, pin)) {
+            throw new RuntimeException("Invalid PIN");
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package com.example.opaybanking.service;
+
+import com.example.opaybanking.dto.TransferResponse;
+import com.example.opaybanking.enums.TransactionType;
+import com.example.opaybanking.model.Money;
+import com.example.opaybanking.model.Transaction;
+import com.example.opaybanking.model.Wallet;
+import com.example.opaybanking.repo.TransactionRepo;
+import com.example.opaybanking.util.ReferenceGenerator;
+import com.example.opaybanking.util.RingBuffer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Optional execution mode for Miles Bank wallet-to-wallet transfers (transfer.engine.enabled).
+ *
+ * Transfers are routed by recipient wallet id to one of transfer.engine.partitions
+ * single-threaded workers, each fed by a lock-free {@link RingBuffer}. A worker drains
+ * up to transfer.engine.batch-size transfers and applies them in one database
+ * transaction: one ordered SELECT ... FOR UPDATE for every wallet in the batch, balance
+ * changes accumulated on the locked entities in memory, one UPDATE per wallet and
+ * batched inserts at commit. A collection wallet receiving hundreds of credits is then
+ * locked and written once per batch instead of once per credit, so its throughput grows
+ * with the batch size rather than with row-lock round trips.
+ *
+ * Each transfer is checked on its own: one that would overdraw fails alone while the
+ * rest of the batch commits. If the batch transaction itself fails, its transfers are
+ * retried one at a time so a single bad transfer cannot fail its neighbours. Callers
+ * get a future that completes after the commit; when the ring is full, or the engine is
+ * shutting down, it fails at once. Every future completes: transfers still queued when
+ * a worker stops, for whatever reason, are failed rather than left waiting.
+ */
+@Service
+public class TransferEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransferEngine.class);
+    private static final String MILES_BANK = "Miles Bank";
+
+    /**
+     * A transfer whose caller has already been authenticated and PIN-checked.
+     * withinTransaction runs in the committing transaction once the transfer succeeds.
+     */
+    public record InternalTransfer(Long fromWalletId, Long toWalletId, long amountMinor,
+                                   String senderDescription, String receiverDescription,
+                                   Consumer<TransferResponse> withinTransaction) {
+    }
+
+    private record Pending(InternalTransfer transfer, CompletableFuture<TransferResponse> result) {
+    }
+
+    private final WalletLockManager walletLockManager;
+    private final LedgerService ledgerService;
+    private final TransactionRepo transactionRepo;
+    private final OutboxService outboxService;
+    private final MonthlySpendingService monthlySpendingService;
+    private final ReferenceGenerator referenceGenerator;
+    private final TransactionTemplate transactionTemplate;
+
+    private final boolean enabled;
+    private final int batchSize;
+    private final Partition[] partitions;
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder committed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder retriedSingly = new LongAdder();
+
+    public TransferEngine(WalletLockManager walletLockManager, LedgerService ledgerService,
+                          TransactionRepo transactionRepo, OutboxService outboxService, MonthlySpendingService monthlySpendingService,
+                          ReferenceGenerator referenceGenerator, PlatformTransactionManager transactionManager,
+                          @Value("${transfer.engine.enabled:false}") boolean enabled,
+                          @Value("${transfer.engine.partitions:4}") int partitionCount,
+                          @Value("${transfer.engine.ring-size:4096}") int ringSize,
+                          @Value("${transfer.engine.batch-size:256}") int batchSize) {
+        this.walletLockManager = walletLockManager;
+        this.ledgerService = ledgerService;
+        this.transactionRepo = transactionRepo;
+        this.outboxService = outboxService;
+        this.monthlySpendingService = monthlySpendingService;
+        this.referenceGenerator = referenceGenerator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.partitions = new Partition[enabled ? partitionCount : 0];
+        for (int i = 0; i < partitions.length; i++) {
+            partitions[i] = new Partition(i, new RingBuffer<>(ringSize));
+            partitions[i].thread.start();
+        }
+        if (enabled) {
+            logger.info("Transfer engine started with {} partitions, ring size {}, batch size {}",
+                    partitionCount, ringSize, batchSize);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public CompletableFuture<TransferResponse> submit(InternalTransfer transfer) {
+        if (!enabled) {
+            throw new IllegalStateException("Transfer engine is disabled (transfer.engine.enabled=false)");
+        }
+        CompletableFuture<TransferResponse> result = new CompletableFuture<>();
+        Partition partition = partitions[(int) Math.floorMod(transfer.toWalletId(), (long) partitions.length)];
+        if (!partition.running) {
+            result.completeExceptionally(new RuntimeException("Transfer engine is shutting down, please try again"));
+            return result;
+        }
+        if (!partition.ring.offer(new Pending(transfer, result))) {
+            rejected.increment();
+            result.completeExceptionally(new RuntimeException("Too many transfers in progress, please try again"));
+            return result;
+        }
+        if (partition.closed) {
+            // The worker may have made its last drain before this offer landed
+            partition.failRemaining();
+            return result;
+        }
+        LockSupport.unpark(partition.thread);
+        return result;
+    }
+
+    private final class Partition implements Runnable {
+
+        private final RingBuffer<Pending> ring;
+        private final Thread thread;
+        private volatile boolean running = true;
+        private volatile boolean closed;
+
+        Partition(int index, RingBuffer<Pending> ring) {
+            this.ring = ring;
+            this.thread = new Thread(this, "transfer-engine-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            List<Pending> batch = new ArrayList<>(batchSize);
+            try {
+                while (running || ring.size() > 0) {
+                    batch.clear();
+                    if (ring.drainTo(batch, batchSize) == 0) {
+                        LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(1));
+                        continue;
+                    }
+                    try {
+                        execute(batch);
+                    } catch (Throwable t) {
+                        logger.error("Transfer batch of {} failed unexpectedly", batch.size(), t);
+                        for (Pending pending : batch) {
+                            pending.result().completeExceptionally(t);
+                        }
+                        if (t instanceof VirtualMachineError) throw t;
+                    }
+                }
+            } finally {
+                closed = true;
+                failRemaining();
+            }
+        }
+
+        // Only called once the worker has stopped consuming, so it is the ring's sole consumer
+        synchronized void failRemaining() {
+            List<Pending> left = new ArrayList<>();
+            ring.drainTo(left, Integer.MAX_VALUE);
+            for (Pending pending : left) {
+                pending.result().completeExceptionally(new RuntimeException("Transfer engine is shut down, please try again"));
+            }
+        }
+    }
+
+    private void execute(List<Pending> batch) {
+        Map<Pending, Object> outcomes;
+        try {
+            outcomes = transactionTemplate.execute(status -> apply(batch));
+        } catch (RuntimeException | Error e) {
+            if (batch.size() == 1) {
+                batch.get(0).result().completeExceptionally(e);
+                return;
+            }
+            logger.warn("Transfer batch of {} failed ({}), retrying one at a time", batch.size(), e.getMessage());
+            retriedSingly.add(batch.size());
+            for (Pending pending : batch) {
+                execute(List.of(pending));
+            }
+            return;
+        }
+
+        batches.increment();
+        outcomes.forEach((pending, outcome) -> {
+            if (outcome instanceof TransferResponse response) {
+                committed.increment();
+                pending.result().complete(response);
+            } else {
+                pending.result().completeExceptionally((RuntimeException) outcome);
+            }
+        });
+    }
+
+    /** Applies a batch inside one transaction; each transfer maps to its response or to the reason it was refused. */
+    private Map<Pending, Object> apply(List<Pending> batch) {
+        Set<Long> walletIds = new HashSet<>();
+        for (Pending pending : batch) {
+            walletIds.add(pending.transfer().fromWalletId());
+            walletIds.add(pending.transfer().toWalletId());
+        }
+        Map<Long, Wallet> wallets = walletLockManager.lockAllById(walletIds);
+
+        Map<Pending, Object> outcomes = new LinkedHashMap<>();
+        List<Transaction> transactions = new ArrayList<>(batch.size() * 2);
+        for (Pending pending : batch) {
+            InternalTransfer transfer = pending.transfer();
+            Wallet fromWallet = wallets.get(transfer.fromWalletId());
+            Wallet toWallet = wallets.get(transfer.toWalletId());
+            long amount = transfer.amountMinor();
+            if (fromWallet == null || toWallet == null) {
+                outcomes.put(pending, new RuntimeException("Wallet not found"));
+                continue;
+            }
+            if (fromWallet.getBalanceMinor() < amount) {
+                outcomes.put(pending, new RuntimeException("Insufficient balance in " + fromWallet.getCurrency() + " wallet"));
+                continue;
+            }
+
+            String ref = referenceGenerator.next("TXN");
+            ledgerService.post(ref, "Internal transfer", List.of(
+                    LedgerService.Posting.debit(fromWallet, amount),
+                    LedgerService.Posting.credit(toWallet, amount)));
+            transactions.add(TransactionService.createTx(fromWallet.getUser(), fromWallet, amount,
+                    TransactionType.TRANSFER_OUT, ref, transfer.senderDescription(),
+                    toWallet.getAccountNumber(), toWallet.getAccountName(), MILES_BANK));
+            transactions.add(TransactionService.createTx(toWallet.getUser(), toWallet, amount,
+                    TransactionType.TRANSFER_IN, ref, transfer.receiverDescription(),
+                    fromWallet.getAccountNumber(), fromWallet.getAccountName(), MILES_BANK));
+            outboxService.recordTransfer(ref, fromWallet, amount, toWallet, amount);
+
+            TransferResponse response = new TransferResponse(true, "Transfer successful", ref,
+                    fromWallet.getAccountNumber(), toWallet.getAccountNumber(), toWallet.getAccountName(),
+                    MILES_BANK, Money.toMajor(amount), Money.toMajor(fromWallet.getBalanceMinor()));
+            transfer.withinTransaction().accept(response);
+            outcomes.put(pending, response);
+        }
+        transactionRepo.saveAll(transactions);
+        monthlySpendingService.recordTransactions(transactions);
+        return outcomes;
+    }
+
+    public Map<String, Object> getStats() {
+        long batchCount = batches.sum();
+        long committedCount = committed.sum();
+        int[] depths = new int[partitions.length];
+        for (int i = 0; i < partitions.length; i++) {
+            depths[i] = partitions[i].ring.size();
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("partitions", partitions.length);
+        stats.put("queueDepths", depths);
+        stats.put("batches", batchCount);
+        stats.put("committed", committedCount);
+        stats.put("avgBatchSize", batchCount == 0 ? 0.0 : (double) committedCount / batchCount);
+        stats.put("rejected", rejected.sum());
+        stats.put("retriedSingly", retriedSingly.sum());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Partition partition : partitions) {
+            partition.running = false;
+            LockSupport.unpark(partition.thread);
+        }
+        for (Partition partition : partitions) {
+            try {
+                partition.thread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.opaybanking.service;
+
+import com.example.opaybanking.dto.WalletBalance;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-node LRU of each user's wallet balances, for the balance polling endpoints.
+ *
+ * LedgerService writes committed balances through to the cached wallet, so a node
+ * serves its own transfers' results immediately; wallet.balance-cache.ttl-ms bounds how
+ * long a change committed on another node can go unseen.
+ *
+ * Every ledger write takes a sequence number while it holds the wallet lock. A cached
+ * entry remembers the newest sequence applied to it; a write that arrives out of order
+ * evicts the entry instead of overwriting a newer balance. Completed writes are also
+ * stamped per wallet, and a load is not cached if one of its wallets saw a write
+ * complete while it was reading.
+ */
+@Component
+public class WalletBalanceCache {
+
+    private static final int MAX_TRACKED_COMPLETIONS = 100_000;
+
+    private record Entry(List<WalletBalance> balances, long sequence, long expiresAtMillis) {
+    }
+
+    private final Map<Integer, Entry> byUser;
+    private final Map<Long, Integer> ownerByWallet = new HashMap<>();
+    private final AtomicLong writeSequence = new AtomicLong();
+    private final Map<Long, Long> lastCompletionByWallet = new HashMap<>();
+    private long completions;
+    private long completionsClearedAt;
+    private final long ttlMillis;
+
+    public WalletBalanceCache(@Value("${wallet.balance-cache.max-entries:10000}") int maxEntries,
+                              @Value("${wallet.balance-cache.ttl-ms:2000}") long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+        this.byUser = new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+                if (size() <= maxEntries) return false;
+                eldest.getValue().balances().forEach(b -> ownerByWallet.remove(b.walletId()));
+                return true;
+            }
+        };
+    }
+
+    /** The user's balances, or null if not cached or expired. */
+    public List<WalletBalance> get(Integer userId) {
+        synchronized (byUser) {
+            Entry entry = byUser.get(userId);
+            if (entry == null) return null;
+            if (entry.expiresAtMillis() < System.currentTimeMillis()) {
+                remove(userId);
+                return null;
+            }
+            return entry.balances();
+        }
+    }
+
+    /** Call before reading balances from the database; pass the result to {@link #put}. */
+    public long beginLoad() {
+        synchronized (byUser) {
+            return completions;
+        }
+    }
+
+    public void put(Integer userId, List<WalletBalance> balances, long loadMark) {
+        synchronized (byUser) {
+            // A write to one of these wallets completed during the load; what was read may be stale
+            if (completionsClearedAt > loadMark) return;
+            for (WalletBalance b : balances) {
+                Long completedAt = lastCompletionByWallet.get(b.walletId());
+                if (completedAt != null && completedAt > loadMark) return;
+            }
+            remove(userId);
+            // Out-of-order write-throughs compare against this; any write numbered so far has been read or will evict
+            byUser.put(userId, new Entry(List.copyOf(balances), writeSequence.get(), System.currentTimeMillis() + ttlMillis));
+            balances.forEach(b -> ownerByWallet.put(b.walletId(), userId));
+        }
+    }
+
+    /** Taken by LedgerService while it holds the wallet locks of a posting. */
+    public long nextWriteSequence() {
+        return writeSequence.incrementAndGet();
+    }
+
+    /** A posting with this sequence committed, leaving the wallet at balanceMinor. */
+    public void applyCommitted(Long walletId, long balanceMinor, long sequence) {
+        synchronized (byUser) {
+            markCompleted(walletId);
+            Integer userId = ownerByWallet.get(walletId);
+            if (userId == null) return;
+            Entry entry = byUser.get(userId);
+            if (entry == null) return;
+            if (sequence <= entry.sequence()) {
+                remove(userId);
+                return;
+            }
+            List<WalletBalance> updated = new ArrayList<>(entry.balances().size());
+            for (WalletBalance b : entry.balances()) {
+                updated.add(b.walletId().equals(walletId) ? new WalletBalance(walletId, b.currency(), balanceMinor) : b);
+            }
+            byUser.put(userId, new Entry(List.copyOf(updated), sequence, entry.expiresAtMillis()));
+        }
+    }
+
+    public void evictWallet(Long walletId) {
+        synchronized (byUser) {
+            markCompleted(walletId);
+            Integer userId = ownerByWallet.get(walletId);
+            if (userId != null) remove(userId);
+        }
+    }
+
+    public void evictUser(Integer userId) {
+        synchronized (byUser) {
+            remove(userId);
+        }
+    }
+
+    private void markCompleted(Long walletId) {
+        completions++;
+        if (lastCompletionByWallet.size() >= MAX_TRACKED_COMPLETIONS) {
+            // Forget per-wallet stamps; loads already in flight are simply not cached
+            lastCompletionByWallet.clear();
+            completionsClearedAt = completions;
+        }
+        lastCompletionByWallet.put(walletId, completions);
+    }
+
+    private void remove(Integer userId) {
+        Entry entry = byUser.remove(userId);
+        if (entry != null) {
+            entry.balances().forEach(b -> ownerByWallet.remove(b.walletId()));
+        }
+    }
+}
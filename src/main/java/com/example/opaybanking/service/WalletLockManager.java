@@ -0,0 +1,154 @@
+package com.example.opaybanking.service;
+
+import com.example.opaybanking.model.Wallet;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.LockTimeoutException;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.PessimisticLockException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Takes row locks on wallets before their balances are read and changed.
+ * Locks are always acquired in ascending walletId order so two transfers
+ * touching the same pair of wallets (A -> B and B -> A) can never deadlock.
+ */
+@Service
+public class WalletLockManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(WalletLockManager.class);
+    private static final String LOCK_TIMEOUT_HINT = "jakarta.persistence.lock.timeout";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final long lockTimeoutMs;
+    private final long slowLockThresholdMs;
+
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder rowsLocked = new LongAdder();
+    private final LongAdder contended = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    public WalletLockManager(@Value("${wallet.lock.timeout-ms:3000}") long lockTimeoutMs,
+                             @Value("${wallet.lock.slow-threshold-ms:50}") long slowLockThresholdMs) {
+        this.lockTimeoutMs = lockTimeoutMs;
+        this.slowLockThresholdMs = slowLockThresholdMs;
+    }
+
+    /**
+     * Locks the given managed wallets (duplicates and nulls are ignored) and reloads
+     * their state from the database, so balances read afterwards are current for
+     * the rest of the surrounding transaction.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void lock(Wallet... wallets) {
+        lockAll(List.of(wallets));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void lockAll(List<Wallet> wallets) {
+        Map<Long, Wallet> byId = new LinkedHashMap<>();
+        for (Wallet wallet : wallets) {
+            if (wallet != null) byId.putIfAbsent(wallet.getWalletId(), wallet);
+        }
+        List<Wallet> ordered = new ArrayList<>(byId.values());
+        ordered.sort(Comparator.comparing(Wallet::getWalletId));
+        if (ordered.isEmpty()) return;
+
+        Map<String, Object> hints = Map.of(LOCK_TIMEOUT_HINT, lockTimeoutMs);
+        long start = System.nanoTime();
+        try {
+            // Postgres ignores the JPA hint for FOR UPDATE, so bound the wait for this transaction too
+            entityManager.createNativeQuery("SELECT set_config('lock_timeout', :timeout, true)")
+                    .setParameter("timeout", lockTimeoutMs + "ms")
+                    .getSingleResult();
+            for (Wallet wallet : ordered) {
+                entityManager.refresh(wallet, LockModeType.PESSIMISTIC_WRITE, hints);
+            }
+        } catch (LockTimeoutException | PessimisticLockException | PessimisticLockingFailureException e) {
+            timeouts.increment();
+            logger.warn("Timed out locking wallets {} after {} ms", byId.keySet(), lockTimeoutMs);
+            throw new CannotAcquireLockException("Wallet is busy, please try again", e);
+        } finally {
+            record(ordered.size(), System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Loads and locks many wallets with a single SELECT ... FOR UPDATE ordered by walletId,
+     * for batch work where refreshing each row would cost one round trip per wallet.
+     * Call it before any of these wallets are loaded in the current transaction.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Map<Long, Wallet> lockAllById(Collection<Long> walletIds) {
+        List<Long> ids = walletIds.stream().distinct().sorted().toList();
+        if (ids.isEmpty()) return Map.of();
+
+        long start = System.nanoTime();
+        try {
+            entityManager.createNativeQuery("SELECT set_config('lock_timeout', :timeout, true)")
+                    .setParameter("timeout", lockTimeoutMs + "ms")
+                    .getSingleResult();
+            List<Wallet> locked = entityManager
+                    .createQuery("SELECT w FROM Wallet w WHERE w.walletId IN :ids ORDER BY w.walletId", Wallet.class)
+                    .setParameter("ids", ids)
+                    .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                    // Query hints take an Integer or String; a Long is rejected when the query runs
+                    .setHint(LOCK_TIMEOUT_HINT, Math.toIntExact(lockTimeoutMs))
+                    .getResultList();
+            Map<Long, Wallet> byId = new LinkedHashMap<>();
+            for (Wallet wallet : locked) {
+                byId.put(wallet.getWalletId(), wallet);
+            }
+            return byId;
+        } catch (LockTimeoutException | PessimisticLockException | PessimisticLockingFailureException e) {
+            timeouts.increment();
+            logger.warn("Timed out locking {} wallets after {} ms", ids.size(), lockTimeoutMs);
+            throw new CannotAcquireLockException("Wallet is busy, please try again", e);
+        } finally {
+            record(ids.size(), System.nanoTime() - start);
+        }
+    }
+
+    private void record(int rows, long waitNanos) {
+        acquisitions.increment();
+        rowsLocked.add(rows);
+        totalWaitNanos.add(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+        if (waitNanos >= slowLockThresholdMs * 1_000_000L) {
+            contended.increment();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        long count = acquisitions.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("acquisitions", count);
+        stats.put("rowsLocked", rowsLocked.sum());
+        stats.put("contended", contended.sum());
+        stats.put("timeouts", timeouts.sum());
+        stats.put("avgWaitMs", count == 0 ? 0.0 : totalWaitNanos.sum() / 1_000_000.0 / count);
+        stats.put("maxWaitMs", maxWaitNanos.get() / 1_000_000.0);
+        stats.put("lockTimeoutMs", lockTimeoutMs);
+        return stats;
+    }
+}
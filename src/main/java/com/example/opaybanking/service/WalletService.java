@@ -2,19 +2,26 @@ package com.example.opaybanking.service;
 
 import com.example.opaybanking.dto.*;
 import com.example.opaybanking.enums.Currency;
+import com.example.opaybanking.enums.OutboxEventType;
 import com.example.opaybanking.enums.Role;
 import com.example.opaybanking.model.*;
 import com.example.opaybanking.repo.BankRepo;
 import com.example.opaybanking.repo.WalletRepo;
+import com.example.opaybanking.util.PinStepUpTokens;
+import com.example.opaybanking.util.ReferenceGenerator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.security.SecureRandom;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 
 @Service
@@ -24,17 +31,42 @@ public class WalletService {
     private final BankRepo bankRepo;
     private final PasswordEncoder passwordEncoder;
     private final userService userService;
+    private final WalletLockManager walletLockManager;
+    private final LedgerService ledgerService;
+    private final ReferenceGenerator referenceGenerator;
+    private final OutboxService outboxService;
+    private final HashVerificationService hashVerifier;
+    private final PinStepUpTokens pinStepUpTokens;
+    private final AccountNumberPool accountNumberPool;
+    private final WalletBalanceCache balanceCache;
+    private final int pinMaxAttempts;
+    private final Duration pinLockout;
 
     private static final Logger logger = LoggerFactory.getLogger(WalletService.class);
-    private final SecureRandom random = new SecureRandom();
     private static final String MILES_BANK_CODE = "190909";
 
     public WalletService(WalletRepo walletRepo, BankRepo bankRepo, PasswordEncoder passwordEncoder,
-                         userService userService) {
+                         userService userService, WalletLockManager walletLockManager,
+                         LedgerService ledgerService, ReferenceGenerator referenceGenerator,
+                         OutboxService outboxService, HashVerificationService hashVerifier,
+                         PinStepUpTokens pinStepUpTokens, AccountNumberPool accountNumberPool,
+                         WalletBalanceCache balanceCache,
+                         @Value("${pin.max-attempts:5}") int pinMaxAttempts,
+                         @Value("${pin.lockout-minutes:30}") long pinLockoutMinutes) {
         this.walletRepo = walletRepo;
         this.bankRepo = bankRepo;
         this.passwordEncoder = passwordEncoder;
         this.userService = userService;
+        this.walletLockManager = walletLockManager;
+        this.ledgerService = ledgerService;
+        this.referenceGenerator = referenceGenerator;
+        this.outboxService = outboxService;
+        this.hashVerifier = hashVerifier;
+        this.pinStepUpTokens = pinStepUpTokens;
+        this.accountNumberPool = accountNumberPool;
+        this.balanceCache = balanceCache;
+        this.pinMaxAttempts = pinMaxAttempts;
+        this.pinLockout = Duration.ofMinutes(pinLockoutMinutes);
     }
 
 
@@ -50,15 +82,17 @@ public class WalletService {
 
         Wallet wallet = new Wallet();
         wallet.setUser(user);
-        wallet.setAccountNumber(generateUniqueAccountNumber());
+        wallet.setAccountNumber(accountNumberPool.next());
         wallet.setAccountName(user.getFirstName() + " " + user.getLastName());
         wallet.setPin(passwordEncoder.encode(pin));
         wallet.setBank(bank);
-        wallet.setBalance(0.0);
+        wallet.setBalanceMinor(0L);
         wallet.setCurrency(currency);
         wallet.setCreatedAt(LocalDateTime.now());
 
-        return walletRepo.save(wallet);
+        Wallet saved = walletRepo.save(wallet);
+        balanceCache.evictUser(user.getUserId());
+        return saved;
     }
 
     public Wallet createNairaWallet(String pin, String token) {
@@ -69,20 +103,28 @@ public class WalletService {
         return createWallet(pin, Currency.USD, token);
     }
 
-    private String generateUniqueAccountNumber() {
-        String acc;
-        do {
-            acc = String.format("%010d", random.nextInt(1_000_000_000));
-        } while (walletRepo.existsByAccountNumber(acc));
-        return acc;
-    }
-
     private void validatePin(String pin) {
         if (pin == null || pin.isBlank() || pin.length() != 4 || !pin.matches("\\d{4}")) {
             throw new RuntimeException("PIN must be exactly 4 digits");
         }
     }
 
+    /** The caller's balances, oldest wallet first per currency; one projection query on a cache miss. */
+    public List<WalletBalance> getBalances(String token) {
+        Integer userId = userService.getAuthenticatedUser(token).getUserId();
+        List<WalletBalance> balances = balanceCache.get(userId);
+        if (balances != null) return balances;
+
+        long loadSequence = balanceCache.beginLoad();
+        balances = walletRepo.findBalancesByUserId(userId);
+        balanceCache.put(userId, balances, loadSequence);
+        return balances;
+    }
+
+    public Optional<WalletBalance> getBalance(String token, Currency currency) {
+        return getBalances(token).stream().filter(b -> b.currency() == currency).findFirst();
+    }
+
     public List<WalletResponse> getUserWallets(String token) {
         User user = userService.getAuthenticatedUser(token);
         return walletRepo.findByUser(user).stream()
@@ -113,12 +155,13 @@ public class WalletService {
         if (req.oldPin().equals(req.newPin())) throw new RuntimeException("New PIN cannot be same as old");
 
         Wallet wallet = getWalletByCurrency(token, currency);
-        if (!passwordEncoder.matches(req.oldPin(), wallet.getPin())) {
+        if (!checkPin(wallet, req.oldPin())) {
             throw new RuntimeException("Incorrect current PIN");
         }
 
-        wallet.setPin(passwordEncoder.encode(req.newPin()));
-        walletRepo.save(wallet);
+        // Not wallet.setPin + save: the wallet was read before two BCrypt calls, and a full-row UPDATE
+        // would write its stale balance_minor and event_seq over any transfer committed since
+        walletRepo.updatePin(wallet.getWalletId(), passwordEncoder.encode(req.newPin()));
         return WalletResponse.from(wallet);
     }
 
@@ -129,7 +172,60 @@ public class WalletService {
     public boolean verifyPin(Long walletId, String pin, String token) {
         Wallet wallet = walletRepo.findById(walletId.intValue())
                 .orElseThrow(() -> new RuntimeException("Wallet not found"));
-        return passwordEncoder.matches(pin, wallet.getPin());
+        return verifyPin(wallet, pin);
+    }
+
+    /**
+     * Checks the PIN against an already loaded wallet, without reading it again. pin may
+     * also be a step-up token from {@link #issuePinStepUpToken}, which skips the hash.
+     */
+    public boolean verifyPin(Wallet wallet, String pin) {
+        if (pin == null) return false;
+        if (pinStepUpTokens.isValid(pin, wallet.getWalletId(), wallet.getPin())) {
+            assertPinNotLocked(wallet);
+            return true;
+        }
+        return checkPin(wallet, pin);
+    }
+
+    /** Verifies the wallet PIN once and returns a token that stands in for it for a few minutes. */
+    public Map<String, Object> issuePinStepUpToken(String token, String currencyStr, String pin) {
+        Currency currency;
+        try {
+            currency = Currency.valueOf(currencyStr.toUpperCase());
+        } catch (Exception e) {
+            throw new RuntimeException("Invalid currency. Use NGN or USD");
+        }
+        Wallet wallet = getWalletByCurrency(token, currency);
+        if (!checkPin(wallet, pin)) {
+            throw new RuntimeException("Invalid PIN");
+        }
+        return Map.of(
+                "pinToken", pinStepUpTokens.issue(wallet.getWalletId(), wallet.getPin()),
+                "expiresInSeconds", pinStepUpTokens.getTtlSeconds()
+        );
+    }
+
+    // The BCrypt check itself, counted towards the wallet's lockout
+    private boolean checkPin(Wallet wallet, String pin) {
+        if (pin == null) return false;
+        assertPinNotLocked(wallet);
+        if (hashVerifier.matchesPin(pin, wallet.getPin())) {
+            if (wallet.getPinFailedAttempts() > 0) {
+                walletRepo.resetPinFailures(wallet.getWalletId());
+            }
+            return true;
+        }
+        walletRepo.recordPinFailure(wallet.getWalletId(), pinMaxAttempts, LocalDateTime.now().plus(pinLockout));
+        return false;
+    }
+
+    private void assertPinNotLocked(Wallet wallet) {
+        LocalDateTime lockedUntil = wallet.getPinLockedUntil();
+        if (lockedUntil != null && lockedUntil.isAfter(LocalDateTime.now())) {
+            long minutes = Math.max(1, Duration.between(LocalDateTime.now(), lockedUntil).toMinutes() + 1);
+            throw new RuntimeException("PIN locked after too many wrong attempts. Try again in " + minutes + " minutes");
+        }
     }
 
     public Wallet getWalletById(Long id, String token) {
@@ -148,34 +244,19 @@ public class WalletService {
                 .orElseThrow(() -> new RuntimeException("No " + currency + " wallet found"));
     }
 
-    public void saveWallet(Wallet wallet) {
-        walletRepo.save(wallet);
-    }
-
     public NameEnquiryResponse verifyMilesBankAccount(String accountNumber) {
-        Wallet wallet = walletRepo.findByAccountNumber(accountNumber)
+        Wallet wallet = walletRepo.findWithOwnerByAccountNumber(accountNumber)
                 .orElseThrow(() -> new RuntimeException("Account not found in Miles Bank"));
-
-        String fullName = wallet.getUser().getFirstName() + " " + wallet.getUser().getLastName();
-        return NameEnquiryResponse.success(fullName.trim(), accountNumber, "190909");
+        return NameEnquiryResponse.success(ownerName(wallet), accountNumber, "190909");
     }
 
-    public List<WalletResponse> getAllWalletsAdmin(String token) {
-        System.out.println("=== ADMIN: GET ALL WALLETS REQUEST ===");
-        User user = userService.getAuthenticatedUser(token);
-
-        if (user.getRole() != Role.ADMIN) {
-            System.out.println("=== ACCESS DENIED: NOT ADMIN ===");
-            System.out.println("User email: " + user.getEmail() + ", Role: " + user.getRole());
-            throw new RuntimeException("Admin access required. Your role: " + user.getRole());
-        }
-
-        List<WalletResponse> wallets = walletRepo.findAll().stream()
-                .map(WalletResponse::from)
-                .toList();
+    static String ownerName(Wallet wallet) {
+        return (wallet.getUser().getFirstName() + " " + wallet.getUser().getLastName()).trim();
+    }
 
-        System.out.println("Returning " + wallets.size() + " wallets to admin");
-        return wallets;
+    /** One keyset page of wallets after afterId (null = from the first), for the admin listing. */
+    public List<WalletResponse> adminWalletPage(Long afterId, int size) {
+        return walletRepo.findAdminPage(afterId != null ? afterId : 0L, PageRequest.of(0, size));
     }
 
 
@@ -194,13 +275,38 @@ public class WalletService {
         Wallet wallet = walletRepo.findById(walletId)
                 .orElseThrow(() -> new RuntimeException("Wallet not found with ID: " + walletId));
 
-        wallet.setBalance(balance);
-        Wallet saved = walletRepo.save(wallet);
+        long target = Money.ofMajor(balance);
+        if (target < 0) throw new RuntimeException("Balance cannot be negative");
+
+        walletLockManager.lock(wallet);
+        long delta = target - wallet.getBalanceMinor();
+        if (delta != 0) {
+            String ref = referenceGenerator.next("ADJ");
+            String description = "Admin adjustment by " + user.getEmail();
+            ledgerService.post(ref, description, delta > 0
+                    ? List.of(LedgerService.Posting.debit(LedgerService.GL_ADJUSTMENTS, wallet.getCurrency(), delta),
+                              LedgerService.Posting.credit(wallet, delta))
+                    : List.of(LedgerService.Posting.debit(wallet, -delta),
+                              LedgerService.Posting.credit(LedgerService.GL_ADJUSTMENTS, wallet.getCurrency(), -delta)));
+            outboxService.recordWalletEvent(OutboxEventType.BALANCE_ADJUSTED, wallet, ref, Math.abs(delta),
+                    Map.of("direction", delta > 0 ? "CREDIT" : "DEBIT", "adjustedBy", user.getEmail()));
+        }
 
         logger.info("Admin {} updated wallet {} balance to {}", user.getEmail(), walletId, balance);
         System.out.println("Balance updated successfully by admin: " + user.getEmail());
 
-        return WalletResponse.from(saved);
+        return WalletResponse.from(wallet);
+    }
+
+    public Map<String, Object> adminReconcileWallet(Integer walletId, String token) {
+        User user = userService.getAuthenticatedUser(token);
+        if (user.getRole() != Role.ADMIN) {
+            throw new RuntimeException("Admin access required. Your role: " + user.getRole());
+        }
+
+        Wallet wallet = walletRepo.findById(walletId)
+                .orElseThrow(() -> new RuntimeException("Wallet not found with ID: " + walletId));
+        return ledgerService.reconcile(wallet);
     }
 
     @Transactional
@@ -220,6 +326,7 @@ public class WalletService {
         }
 
         walletRepo.deleteById(walletId);
+        balanceCache.evictWallet(walletId.longValue());
         logger.info("Admin {} deleted wallet ID: {}", user.getEmail(), walletId);
         System.out.println("Wallet deleted successfully by admin: " + user.getEmail());
     }
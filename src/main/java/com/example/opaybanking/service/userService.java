@@ -3,17 +3,16 @@ package com.example.opaybanking.service;
 import com.example.opaybanking.dto.LoginOtpRequest;
 import com.example.opaybanking.dto.LoginResponse;
 import com.example.opaybanking.dto.RegistrationResponse;
+import com.example.opaybanking.dto.UserResponse;
 import com.example.opaybanking.enums.Role;
 import com.example.opaybanking.model.*;
 import com.example.opaybanking.repo.userRepo;
+import com.example.opaybanking.util.AuthenticatedPrincipal;
 import com.example.opaybanking.util.JwtUtil;
 import com.example.opaybanking.util.TokenBlacklist;
 import jakarta.mail.MessagingException;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
@@ -29,22 +28,25 @@ public class userService {
     private final PasswordEncoder passwordEncoder;
     private final EmailService emailService;
     private final OtpService otpService;
-    private final AuthenticationManager authenticationManager;
+    private final HashVerificationService hashVerifier;
     private final JwtUtil jwtUtil;
     private final TokenBlacklist tokenBlacklist;
+    private final AuthenticatedUserCache userCache;
 
     @Autowired
     public userService(userRepo userRepo, PasswordEncoder passwordEncoder,
                        EmailService emailService, OtpService otpService,
-                       AuthenticationManager authenticationManager,
-                       JwtUtil jwtUtil, TokenBlacklist tokenBlacklist) {
+                       HashVerificationService hashVerifier,
+                       JwtUtil jwtUtil, TokenBlacklist tokenBlacklist,
+                       AuthenticatedUserCache userCache) {
         this.userRepo = userRepo;
         this.passwordEncoder = passwordEncoder;
         this.emailService = emailService;
         this.otpService = otpService;
-        this.authenticationManager = authenticationManager;
+        this.hashVerifier = hashVerifier;
         this.jwtUtil = jwtUtil;
         this.tokenBlacklist = tokenBlacklist;
+        this.userCache = userCache;
     }
 
     public RegistrationResponse createUser(User user) {
@@ -102,7 +104,6 @@ public class userService {
     public LoginResponse loginWithOtp(LoginOtpRequest req) {
         System.out.println("=== LOGIN ATTEMPT STARTED ===");
         System.out.println("Email: " + req.email());
-        System.out.println("OTP Provided: " + req.otp());
         System.out.println("Password Provided: " + (req.password() != null ? "***" : "null"));
 
         try {
@@ -125,22 +126,24 @@ public class userService {
             if (user.getAccountStatus() == AccountStatus.PENDING) {
                 user.setAccountStatus(AccountStatus.VERIFIED);
                 user = userRepo.save(user);
+                userCache.invalidate(user.getUserId());
                 System.out.println("Account status upgraded to VERIFIED");
             }
 
-            try {
-                System.out.println("Authenticating password...");
-                Authentication auth = authenticationManager.authenticate(
-                        new UsernamePasswordAuthenticationToken(req.email(), req.password())
-                );
-                SecurityContextHolder.getContext().setAuthentication(auth);
-                System.out.println("Password authentication successful");
-            } catch (Exception e) {
+            // Same account checks the DaoAuthenticationProvider applied, with the BCrypt
+            // check on the password pool instead of this request thread
+            System.out.println("Authenticating password...");
+            userPrincipal principal = new userPrincipal(user);
+            if (!principal.isEnabled() || !principal.isAccountNonLocked()
+                    || !principal.isAccountNonExpired() || !principal.isCredentialsNonExpired()) {
+                System.out.println("=== LOGIN FAILED: ACCOUNT NOT ACTIVE ===");
+                throw new RuntimeException("Invalid email or password: Account is not active");
+            }
+            if (!hashVerifier.matchesPassword(req.password(), user.getPassword())) {
                 System.out.println("=== LOGIN FAILED: PASSWORD AUTHENTICATION FAILED ===");
-                System.out.println("Authentication error: " + e.getMessage());
-                System.out.println("Error type: " + e.getClass().getSimpleName());
-                throw new RuntimeException("Invalid email or password: " + e.getMessage());
+                throw new RuntimeException("Invalid email or password: Bad credentials");
             }
+            System.out.println("Password authentication successful");
 
             String token = jwtUtil.generateToken(
                     String.valueOf(user.getUserId()),
@@ -174,7 +177,7 @@ public class userService {
             }
 
             String otp = otpService.generateOtp(email);
-            System.out.println("New OTP generated: " + otp);
+            System.out.println("New OTP generated");
 
             try {
                 emailService.sendOtpEmail(email, otp);
@@ -202,8 +205,8 @@ public class userService {
     public void logout(String token) {
         System.out.println("=== LOGOUT REQUEST ===");
         try {
-            String jti = jwtUtil.getJti(token);
-            tokenBlacklist.blacklistToken(jti);
+            AuthenticatedPrincipal principal = jwtUtil.principalOf(token);
+            tokenBlacklist.blacklistToken(principal.jti(), principal.expiresAt());
             System.out.println("Token blacklisted successfully");
         } catch (Exception e) {
             System.out.println("=== LOGOUT FAILED ===");
@@ -211,49 +214,69 @@ public class userService {
         }
     }
 
+    /**
+     * The caller behind a token. Served from {@link AuthenticatedUserCache} when possible,
+     * otherwise loaded by the userId claim (primary key) and cached. Treat the result as
+     * read-only; to change the user, load it by id.
+     */
     public User getAuthenticatedUser(String token) {
         try {
-            String jti = jwtUtil.getJti(token);
-            if (tokenBlacklist.isBlacklisted(jti)) {
+            AuthenticatedPrincipal principal = jwtUtil.principalOf(token);
+            if (tokenBlacklist.isBlacklisted(principal.jti())) {
                 throw new RuntimeException("Token has been logged out");
             }
-            String email = jwtUtil.getEmail(token);
-            User user = userRepo.findByEmailIgnoreCase(email);
+            Integer userId = principal.userId() != null ? Integer.valueOf(principal.userId()) : null;
+            User user = userId != null ? userCache.get(userId) : null;
+            if (user != null) return user;
+
+            user = userId != null
+                    ? userRepo.findById(userId).orElse(null)
+                    : userRepo.findByEmailIgnoreCase(principal.email());
             if (user == null) {
                 throw new RuntimeException("User not found");
             }
+            userCache.put(user);
             return user;
         } catch (Exception e) {
             throw new RuntimeException("Invalid or expired token: " + e.getMessage());
         }
     }
 
-    public List<User> getAllUsers(String token) {
-        System.out.println("=== GET ALL USERS REQUEST ===");
-        User user = getAuthenticatedUser(token);
+    public User updateProfilePicture(String token, String imageUrl) {
+        User user = userRepo.findById(getAuthenticatedUser(token).getUserId())
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        user.setProfilePictureUrl(imageUrl);
+        User saved = userRepo.save(user);
+        userCache.invalidate(saved.getUserId());
+        return saved;
+    }
 
+    /** The caller, if an admin; otherwise "Admin access required". */
+    public User requireAdmin(String token) {
+        User user = getAuthenticatedUser(token);
         if (user.getRole() != Role.ADMIN) {
             System.out.println("=== ACCESS DENIED: USER IS NOT ADMIN ===");
-            System.out.println("User role: " + user.getRole() + ", Required: ADMIN");
             throw new RuntimeException("Admin access required. Your role: " + user.getRole());
         }
+        return user;
+    }
 
-        List<User> users = userRepo.findAll();
-        System.out.println("Returning " + users.size() + " users");
-        return users;
+    /** One keyset page of users after afterId (null = from the first), for the admin listing. */
+    public List<UserResponse> adminUserPage(Integer afterId, int size) {
+        return userRepo.findAdminPage(afterId != null ? afterId : 0, PageRequest.of(0, size));
     }
 
-    public User getUserById(int id, String token) {
+    public UserResponse getUserById(int id, String token) {
         System.out.println("=== GET USER BY ID REQUEST ===");
         System.out.println("User ID: " + id);
         getAuthenticatedUser(token);
-        User user = userRepo.findById(id)
+        UserResponse user = userRepo.findResponseById(id)
                 .orElseThrow(() -> new RuntimeException("User not found with ID: " + id));
-        System.out.println("User found: " + user.getEmail());
+        System.out.println("User found: " + user.email());
         return user;
     }
 
-    public User updateUser(int id, User user, String token) {
+    public UserResponse updateUser(int id, User user, String token) {
         System.out.println("=== UPDATE USER REQUEST ===");
         System.out.println("User ID: " + id);
 
@@ -275,6 +298,7 @@ public class userService {
         if (user.getAddress() != null) existing.setAddress(user.getAddress());
 
         User updated = userRepo.save(existing);
+        userCache.invalidate(updated.getUserId());
 
         try {
             emailService.sendUpdateNotification(updated.getEmail(), updated.getFirstName());
@@ -284,7 +308,7 @@ public class userService {
         }
 
         System.out.println("=== USER UPDATED SUCCESSFULLY ===");
-        return updated;
+        return UserResponse.from(updated);
     }
 
 
@@ -301,6 +325,7 @@ public class userService {
                 .orElseThrow(() -> new RuntimeException("User not found with ID: " + id));
 
         userRepo.delete(user);
+        userCache.invalidate(user.getUserId());
         System.out.println("=== USER DELETED SUCCESSFULLY ===");
     }
 
@@ -0,0 +1,18 @@
+package com.example.opaybanking.util;
+
+import java.security.Principal;
+import java.time.Instant;
+
+/**
+ * Verified claims of a bearer token. {@link JwtAuthenticationFilter} stores it as the
+ * principal of the request's Authentication, so code further down reads the caller's
+ * identity from here instead of parsing the token again.
+ */
+public record AuthenticatedPrincipal(String userId, String email, String role, String jti, Instant expiresAt)
+        implements Principal {
+
+    @Override
+    public String getName() {
+        return email;
+    }
+}
@@ -1,18 +1,19 @@
 package com.example.opaybanking.util;
 
-import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 import java.util.Collections;
+import java.util.List;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
@@ -34,13 +35,15 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         if (header != null && header.startsWith("Bearer ")) {
             String token = header.substring(7);
             try {
-                String jti = jwtUtil.getJti(token);
-                if (blacklist.isBlacklisted(jti)) {
+                // One verification per request; later lookups read the principal set here
+                AuthenticatedPrincipal principal = jwtUtil.verify(token);
+                if (blacklist.isBlacklisted(principal.jti())) {
                     throw new RuntimeException("Token blacklisted");
                 }
-                Claims claims = jwtUtil.validateToken(token);
                 UsernamePasswordAuthenticationToken auth = new UsernamePasswordAuthenticationToken(
-                        claims.getSubject(), null, Collections.emptyList());
+                        principal, token, principal.role() != null
+                                ? List.of(new SimpleGrantedAuthority("ROLE_" + principal.role()))
+                                : Collections.emptyList());
                 SecurityContextHolder.getContext().setAuthentication(auth);
             } catch (Exception e) {
                 response.setStatus(401);
@@ -2,27 +2,52 @@ package com.example.opaybanking.util;
 
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
 import java.util.Date;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.UUID;
 
+/**
+ * Issues and verifies JWTs. The signing key and parser are built once. Verified tokens
+ * are remembered, keyed by a SHA-256 of the token, in a bounded LRU whose entries die
+ * with the token, so a client sending the same token on every request pays for the
+ * HMAC check and JSON parse once rather than on each request.
+ */
 @Component
 public class JwtUtil {
 
-    @Value("${JWT_SECRET}")
-    private String JWT_SECRET;
-
     private static final long EXPIRATION_TIME = 24 * 60 * 60 * 1000; // 24 hours
 
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(JWT_SECRET.getBytes());
+    private final SecretKey signingKey;
+    private final JwtParser parser;
+    private final Map<String, AuthenticatedPrincipal> verified;
+
+    public JwtUtil(@Value("${JWT_SECRET}") String jwtSecret,
+                   @Value("${jwt.claims-cache.max-entries:10000}") int maxCachedTokens) {
+        this.signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        this.parser = Jwts.parser().verifyWith(signingKey).build();
+        this.verified = new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, AuthenticatedPrincipal> eldest) {
+                return size() > maxCachedTokens;
+            }
+        };
     }
 
     // Generate token with user details
@@ -37,37 +62,89 @@ public class JwtUtil {
                 .setSubject(email)
                 .setIssuedAt(new Date())
                 .setExpiration(new Date(System.currentTimeMillis() + EXPIRATION_TIME))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
-    // Validate token
+    // Validate token (always a full signature check; prefer verify)
     public Claims validateToken(String token) {
         try {
-            return Jwts.parser()
-                    .verifyWith(getSigningKey())
-                    .build()
-                    .parseSignedClaims(token)
-                    .getPayload();
+            return parser.parseSignedClaims(token).getPayload();
         } catch (JwtException e) {
             throw new RuntimeException("Token expired or invalid");
         }
     }
 
+    /** Verified claims of the token, from the LRU when this token was verified before and has not expired. */
+    public AuthenticatedPrincipal verify(String token) {
+        String key = hash(token);
+        long now = System.currentTimeMillis();
+        AuthenticatedPrincipal principal;
+        synchronized (verified) {
+            principal = verified.get(key);
+            if (principal != null && principal.expiresAt().toEpochMilli() <= now) {
+                verified.remove(key);
+                principal = null;
+            }
+        }
+        if (principal != null) return principal;
+
+        Claims claims = validateToken(token);
+        principal = new AuthenticatedPrincipal(
+                claims.get("userId", String.class),
+                claims.getSubject(),
+                claims.get("role", String.class),
+                claims.get("jti", String.class),
+                claims.getExpiration() != null ? claims.getExpiration().toInstant() : Instant.ofEpochMilli(now + EXPIRATION_TIME));
+        synchronized (verified) {
+            verified.put(key, principal);
+        }
+        return principal;
+    }
+
+    /**
+     * The principal the authentication filter already put in the SecurityContext for this
+     * token, falling back to {@link #verify} outside a filtered request.
+     */
+    public AuthenticatedPrincipal principalOf(String token) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth != null && auth.getPrincipal() instanceof AuthenticatedPrincipal principal
+                && token.equals(auth.getCredentials())) {
+            return principal;
+        }
+        return verify(token);
+    }
 
     public String getUserId(String token) {
-        return validateToken(token).get("userId", String.class);
+        return principalOf(token).userId();
     }
 
     public String getEmail(String token) {
-        return validateToken(token).getSubject();
+        return principalOf(token).email();
     }
 
     public String getRole(String token) {
-        return validateToken(token).get("role", String.class);
+        return principalOf(token).role();
     }
 
     public String getJti(String token) {
-        return validateToken(token).get("jti", String.class);
+        return principalOf(token).jti();
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.claims-cache.sweep-interval-ms:300000}")
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        synchronized (verified) {
+            verified.values().removeIf(principal -> principal.expiresAt().toEpochMilli() <= now);
+        }
+    }
+
+    private static String hash(String token) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,64 @@
+package com.example.opaybanking.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Writes up to limit rows of a keyset-paginated listing as
+ * {"items": [...], "count": n, "nextCursor": "..."}, fetching chunkSize rows at a time
+ * and serializing each row as soon as it is read, so memory stays flat however large
+ * limit is. nextCursor is the key of the last row written when the listing may
+ * continue, otherwise null; pass it back as the "after" parameter for the next page.
+ */
+public final class KeysetJsonStream {
+
+    public static final int MAX_LIMIT = 1000;
+    private static final int CHUNK_SIZE = 200;
+
+    private KeysetJsonStream() {
+    }
+
+    public static int clampLimit(int limit) {
+        return Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+
+    /**
+     * @param fetch returns up to size rows with keys greater than the given key (null = from the start), in key order
+     * @param keyOf the row's key
+     */
+    public static <T, K> StreamingResponseBody of(ObjectMapper objectMapper, K after, int limit,
+                                                  BiFunction<K, Integer, List<T>> fetch, Function<T, K> keyOf) {
+        int max = clampLimit(limit);
+        return out -> {
+            try (JsonGenerator json = objectMapper.createGenerator(out)) {
+                json.writeStartObject();
+                json.writeArrayFieldStart("items");
+
+                K cursor = after;
+                int written = 0;
+                boolean more = true;
+                while (more && written < max) {
+                    int size = Math.min(CHUNK_SIZE, max - written);
+                    List<T> chunk = fetch.apply(cursor, size);
+                    for (T row : chunk) {
+                        json.writeObject(row);
+                        cursor = keyOf.apply(row);
+                    }
+                    written += chunk.size();
+                    more = chunk.size() == size;
+                    json.flush();
+                }
+
+                json.writeEndArray();
+                json.writeNumberField("count", written);
+                json.writeStringField("nextCursor", more && cursor != null ? String.valueOf(cursor) : null);
+                json.writeEndObject();
+            }
+        };
+    }
+}
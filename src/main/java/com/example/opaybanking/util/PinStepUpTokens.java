@@ -0,0 +1,80 @@
+package com.example.opaybanking.util;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Date;
+import java.util.HexFormat;
+
+/**
+ * Short-lived "PIN verified" tokens. After one BCrypt PIN check a client can send the
+ * token in place of the PIN for pin.step-up.ttl-seconds, so multi-step flows do not hash
+ * the PIN on every call.
+ *
+ * Tokens are signed with a key derived from, but distinct from, the login JWT key, so
+ * neither kind of token is accepted as the other. Each token names one wallet and
+ * carries a fingerprint of that wallet's PIN hash, so changing the PIN voids it.
+ */
+@Component
+public class PinStepUpTokens {
+
+    private final SecretKey signingKey;
+    private final JwtParser parser;
+    private final long ttlSeconds;
+
+    public PinStepUpTokens(@Value("${JWT_SECRET}") String jwtSecret,
+                           @Value("${pin.step-up.ttl-seconds:300}") long ttlSeconds) {
+        this.signingKey = Keys.hmacShaKeyFor(sha256(jwtSecret + ":pin-step-up"));
+        this.parser = Jwts.parser().verifyWith(signingKey).build();
+        this.ttlSeconds = ttlSeconds;
+    }
+
+    public String issue(Long walletId, String pinHash) {
+        long now = System.currentTimeMillis();
+        return Jwts.builder()
+                .subject(String.valueOf(walletId))
+                .claim("pin", fingerprint(pinHash))
+                .issuedAt(new Date(now))
+                .expiration(new Date(now + ttlSeconds * 1000))
+                .signWith(signingKey)
+                .compact();
+    }
+
+    /** True if value is an unexpired step-up token for this wallet and its current PIN. */
+    public boolean isValid(String value, Long walletId, String pinHash) {
+        // A 4-digit PIN is never a token; skip the parse
+        if (value == null || value.indexOf('.') < 0) return false;
+        try {
+            Claims claims = parser.parseSignedClaims(value).getPayload();
+            return String.valueOf(walletId).equals(claims.getSubject())
+                    && fingerprint(pinHash).equals(claims.get("pin", String.class));
+        } catch (JwtException | IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    public long getTtlSeconds() {
+        return ttlSeconds;
+    }
+
+    private static String fingerprint(String pinHash) {
+        return HexFormat.of().formatHex(sha256(pinHash), 0, 8);
+    }
+
+    private static byte[] sha256(String value) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.opaybanking.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Issues transaction references such as "TXN06F3KZQ8M0A4R": a prefix followed by a
+ * 64-bit id in fixed-width Crockford base32, so references sort by creation time and
+ * land at the right-hand edge of the unique index instead of all over it.
+ *
+ * Id layout (Snowflake style): 41 bits of milliseconds since 2024-01-01, 10 bits of
+ * node id (reference.node-id, 0-1023, unique per running instance) and a 12-bit
+ * per-millisecond sequence. State is one AtomicLong updated by CAS, so callers never
+ * block. If the clock steps back or a millisecond's 4096 ids run out, the generator
+ * keeps counting from its last timestamp rather than waiting; ids stay unique and
+ * increasing and catch up with the wall clock once it passes them.
+ */
+@Component
+public class ReferenceGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReferenceGenerator.class);
+
+    static final long EPOCH_MILLIS = 1704067200000L; // 2024-01-01T00:00:00Z
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    static final int ENCODED_LENGTH = 13; // 13 * 5 bits covers a positive long
+
+    private final long nodeId;
+    // (milliseconds since EPOCH_MILLIS << SEQUENCE_BITS) | sequence of the last id issued
+    private final AtomicLong last = new AtomicLong();
+
+    public ReferenceGenerator(@Value("${reference.node-id:}") String configuredNodeId) {
+        this.nodeId = resolveNodeId(configuredNodeId);
+    }
+
+    /** A new reference: the prefix followed by 13 base32 characters. */
+    public String next(String prefix) {
+        return prefix + encode(nextId());
+    }
+
+    public long nextId() {
+        long now = (System.currentTimeMillis() - EPOCH_MILLIS) << SEQUENCE_BITS;
+        long prev;
+        long next;
+        do {
+            prev = last.get();
+            next = now > prev ? now : prev + 1; // the sequence overflowing simply carries into the next millisecond
+        } while (!last.compareAndSet(prev, next));
+
+        long millis = next >>> SEQUENCE_BITS;
+        long sequence = next & SEQUENCE_MASK;
+        return (millis << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | sequence;
+    }
+
+    /** When the id inside a reference from {@link #next(String)} was issued. */
+    public static Instant timestampOf(String reference) {
+        String encoded = reference.substring(reference.length() - ENCODED_LENGTH);
+        long id = 0;
+        for (char c : encoded.toCharArray()) {
+            int value = indexOf(Character.toUpperCase(c));
+            if (value < 0) throw new IllegalArgumentException("Not a generated reference: " + reference);
+            id = (id << 5) | value;
+        }
+        return Instant.ofEpochMilli((id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH_MILLIS);
+    }
+
+    static String encode(long id) {
+        char[] out = new char[ENCODED_LENGTH];
+        for (int i = ENCODED_LENGTH - 1; i >= 0; i--) {
+            out[i] = ALPHABET[(int) (id & 31)];
+            id >>>= 5;
+        }
+        return new String(out);
+    }
+
+    private static int indexOf(char c) {
+        for (int i = 0; i < ALPHABET.length; i++) {
+            if (ALPHABET[i] == c) return i;
+        }
+        return -1;
+    }
+
+    private static long resolveNodeId(String configured) {
+        if (configured != null && !configured.isBlank()) {
+            long id = Long.parseLong(configured.trim());
+            if (id < 0 || id > MAX_NODE_ID) {
+                throw new IllegalArgumentException("reference.node-id must be between 0 and " + MAX_NODE_ID);
+            }
+            return id;
+        }
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = String.valueOf(ProcessHandle.current().pid());
+        }
+        long derived = (host.hashCode() & 0x7fffffffL) % (MAX_NODE_ID + 1);
+        logger.warn("reference.node-id is not set; using {} derived from host '{}'. Set it explicitly when running more than one instance.",
+                derived, host);
+        return derived;
+    }
+}
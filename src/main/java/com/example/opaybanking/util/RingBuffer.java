@@ -0,0 +1,84 @@
+package com.example.opaybanking.util;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded, lock-free, multi-producer / single-consumer ring buffer.
+ *
+ * Each slot carries a sequence number: a producer claims position p by CAS on the
+ * head counter once slot p has sequence p (free), writes the element and publishes
+ * it by setting the sequence to p + 1. The single consumer reads slot p when its
+ * sequence is p + 1 and frees it for the next lap by setting it to p + capacity.
+ * Producers never block; {@link #offer} returns false when the buffer is full.
+ */
+public final class RingBuffer<E> {
+
+    private final Object[] elements;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private volatile long tail; // written only by the consumer
+
+    public RingBuffer(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Ring buffer capacity must be a power of two, got " + capacity);
+        }
+        this.elements = new Object[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /** Safe to call from any thread. Returns false if the buffer is full. */
+    public boolean offer(E element) {
+        if (element == null) throw new NullPointerException();
+        long position = head.get();
+        int index;
+        while (true) {
+            index = (int) (position & mask);
+            long gap = sequences.get(index) - position;
+            if (gap == 0) {
+                if (head.compareAndSet(position, position + 1)) break;
+                position = head.get();
+            } else if (gap < 0) {
+                return false; // the consumer has not freed this slot yet: full
+            } else {
+                position = head.get(); // another producer took it
+            }
+        }
+        elements[index] = element;
+        sequences.set(index, position + 1);
+        return true;
+    }
+
+    /** Consumer thread only. Moves up to max published elements into the list, in order. */
+    @SuppressWarnings("unchecked")
+    public int drainTo(List<E> target, int max) {
+        long position = tail;
+        int drained = 0;
+        while (drained < max) {
+            int index = (int) (position & mask);
+            if (sequences.get(index) != position + 1) break;
+            target.add((E) elements[index]);
+            elements[index] = null;
+            sequences.lazySet(index, position + elements.length);
+            position++;
+            drained++;
+        }
+        tail = position;
+        return drained;
+    }
+
+    /** Approximate number of elements waiting; exact only when producers are idle. */
+    public int size() {
+        return (int) Math.max(0, head.get() - tail);
+    }
+
+    public int capacity() {
+        return elements.length;
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.opaybanking.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timing wheel. A key scheduled for deadline d sits in slot (d / tick) % slots;
+ * {@link #advance} walks the slots between the last tick and now and hands every key
+ * whose deadline has passed to the callback. Keys more than one rotation away stay in
+ * their slot until a later lap, so scheduling and expiry cost O(1) per key no matter
+ * how many keys are waiting.
+ *
+ * Not meant for hot paths: methods are synchronized.
+ */
+public final class TimingWheel<K> {
+
+    private final long tickMillis;
+    private final List<Map<K, Long>> slots;
+    private long currentTick;
+    private int size;
+
+    public TimingWheel(long tickMillis, int slotCount, long nowMillis) {
+        if (tickMillis <= 0 || slotCount <= 0) {
+            throw new IllegalArgumentException("Tick and slot count must be positive");
+        }
+        this.tickMillis = tickMillis;
+        this.slots = new ArrayList<>(slotCount);
+        for (int i = 0; i < slotCount; i++) {
+            slots.add(new HashMap<>());
+        }
+        this.currentTick = nowMillis / tickMillis;
+    }
+
+    /** Schedules (or reschedules) key to expire at deadlineMillis. */
+    public synchronized void schedule(K key, long deadlineMillis) {
+        long tick = Math.max(deadlineMillis / tickMillis, currentTick);
+        if (slots.get(slotOf(tick)).put(key, deadlineMillis) == null) {
+            size++;
+        }
+    }
+
+    /** Expires every key whose deadline is at or before nowMillis. */
+    public synchronized void advance(long nowMillis, Consumer<K> onExpire) {
+        long target = nowMillis / tickMillis;
+        // A long pause needs at most one full lap; every slot gets looked at once
+        long from = Math.max(currentTick, target - slots.size() + 1);
+        for (long tick = from; tick <= target; tick++) {
+            Map<K, Long> slot = slots.get(slotOf(tick));
+            if (slot.isEmpty()) continue;
+            var it = slot.entrySet().iterator();
+            while (it.hasNext()) {
+                var entry = it.next();
+                if (entry.getValue() <= nowMillis) {
+                    it.remove();
+                    size--;
+                    onExpire.accept(entry.getKey());
+                }
+            }
+        }
+        currentTick = target;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private int slotOf(long tick) {
+        return (int) Math.floorMod(tick, (long) slots.size());
+    }
+}
@@ -1,19 +1,170 @@
 package com.example.opaybanking.util;
 
+import com.example.opaybanking.service.TokenRevocationStore;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-import java.util.Set;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Logged-out token ids, each kept only until its token expires.
+ *
+ * Every node holds the live revocations in memory and checks them without I/O: an
+ * optional Bloom filter answers "not revoked" for almost every request, and the map
+ * settles the rest. A timing wheel drops entries at their token's expiry. Logouts are
+ * written to the {@link TokenRevocationStore}; when the store is shared, each node polls
+ * it so a logout on one node takes effect on the others within
+ * auth.token-blacklist.poll-interval-ms.
+ */
 @Component
 public class TokenBlacklist {
-    private final Set<String> blacklist = ConcurrentHashMap.newKeySet();
 
-    public void blacklistToken(String jti) {
-        blacklist.add(jti);
+    private static final Logger logger = LoggerFactory.getLogger(TokenBlacklist.class);
+
+    private static final int WHEEL_SLOTS = 3600;
+    // Re-read this much history on every poll to cover in-flight commits and clock skew
+    private static final Duration POLL_OVERLAP = Duration.ofSeconds(30);
+
+    private final TokenRevocationStore store;
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+    private final TimingWheel<String> wheel;
+    private final boolean bloomEnabled;
+    private final int bloomMinKeys;
+    private final double bloomFalsePositiveRate;
+
+    private volatile BloomFilter bloom;
+    private int bloomCapacity;
+    private int expiredSinceRebuild;
+    private Instant pollCursor = Instant.EPOCH;
+
+    public TokenBlacklist(TokenRevocationStore store,
+                          @Value("${auth.token-blacklist.tick-ms:1000}") long tickMillis,
+                          @Value("${auth.token-blacklist.bloom.enabled:true}") boolean bloomEnabled,
+                          @Value("${auth.token-blacklist.bloom.expected-entries:10000}") int bloomMinKeys,
+                          @Value("${auth.token-blacklist.bloom.false-positive-rate:0.01}") double bloomFalsePositiveRate) {
+        this.store = store;
+        this.wheel = new TimingWheel<>(tickMillis, WHEEL_SLOTS, System.currentTimeMillis());
+        this.bloomEnabled = bloomEnabled;
+        this.bloomMinKeys = bloomMinKeys;
+        this.bloomFalsePositiveRate = bloomFalsePositiveRate;
+        if (bloomEnabled) {
+            rebuildBloom();
+        }
+    }
+
+    @PostConstruct
+    void loadShared() {
+        if (!store.isShared()) return;
+        try {
+            poll();
+            logger.info("Token blacklist loaded {} live revocations", revoked.size());
+        } catch (Exception e) {
+            logger.warn("Could not load token revocations at startup: {}", e.getMessage());
+        }
+    }
+
+    /** Revokes the token until expiresAt, on this node now and on the others after their next poll. */
+    public void blacklistToken(String jti, Instant expiresAt) {
+        if (jti == null || !expiresAt.isAfter(Instant.now())) return;
+        addLocal(jti, expiresAt.toEpochMilli());
+        store.revoke(jti, expiresAt);
     }
 
     public boolean isBlacklisted(String jti) {
-        return blacklist.contains(jti);
+        if (jti == null) return false;
+        BloomFilter filter = bloom;
+        if (filter != null && !filter.mightContain(jti)) return false;
+        Long expiresAt = revoked.get(jti);
+        return expiresAt != null && expiresAt > System.currentTimeMillis();
+    }
+
+    @Scheduled(fixedDelayString = "${auth.token-blacklist.tick-ms:1000}")
+    public void expire() {
+        int[] expired = {0};
+        wheel.advance(System.currentTimeMillis(), jti -> {
+            revoked.remove(jti);
+            expired[0]++;
+        });
+        if (!bloomEnabled || expired[0] == 0) return;
+        synchronized (this) {
+            expiredSinceRebuild += expired[0];
+            // Expired keys stay set in the filter; rebuild once they outnumber the live ones
+            if (expiredSinceRebuild > revoked.size()) {
+                rebuildBloom();
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${auth.token-blacklist.poll-interval-ms:2000}")
+    public void poll() {
+        if (!store.isShared()) return;
+        Instant since;
+        synchronized (this) {
+            since = pollCursor.equals(Instant.EPOCH) ? Instant.EPOCH : pollCursor.minus(POLL_OVERLAP);
+        }
+        Instant newest = since;
+        for (TokenRevocationStore.Revocation revocation : store.revokedSince(since)) {
+            addLocal(revocation.jti(), revocation.expiresAt().toEpochMilli());
+            if (revocation.revokedAt().isAfter(newest)) newest = revocation.revokedAt();
+        }
+        synchronized (this) {
+            if (newest.isAfter(pollCursor)) pollCursor = newest;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${auth.token-blacklist.purge-interval-ms:3600000}")
+    public void purgeStore() {
+        try {
+            int removed = store.purgeExpired(Instant.now());
+            if (removed > 0) {
+                logger.info("Purged {} expired token revocations", removed);
+            }
+        } catch (Exception e) {
+            logger.warn("Token revocation purge failed: {}", e.getMessage());
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("liveRevocations", revoked.size());
+        stats.put("scheduledExpiries", wheel.size());
+        stats.put("bloomEnabled", bloomEnabled);
+        stats.put("sharedStore", store.isShared());
+        synchronized (this) {
+            stats.put("bloomCapacity", bloomEnabled ? bloomCapacity : 0);
+            stats.put("pollCursor", pollCursor.toString());
+        }
+        return stats;
+    }
+
+    // Adds are rare (logouts, polls) and serialized with rebuilds so none is lost from the filter
+    private synchronized void addLocal(String jti, long expiresAtMillis) {
+        if (expiresAtMillis <= System.currentTimeMillis()) return;
+        if (revoked.putIfAbsent(jti, expiresAtMillis) != null) return;
+        wheel.schedule(jti, expiresAtMillis);
+        if (bloomEnabled) {
+            if (revoked.size() > bloomCapacity) {
+                rebuildBloom();
+            } else {
+                bloom.add(jti);
+            }
+        }
+    }
+
+    private synchronized void rebuildBloom() {
+        int capacity = Math.max(bloomMinKeys, revoked.size() * 2);
+        BloomFilter rebuilt = new BloomFilter(capacity, bloomFalsePositiveRate);
+        revoked.keySet().forEach(rebuilt::add);
+        bloomCapacity = capacity;
+        expiredSinceRebuild = 0;
+        bloom = rebuilt;
     }
-}
\ No newline at end of file
+}
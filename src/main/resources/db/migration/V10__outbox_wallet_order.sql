@@ -0,0 +1,5 @@
+-- Hibernate adds wallet.event_seq, outbox_event.wallet_seq (both default 0) and
+-- outbox_event.claimed_until. Events written before this have wallet_seq 0 and are
+-- delivered first, in event_id order, ahead of anything numbered afterwards.
+CREATE INDEX IF NOT EXISTS idx_outbox_event_wallet_pending
+    ON outbox_event (wallet_id, wallet_seq, event_id) WHERE published_at IS NULL;
@@ -0,0 +1,14 @@
+-- bill_payments.wallet_id (added by Hibernate) records the wallet a bill was paid from,
+-- so monthly spending totals put it on that wallet. Older rows take the wallet their
+-- ledger debit names and, for bills paid before the ledger, the owner's NGN wallet
+-- (bills have only ever been paid from it). The column has no foreign key: a bill stays
+-- in the history after its wallet is deleted.
+UPDATE bill_payments b
+SET wallet_id = (SELECT e.wallet_id FROM ledger_entry e
+                 WHERE e.reference = b.reference AND e.wallet_id IS NOT NULL AND e.direction = 'DEBIT'
+                 ORDER BY e.entry_id LIMIT 1)
+WHERE b.wallet_id IS NULL;
+
+UPDATE bill_payments b
+SET wallet_id = (SELECT min(w.wallet_id) FROM wallet w WHERE w.user_id = b.user_id AND w.currency = 'NGN')
+WHERE b.wallet_id IS NULL;
@@ -0,0 +1,8 @@
+-- transaction.transaction_type gains REVERSAL (ordinal 6) for refunds of rejected external
+-- payouts. Hibernate wrote a 0..5 check when it created the table and does not widen it on
+-- update, so without this every reversal insert fails and the refund rolls back. Versions
+-- are applied whenever they are missing, so a database that has not reached V7 gets the
+-- wider check too; on one that has, this recreates the same constraint.
+ALTER TABLE "transaction" DROP CONSTRAINT IF EXISTS transaction_transaction_type_check;
+ALTER TABLE "transaction" DROP CONSTRAINT IF EXISTS ck_transaction_type;
+ALTER TABLE "transaction" ADD CONSTRAINT ck_transaction_type CHECK (transaction_type BETWEEN 0 AND 6);
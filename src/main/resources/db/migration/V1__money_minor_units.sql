@@ -0,0 +1,26 @@
+-- Moves balances and amounts from double precision major units to bigint minor units (kobo / cents).
+-- Hibernate has already added the *_minor columns (default 0); this copies the legacy values across
+-- and keeps the old columns as *_legacy, nullable, for reconciliation.
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_schema = current_schema() AND table_name = 'wallet' AND column_name = 'balance') THEN
+        UPDATE wallet SET balance_minor = ROUND(balance::numeric * 100);
+        ALTER TABLE wallet RENAME COLUMN balance TO balance_legacy;
+        ALTER TABLE wallet ALTER COLUMN balance_legacy DROP NOT NULL;
+    END IF;
+
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_schema = current_schema() AND table_name = 'transaction' AND column_name = 'amount') THEN
+        UPDATE "transaction" SET amount_minor = ROUND(amount::numeric * 100);
+        ALTER TABLE "transaction" RENAME COLUMN amount TO amount_legacy;
+        ALTER TABLE "transaction" ALTER COLUMN amount_legacy DROP NOT NULL;
+    END IF;
+
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_schema = current_schema() AND table_name = 'bill_payments' AND column_name = 'amount') THEN
+        UPDATE bill_payments SET amount_minor = ROUND(amount::numeric * 100);
+        ALTER TABLE bill_payments RENAME COLUMN amount TO amount_legacy;
+        ALTER TABLE bill_payments ALTER COLUMN amount_legacy DROP NOT NULL;
+    END IF;
+END $$;
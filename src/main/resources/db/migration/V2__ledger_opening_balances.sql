@@ -0,0 +1,18 @@
+-- Seeds the ledger with one opening posting per wallet that already held money before the
+-- journal existed, so that SUM(ledger_entry) per wallet matches wallet.balance_minor.
+INSERT INTO ledger_entry (entry_id, reference, wallet_id, account, currency, direction,
+                          amount_minor, balance_after_minor, description, created_at)
+SELECT nextval('ledger_entry_seq'), 'OPEN' || w.wallet_id, w.wallet_id, w.account_number, w.currency,
+       CASE WHEN w.balance_minor > 0 THEN 'CREDIT' ELSE 'DEBIT' END,
+       ABS(w.balance_minor), w.balance_minor, 'Opening balance', now()
+FROM wallet w
+WHERE w.balance_minor <> 0
+  AND NOT EXISTS (SELECT 1 FROM ledger_entry e WHERE e.wallet_id = w.wallet_id);
+
+INSERT INTO ledger_entry (entry_id, reference, wallet_id, account, currency, direction,
+                          amount_minor, balance_after_minor, description, created_at)
+SELECT nextval('ledger_entry_seq'), e.reference, NULL, 'GL_OPENING_BALANCES', e.currency,
+       CASE WHEN e.direction = 'CREDIT' THEN 'DEBIT' ELSE 'CREDIT' END,
+       e.amount_minor, NULL, 'Opening balance', e.created_at
+FROM ledger_entry e
+WHERE e.reference LIKE 'OPEN%' AND e.wallet_id IS NOT NULL;
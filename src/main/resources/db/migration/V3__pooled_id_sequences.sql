@@ -0,0 +1,33 @@
+-- Transaction, BillPayment, Wallet and Card moved from IDENTITY columns to pooled sequences so
+-- their inserts can be JDBC-batched. Hibernate creates the sequences starting at 1; move each one
+-- past the ids the identity columns already issued, and drop the identity default so nothing
+-- can hand out ids from inside a block that a node has already reserved.
+DO $$
+DECLARE
+    t RECORD;
+    max_id BIGINT;
+    step BIGINT;
+BEGIN
+    FOR t IN SELECT * FROM (VALUES
+            ('transaction_seq', 'transaction', 'transaction_id'),
+            ('bill_payments_seq', 'bill_payments', 'bill_payment_id'),
+            ('wallet_seq', 'wallet', 'wallet_id'),
+            ('cards_seq', 'cards', 'id')) AS v(seq, tbl, col)
+    LOOP
+        IF to_regclass(quote_ident(t.tbl)) IS NULL THEN
+            CONTINUE;
+        END IF;
+
+        EXECUTE format('CREATE SEQUENCE IF NOT EXISTS %I START WITH 1 INCREMENT BY 50', t.seq);
+        EXECUTE format('SELECT COALESCE(MAX(%I), 0) FROM %I', t.col, t.tbl) INTO max_id;
+        SELECT increment_by INTO step FROM pg_sequences
+        WHERE schemaname = current_schema() AND sequencename = t.seq;
+
+        -- Hibernate's pooled optimizer treats the value it reads as the top of a block,
+        -- so the first block handed out starts at max_id + 1
+        PERFORM setval(quote_ident(t.seq), max_id + step, false);
+
+        EXECUTE format('ALTER TABLE %I ALTER COLUMN %I DROP IDENTITY IF EXISTS', t.tbl, t.col);
+        EXECUTE format('ALTER TABLE %I ALTER COLUMN %I DROP DEFAULT', t.tbl, t.col);
+    END LOOP;
+END $$;
@@ -0,0 +1,21 @@
+-- References are now time-ordered ids from ReferenceGenerator and are enforced unique.
+-- Older random references could collide; keep the first row of any clash as is and
+-- suffix the others with their row id so the unique indexes can be built.
+UPDATE "transaction" t
+SET reference = t.reference || '-' || t.transaction_id
+WHERE t.reference IS NOT NULL
+  AND EXISTS (SELECT 1 FROM "transaction" o
+              WHERE o.reference = t.reference
+                AND o.transaction_type IS NOT DISTINCT FROM t.transaction_type
+                AND o.transaction_id < t.transaction_id);
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_transaction_reference_type ON "transaction" (reference, transaction_type);
+
+UPDATE bill_payments b
+SET reference = b.reference || '-' || b.bill_payment_id
+WHERE b.reference IS NOT NULL
+  AND EXISTS (SELECT 1 FROM bill_payments o
+              WHERE o.reference = b.reference
+                AND o.bill_payment_id < b.bill_payment_id);
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_bill_payments_reference ON bill_payments (reference);
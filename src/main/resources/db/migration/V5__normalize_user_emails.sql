@@ -0,0 +1,23 @@
+-- Emails are now stored trimmed and lower-cased and looked up by exact match on the
+-- unique index. Normalize existing rows; where two accounts differ only by case, keep
+-- both untouched and report them so they can be merged by hand.
+DO $$
+DECLARE
+    clash RECORD;
+BEGIN
+    FOR clash IN
+        SELECT lower(trim(email)) AS normalized, count(*) AS accounts
+        FROM users
+        GROUP BY lower(trim(email))
+        HAVING count(*) > 1
+    LOOP
+        RAISE WARNING 'users: % accounts share the email %, left unnormalized', clash.accounts, clash.normalized;
+    END LOOP;
+
+    UPDATE users u
+    SET email = lower(trim(u.email))
+    WHERE u.email <> lower(trim(u.email))
+      AND NOT EXISTS (SELECT 1 FROM users o
+                      WHERE o.user_id <> u.user_id
+                        AND lower(trim(o.email)) = lower(trim(u.email)));
+END $$;
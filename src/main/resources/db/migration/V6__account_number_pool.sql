@@ -0,0 +1,9 @@
+-- Serials behind NUBAN account numbers issued by AccountNumberPool, and the shared pool of
+-- numbers generated ahead of wallet creation. Wallets created before this carry random numbers;
+-- the pool skips any generated number that is already taken.
+CREATE SEQUENCE IF NOT EXISTS account_number_serial_seq START WITH 1 MINVALUE 1 MAXVALUE 999999999 NO CYCLE;
+
+CREATE TABLE IF NOT EXISTS account_number_pool (
+    account_number VARCHAR(10) PRIMARY KEY,
+    reserved_at TIMESTAMP NOT NULL DEFAULT now()
+);
@@ -0,0 +1,48 @@
+-- History, statement and wallet listings all read one user's (or wallet's) rows newest
+-- first with (created_at, id) as the keyset. These indexes serve them in index order,
+-- so a page is a bounded range scan with no sort.
+CREATE INDEX IF NOT EXISTS idx_transaction_user_created
+    ON "transaction" (user_id, created_at DESC, transaction_id DESC);
+CREATE INDEX IF NOT EXISTS idx_transaction_wallet_created
+    ON "transaction" (wallet_id, created_at DESC, transaction_id DESC);
+CREATE INDEX IF NOT EXISTS idx_bill_payments_user_created
+    ON bill_payments (user_id, created_at DESC, bill_payment_id DESC);
+
+-- Enums are stored as smallint ordinals. Hibernate only writes its own range checks
+-- when it creates a table, and never widens them when a constant is added, so the
+-- checks are owned here. Constants are append-only; adding one means a migration
+-- that moves the matching upper bound.
+ALTER TABLE "transaction" ALTER COLUMN transaction_type TYPE smallint;
+ALTER TABLE "transaction" ALTER COLUMN transaction_status TYPE smallint;
+ALTER TABLE "transaction" DROP CONSTRAINT IF EXISTS transaction_transaction_type_check;
+ALTER TABLE "transaction" DROP CONSTRAINT IF EXISTS transaction_transaction_status_check;
+ALTER TABLE "transaction" ADD CONSTRAINT ck_transaction_type CHECK (transaction_type BETWEEN 0 AND 6);
+ALTER TABLE "transaction" ADD CONSTRAINT ck_transaction_status CHECK (transaction_status BETWEEN 0 AND 2);
+
+-- bill_payments stored its enums as names; convert them to the same ordinals
+ALTER TABLE bill_payments DROP CONSTRAINT IF EXISTS bill_payments_bill_type_check;
+ALTER TABLE bill_payments DROP CONSTRAINT IF EXISTS bill_payments_transaction_status_check;
+DO $$
+BEGIN
+    IF (SELECT data_type FROM information_schema.columns
+        WHERE table_schema = current_schema() AND table_name = 'bill_payments' AND column_name = 'bill_type') <> 'smallint' THEN
+        ALTER TABLE bill_payments ALTER COLUMN bill_type TYPE smallint USING
+            CASE bill_type
+                WHEN 'AIRTIME' THEN 0
+                WHEN 'DATA' THEN 1
+                WHEN 'ELECTRICITY' THEN 2
+                WHEN 'TV' THEN 3
+            END;
+    END IF;
+    IF (SELECT data_type FROM information_schema.columns
+        WHERE table_schema = current_schema() AND table_name = 'bill_payments' AND column_name = 'transaction_status') <> 'smallint' THEN
+        ALTER TABLE bill_payments ALTER COLUMN transaction_status TYPE smallint USING
+            CASE transaction_status
+                WHEN 'PENDING' THEN 0
+                WHEN 'SUCCESSFUL' THEN 1
+                WHEN 'FAILED' THEN 2
+            END;
+    END IF;
+END $$;
+ALTER TABLE bill_payments ADD CONSTRAINT ck_bill_payments_bill_type CHECK (bill_type BETWEEN 0 AND 3);
+ALTER TABLE bill_payments ADD CONSTRAINT ck_bill_payments_transaction_status CHECK (transaction_status BETWEEN 0 AND 2);
@@ -0,0 +1,13 @@
+-- Running totals per user, wallet, calendar month and category (a TransactionType or
+-- BillType name), maintained by MonthlySpendingService in the same transaction as the
+-- rows they count. Existing history is backfilled by the admin rebuild job rather
+-- than here, so deploys do not wait on a full scan.
+CREATE TABLE IF NOT EXISTS monthly_spending (
+    user_id     INTEGER     NOT NULL,
+    month       DATE        NOT NULL,
+    wallet_id   BIGINT      NOT NULL,
+    category    VARCHAR(32) NOT NULL,
+    total_minor BIGINT      NOT NULL DEFAULT 0,
+    entry_count INTEGER     NOT NULL DEFAULT 0,
+    PRIMARY KEY (user_id, month, wallet_id, category)
+);
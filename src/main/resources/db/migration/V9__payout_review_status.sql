@@ -0,0 +1,9 @@
+-- external_payout.status gains REVIEW for payouts whose outcome the partner bank never
+-- confirmed. Hibernate wrote a check listing the original three values when it created
+-- the table and does not widen it on update, so the check is owned here from now on.
+ALTER TABLE external_payout DROP CONSTRAINT IF EXISTS external_payout_status_check;
+ALTER TABLE external_payout DROP CONSTRAINT IF EXISTS ck_external_payout_status;
+ALTER TABLE external_payout ADD CONSTRAINT ck_external_payout_status
+    CHECK (status IN ('PENDING', 'SUCCESSFUL', 'FAILED', 'REVIEW'));
+
+CREATE INDEX IF NOT EXISTS idx_external_payout_review ON external_payout (created_at) WHERE status = 'REVIEW';
@@ -0,0 +1,123 @@
+package com.example.opaybanking;
+
+import com.example.opaybanking.enums.Currency;
+import com.example.opaybanking.enums.Role;
+import com.example.opaybanking.model.AccountStatus;
+import com.example.opaybanking.model.User;
+import com.example.opaybanking.model.Wallet;
+import com.example.opaybanking.repo.WalletRepo;
+import com.example.opaybanking.repo.userRepo;
+import com.example.opaybanking.util.JwtUtil;
+import org.junit.jupiter.api.BeforeAll;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Base for tests that need a real Postgres: query plans and SQL statement counts, which a
+ * mock cannot answer. The database is TEST_DATABASE_URL when it is set (with
+ * TEST_DATABASE_USER and TEST_DATABASE_PASSWORD), otherwise a throwaway Testcontainers
+ * Postgres when Docker is available. With neither, the tests are skipped, so a plain
+ * mvn test still passes without a database.
+ *
+ * The schema is the application's own (Hibernate update, then db/migration), and every
+ * subclass shares one context and one database. Tests roll back or clean up after
+ * themselves. {@link SqlStatementCounter} wraps the DataSource.
+ */
+@SpringBootTest(properties = {
+        "JWT_SECRET=test-only-signing-key-that-is-long-enough-for-hs256",
+        "paystack.secret-key=test",
+        "cloudinary.cloud-name=test",
+        "cloudinary.api-key=test",
+        "cloudinary.api-secret=test",
+        "spring.mail.username=test",
+        "spring.mail.password=test",
+        "payout.gateway=stub",
+        "spring.jpa.show-sql=false",
+        "logging.level.org.springframework.web=INFO",
+        "logging.level.org.springframework.security=INFO",
+        "logging.level.com.example.opaybanking=INFO"
+})
+@Import(SqlStatementCounter.class)
+public abstract class PostgresTestSupport {
+
+    private static final String DATABASE_URL = System.getenv("TEST_DATABASE_URL");
+    private static PostgreSQLContainer<?> container;
+
+    public static final String PIN = "1234";
+
+    @Autowired
+    protected userRepo userRepo;
+    @Autowired
+    protected WalletRepo walletRepo;
+    @Autowired
+    protected JwtUtil jwtUtil;
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @BeforeAll
+    static void requireDatabase() {
+        assumeTrue(DATABASE_URL != null || DockerClientFactory.instance().isDockerAvailable(),
+                "Set TEST_DATABASE_URL or start Docker to run the database tests");
+    }
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        if (DATABASE_URL != null) {
+            registry.add("spring.datasource.url", () -> DATABASE_URL);
+            registry.add("spring.datasource.username", () -> System.getenv().getOrDefault("TEST_DATABASE_USER", "postgres"));
+            registry.add("spring.datasource.password", () -> System.getenv().getOrDefault("TEST_DATABASE_PASSWORD", ""));
+            return;
+        }
+        PostgreSQLContainer<?> postgres = container();
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl() + "&reWriteBatchedInserts=true");
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    private static synchronized PostgreSQLContainer<?> container() {
+        if (container == null) {
+            container = new PostgreSQLContainer<>("postgres:16-alpine");
+            container.start();
+        }
+        return container;
+    }
+
+    protected User newUser() {
+        String suffix = Long.toString(ThreadLocalRandom.current().nextLong(1L << 40), 36);
+        User user = new User();
+        user.setFirstName("Ada");
+        user.setLastName("Obi");
+        user.setEmail("ada." + suffix + "@example.com");
+        user.setRole(Role.USER);
+        user.setAccountStatus(AccountStatus.VERIFIED);
+        return userRepo.save(user);
+    }
+
+    /** A wallet with PIN {@link #PIN}. */
+    protected Wallet newWallet(User user, Currency currency, long balanceMinor) {
+        Wallet wallet = new Wallet();
+        wallet.setUser(user);
+        wallet.setCurrency(currency);
+        wallet.setBalanceMinor(balanceMinor);
+        wallet.setAccountNumber("9" + (100_000_000 + ThreadLocalRandom.current().nextInt(900_000_000)));
+        wallet.setAccountName(user.getFirstName() + " " + user.getLastName());
+        wallet.setPin(passwordEncoder.encode(PIN));
+        wallet.setCreatedAt(LocalDateTime.now());
+        return walletRepo.save(wallet);
+    }
+
+    protected String tokenFor(User user) {
+        return jwtUtil.generateToken(user.getUserId().toString(), user.getEmail(), user.getRole().name());
+    }
+}
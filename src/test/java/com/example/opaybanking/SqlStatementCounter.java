@@ -0,0 +1,131 @@
+package com.example.opaybanking;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Wraps the application DataSource so tests can count the SQL statements a piece of code
+ * actually sends to the database, whoever issued them (Hibernate, Spring Data, JdbcTemplate
+ * or raw JDBC). A JDBC batch is one round trip and is recorded once, with its row count.
+ *
+ * Counting is per thread: only statements executed on the thread that called
+ * {@link #record} are seen, so scheduled jobs running in the background do not leak in.
+ */
+public class SqlStatementCounter implements BeanPostProcessor {
+
+    private static final ThreadLocal<Recording> CURRENT = new ThreadLocal<>();
+
+    /** Statements run on this thread until {@link Recording#close}. */
+    public static Recording record() {
+        Recording recording = new Recording();
+        CURRENT.set(recording);
+        return recording;
+    }
+
+    public static final class Recording implements AutoCloseable {
+
+        private final List<String> statements = new ArrayList<>();
+
+        /** Every statement in execution order; a batch reads "[batch of n] sql". */
+        public List<String> statements() {
+            return List.copyOf(statements);
+        }
+
+        public int count() {
+            return statements.size();
+        }
+
+        /** Statements whose (lower-cased) SQL matches. */
+        public long count(Predicate<String> sql) {
+            return statements.stream().map(String::toLowerCase).filter(sql).count();
+        }
+
+        public void clear() {
+            statements.clear();
+        }
+
+        @Override
+        public void close() {
+            CURRENT.remove();
+        }
+
+        @Override
+        public String toString() {
+            return String.join("\n", statements);
+        }
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource) {
+            return proxy(DataSource.class, dataSource, (target, method, args) -> {
+                Object result = method.invoke(target, args);
+                return result instanceof Connection connection ? connection(connection) : result;
+            });
+        }
+        return bean;
+    }
+
+    private static Connection connection(Connection connection) {
+        return proxy(Connection.class, connection, (target, method, args) -> {
+            Object result = method.invoke(target, args);
+            if (result instanceof Statement statement && method.getReturnType().isInterface()) {
+                String sql = method.getName().startsWith("prepare") ? (String) args[0] : null;
+                return statement(method.getReturnType(), statement, sql);
+            }
+            return result;
+        });
+    }
+
+    private static Object statement(Class<?> type, Statement statement, String preparedSql) {
+        int[] batched = {0};
+        List<String> batchedSql = new ArrayList<>();
+        return proxy(type, statement, (target, method, args) -> {
+            String name = method.getName();
+            Recording recording = CURRENT.get();
+            if (name.equals("addBatch")) {
+                batched[0]++;
+                if (args != null && args.length == 1) batchedSql.add((String) args[0]);
+            } else if (name.equals("clearBatch")) {
+                batched[0] = 0;
+                batchedSql.clear();
+            } else if (name.equals("executeBatch") || name.equals("executeLargeBatch")) {
+                if (recording != null) {
+                    String sql = preparedSql != null ? preparedSql : String.join("; ", batchedSql);
+                    recording.statements.add("[batch of " + batched[0] + "] " + sql);
+                }
+                batched[0] = 0;
+                batchedSql.clear();
+            } else if (name.startsWith("execute") && recording != null) {
+                recording.statements.add(args != null && args.length > 0 && args[0] instanceof String sql ? sql : preparedSql);
+            }
+            return method.invoke(target, args);
+        });
+    }
+
+    private interface Handler {
+        Object invoke(Object target, Method method, Object[] args) throws Throwable;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Object target, Handler handler) {
+        InvocationHandler invocationHandler = (proxy, method, args) -> {
+            try {
+                return handler.invoke(target, method, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        };
+        return (T) Proxy.newProxyInstance(SqlStatementCounter.class.getClassLoader(), new Class<?>[]{type}, invocationHandler);
+    }
+}
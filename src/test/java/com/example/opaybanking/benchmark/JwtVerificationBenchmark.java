@@ -0,0 +1,82 @@
+package com.example.opaybanking.benchmark;
+
+import com.example.opaybanking.util.AuthenticatedPrincipal;
+import com.example.opaybanking.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request JWT cost: the old path (filter and getAuthenticatedUser together verified
+ * the token four times, rebuilding the key each time) against one cold verification and
+ * a cached one.
+ *
+ * Run with:
+ *   mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ *   java -cp target/test-classes:target/classes:$(cat target/cp.txt) \
+ *       com.example.opaybanking.benchmark.JwtVerificationBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class JwtVerificationBenchmark {
+
+    private static final String SECRET = "benchmark-secret-benchmark-secret-benchmark-secret-0123456789";
+
+    private JwtUtil cachingUtil;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        cachingUtil = new JwtUtil(SECRET, 10_000);
+        token = cachingUtil.generateToken("42", "ada@example.com", "USER");
+        cachingUtil.verify(token);
+    }
+
+    @Benchmark
+    public void previousFourParses(Blackhole bh) {
+        for (int i = 0; i < 4; i++) {
+            Claims claims = Jwts.parser()
+                    .verifyWith(Keys.hmacShaKeyFor(SECRET.getBytes()))
+                    .build()
+                    .parseSignedClaims(token)
+                    .getPayload();
+            bh.consume(claims);
+        }
+    }
+
+    @Benchmark
+    public Claims singleParse() {
+        return cachingUtil.validateToken(token);
+    }
+
+    @Benchmark
+    public AuthenticatedPrincipal cachedVerify() {
+        return cachingUtil.verify(token);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtVerificationBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
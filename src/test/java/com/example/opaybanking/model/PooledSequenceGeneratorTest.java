@@ -0,0 +1,128 @@
+package com.example.opaybanking.model;
+
+import com.example.opaybanking.PostgresTestSupport;
+import com.example.opaybanking.SqlStatementCounter;
+import com.example.opaybanking.dto.InternalTransferRequest;
+import com.example.opaybanking.enums.Currency;
+import com.example.opaybanking.enums.Status;
+import com.example.opaybanking.enums.TransactionType;
+import com.example.opaybanking.repo.TransactionRepo;
+import com.example.opaybanking.service.TransactionService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Measures what pooled sequence ids buy: the same writes run once with JDBC batching
+ * switched off for the session, one round trip per row as under IDENTITY ids, and once
+ * as configured. Statements are counted on the wire by {@link SqlStatementCounter}.
+ */
+@Transactional
+class PooledSequenceGeneratorTest extends PostgresTestSupport {
+
+    private static final Predicate<String> SEQUENCE_CALL = sql -> sql.contains("nextval");
+
+    @Autowired
+    private TransactionService transactionService;
+    @Autowired
+    private TransactionRepo transactionRepo;
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private User sender;
+    private Wallet senderWallet;
+    private Wallet recipientWallet;
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        sender = newUser();
+        senderWallet = newWallet(sender, Currency.NGN, 1_000_000_00);
+        recipientWallet = newWallet(newUser(), Currency.NGN, 0);
+        entityManager.flush();
+        token = tokenFor(sender);
+        transfer(); // warms the user cache and the id blocks
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void batchingCutsATransferByOneStatementPerTableItWritesTwoRowsTo() {
+        List<String> unbatched = measure(1, this::transfer);
+        List<String> batched = measure(null, this::transfer);
+
+        String both = "unbatched:\n" + String.join("\n", unbatched) + "\nbatched:\n" + String.join("\n", batched);
+        for (String write : List.of("insert into ledger_entry", "insert into transaction",
+                "insert into outbox_event", "update wallet")) {
+            assertEquals(2, count(unbatched, write), write + "\n" + both);
+            assertEquals(1, count(batched, write), write + "\n" + both);
+        }
+        // 14 round trips become 10; the spending upsert is a JdbcTemplate batch either way
+        assertEquals(14, unbatched.stream().filter(SEQUENCE_CALL.negate()).count(), both);
+        assertEquals(10, batched.stream().filter(SEQUENCE_CALL.negate()).count(), both);
+    }
+
+    @Test
+    void hundredRowsAreTwoBatchesAndAtMostThreeSequenceCalls() {
+        List<String> unbatched = measure(1, () -> insertTransactions(100));
+        List<String> batched = measure(null, () -> insertTransactions(100));
+
+        assertEquals(100, count(unbatched, "insert into transaction"), String.join("\n", unbatched));
+        // hibernate.jdbc.batch_size is 50
+        assertEquals(2, count(batched, "insert into transaction"), String.join("\n", batched));
+        // One nextval per 50 ids, plus one if the block in hand runs out part way
+        assertTrue(count(batched, "nextval") <= 3, String.join("\n", batched));
+    }
+
+    // Statements sent by work and its flush, with the session's JDBC batch size set to batchSize (null: as configured)
+    private List<String> measure(Integer batchSize, Runnable work) {
+        entityManager.unwrap(Session.class).setJdbcBatchSize(batchSize);
+        try (SqlStatementCounter.Recording sql = SqlStatementCounter.record()) {
+            work.run();
+            entityManager.flush();
+            return sql.statements();
+        } finally {
+            entityManager.unwrap(Session.class).setJdbcBatchSize(null);
+            entityManager.clear();
+        }
+    }
+
+    private static long count(List<String> statements, String sql) {
+        return statements.stream().map(String::toLowerCase).filter(s -> s.contains(sql)).count();
+    }
+
+    private void transfer() {
+        transactionService.internalTransfer(new InternalTransferRequest("NGN", recipientWallet.getAccountNumber(),
+                10.0, PIN, null), token);
+    }
+
+    private void insertTransactions(int rows) {
+        User user = entityManager.getReference(User.class, sender.getUserId());
+        Wallet wallet = entityManager.getReference(Wallet.class, senderWallet.getWalletId());
+        List<Transaction> transactions = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            Transaction tx = new Transaction();
+            tx.setUser(user);
+            tx.setWallet(wallet);
+            tx.setAmountMinor(1_00);
+            tx.setTransactionType(TransactionType.DEPOSIT);
+            tx.setTransactionStatus(Status.SUCCESSFUL);
+            tx.setReference("DEP" + System.nanoTime() + i);
+            tx.setCreatedAt(LocalDateTime.now());
+            transactions.add(tx);
+        }
+        transactionRepo.saveAll(transactions);
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.opaybanking.repo;
+
+import com.example.opaybanking.PostgresTestSupport;
+import com.example.opaybanking.SqlStatementCounter;
+import com.example.opaybanking.service.StatementExportService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * EXPLAINs the SQL each history and listing query really sends: the repository method is
+ * called once while {@link SqlStatementCounter} captures what Hibernate generated, and that
+ * statement is PREPAREd and explained as a generic plan, the one it gets whatever values
+ * are bound. Sequential scans are disabled for the (rolled back) transaction, so on a
+ * small test database the planner still has to show which index it would use. Ordered
+ * listings must also come back in index order, with no Sort node.
+ */
+@Transactional
+class HistoryIndexPlanTest extends PostgresTestSupport {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 11, 20, 14, 0);
+
+    @Autowired
+    private TransactionRepo transactionRepo;
+    @Autowired
+    private billPaymentRepo billPaymentRepo;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void disableSeqScan() {
+        jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+        jdbcTemplate.execute("SET LOCAL plan_cache_mode = force_generic_plan");
+    }
+
+    @Test
+    void transactionHistoryPagesUseTheUserIndex() {
+        assertOrderedBy("idx_transaction_user_created",
+                generated(() -> transactionRepo.findHistoryHead(1, PageRequest.of(0, 51))));
+        assertOrderedBy("idx_transaction_user_created",
+                generated(() -> transactionRepo.findHistoryPage(1, NOW, 100, PageRequest.of(0, 51))));
+        assertOrderedBy("idx_transaction_user_created",
+                generated(() -> transactionRepo.findByUserUserIdAndCreatedAtBetweenOrderByCreatedAtDesc(
+                        1, NOW.minusMonths(1), NOW)));
+    }
+
+    @Test
+    void walletListingUsesTheWalletIndex() {
+        assertOrderedBy("idx_transaction_wallet_created",
+                generated(() -> transactionRepo.findByWalletWalletIdOrderByCreatedAtDesc(1L)));
+    }
+
+    @Test
+    void billHistoryPagesUseTheUserIndex() {
+        assertOrderedBy("idx_bill_payments_user_created",
+                generated(() -> billPaymentRepo.findHistoryHead(1, PageRequest.of(0, 51))));
+        assertOrderedBy("idx_bill_payments_user_created",
+                generated(() -> billPaymentRepo.findHistoryPage(1, NOW, 100, PageRequest.of(0, 51))));
+        assertOrderedBy("idx_bill_payments_user_created",
+                generated(() -> billPaymentRepo.findByUserUserIdAndCreatedAtBetweenOrderByCreatedAtDesc(
+                        1, NOW.minusMonths(1), NOW)));
+    }
+
+    @Test
+    void statementCursorsWalkTheUserIndexesInOrder() {
+        assertOrderedBy("idx_transaction_user_created", StatementExportService.TRANSFERS_SQL);
+        assertOrderedBy("idx_bill_payments_user_created", StatementExportService.BILLS_SQL);
+    }
+
+    @Test
+    void referenceLookupUsesTheUniqueIndex() {
+        assertUses("uk_bill_payments_reference", generated(() -> billPaymentRepo.findByReference("MB123")));
+    }
+
+    // The one statement the call sent, as Hibernate wrote it
+    private static String generated(Runnable query) {
+        try (SqlStatementCounter.Recording sql = SqlStatementCounter.record()) {
+            query.run();
+            assertEquals(1, sql.count(), "statements:\n" + sql);
+            return sql.statements().get(0);
+        }
+    }
+
+    private void assertOrderedBy(String index, String sql) {
+        String plan = assertUses(index, sql);
+        assertFalse(plan.contains("Sort"), "expected index order, got:\n" + plan);
+    }
+
+    private String assertUses(String index, String sql) {
+        // JDBC ? placeholders become $1, $2... and are only ever bound to NULL, which a generic plan never looks at
+        StringBuilder prepared = new StringBuilder("PREPARE plan_under_test AS ");
+        List<String> nulls = new ArrayList<>();
+        for (char c : sql.toCharArray()) {
+            if (c != '?') {
+                prepared.append(c);
+                continue;
+            }
+            nulls.add("NULL");
+            prepared.append('$').append(nulls.size());
+        }
+        jdbcTemplate.execute(prepared.toString());
+        String plan;
+        try {
+            String execute = nulls.isEmpty() ? "plan_under_test" : "plan_under_test(" + String.join(", ", nulls) + ")";
+            plan = String.join("\n", jdbcTemplate.queryForList("EXPLAIN EXECUTE " + execute, String.class));
+        } finally {
+            // Prepared statements belong to the session, not the transaction
+            jdbcTemplate.execute("DEALLOCATE plan_under_test");
+        }
+        assertTrue(plan.contains(index), "expected " + index + " for\n" + sql + "\ngot:\n" + plan);
+        return plan;
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.opaybanking.service;
+
+import org.hibernate.exception.LockAcquisitionException;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.jpa.JpaSystemException;
+
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BulkTransferServiceTest {
+
+    @Test
+    void lockAndDeadlockErrorsAreRetried() {
+        assertTrue(BulkTransferService.isTransient(new CannotAcquireLockException("Wallet is busy, please try again")));
+        assertTrue(BulkTransferService.isTransient(new JpaSystemException(new LockAcquisitionException("deadlock",
+                new SQLException("deadlock detected", "40P01"), "UPDATE wallet"))));
+        assertTrue(BulkTransferService.isTransient(new RuntimeException(new SQLException("could not serialize", "40001"))));
+    }
+
+    @Test
+    void businessErrorsAreNot() {
+        assertFalse(BulkTransferService.isTransient(new RuntimeException("Source wallet no longer exists")));
+        assertFalse(BulkTransferService.isTransient(new DataIntegrityViolationException("duplicate reference",
+                new SQLException("duplicate key", "23505"))));
+    }
+}
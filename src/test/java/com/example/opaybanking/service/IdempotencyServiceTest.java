@@ -0,0 +1,55 @@
+package com.example.opaybanking.service;
+
+import com.example.opaybanking.PostgresTestSupport;
+import com.example.opaybanking.dto.TransferResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A key reused after its TTL runs the request again, even while the expired row is
+ * still in idempotency_key waiting for the sweep.
+ */
+@Transactional
+class IdempotencyServiceTest extends PostgresTestSupport {
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void expiredKeyThatWasNotSweptYetRunsTheRequestAgain() {
+        String key = UUID.randomUUID().toString();
+        String scopedKey = "7:internal:" + key;
+        jdbcTemplate.update("INSERT INTO idempotency_key (scoped_key, request_hash, response_body, created_at, expires_at) " +
+                        "VALUES (?, 'old', '{}', ?, ?)", scopedKey,
+                LocalDateTime.now().minusDays(2), LocalDateTime.now().minusDays(1));
+        AtomicInteger runs = new AtomicInteger();
+
+        TransferResponse response = idempotencyService.execute("7", "internal", key, "new request",
+                () -> transfer("TXN" + runs.incrementAndGet()));
+        TransferResponse replay = idempotencyService.execute("7", "internal", key, "new request",
+                () -> transfer("TXN" + runs.incrementAndGet()));
+
+        assertEquals("TXN1", response.reference());
+        assertEquals(response, replay);
+        assertEquals(1, runs.get());
+        LocalDateTime expiresAt = jdbcTemplate.queryForObject(
+                "SELECT expires_at FROM idempotency_key WHERE scoped_key = ?", LocalDateTime.class, scopedKey);
+        assertTrue(expiresAt.isAfter(LocalDateTime.now()));
+    }
+
+    private static TransferResponse transfer(String reference) {
+        return new TransferResponse(true, "Transfer successful", reference, "9000000001", "9000000002",
+                "Ada Obi", "Miles Bank", 10.0, 90.0);
+    }
+}
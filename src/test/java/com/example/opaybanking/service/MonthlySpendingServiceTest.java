@@ -0,0 +1,140 @@
+package com.example.opaybanking.service;
+
+import com.example.opaybanking.PostgresTestSupport;
+import com.example.opaybanking.dto.BillPaymentRequest;
+import com.example.opaybanking.dto.ExternalTransferRequest;
+import com.example.opaybanking.dto.InternalTransferRequest;
+import com.example.opaybanking.enums.BillType;
+import com.example.opaybanking.enums.Currency;
+import com.example.opaybanking.enums.PayoutStatus;
+import com.example.opaybanking.model.Bank;
+import com.example.opaybanking.model.ExternalPayout;
+import com.example.opaybanking.model.User;
+import com.example.opaybanking.model.Wallet;
+import com.example.opaybanking.repo.BankRepo;
+import com.example.opaybanking.repo.ExternalPayoutRepo;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Drives real transfers, a bill payment and settled and failed external payouts through
+ * the services. The totals they maintain incrementally must match what
+ * {@link MonthlySpendingService#rebuildUser} computes afresh from the raw rows.
+ */
+@Transactional
+class MonthlySpendingServiceTest extends PostgresTestSupport {
+
+    @Autowired
+    private MonthlySpendingService monthlySpendingService;
+    @Autowired
+    private TransactionService transactionService;
+    @Autowired
+    private BillPaymentService billPaymentService;
+    @Autowired
+    private ExternalPayoutService externalPayoutService;
+    @Autowired
+    private ExternalPayoutRepo payoutRepo;
+    @Autowired
+    private BankRepo bankRepo;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private User payer;
+    private User payee;
+    private Wallet payerWallet;
+    private Wallet payeeWallet;
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        payer = newUser();
+        payerWallet = newWallet(payer, Currency.NGN, 10_000_00);
+        newWallet(payer, Currency.USD, 0);
+        payee = newUser();
+        payeeWallet = newWallet(payee, Currency.NGN, 0);
+        entityManager.flush();
+        token = tokenFor(payer);
+    }
+
+    @Test
+    void incrementalTotalsMatchARebuild() {
+        transactionService.internalTransfer(new InternalTransferRequest("NGN", payeeWallet.getAccountNumber(),
+                250.0, PIN, null), token);
+        billPaymentService.processBillPayment(new BillPaymentRequest(BillType.AIRTIME, "08031234567", "MTN",
+                null, null, null, 100.0), token);
+        String settled = externalTransfer(400.0);
+        String rejected = externalTransfer(300.0);
+        externalTransfer(50.0); // left PENDING
+        settle(settled, PayoutGateway.Outcome.SUCCESSFUL);
+        settle(rejected, PayoutGateway.Outcome.FAILED);
+        entityManager.flush();
+
+        List<MonthlySpendingService.Total> payerTotals = totals(payer);
+        List<MonthlySpendingService.Total> payeeTotals = totals(payee);
+
+        // The settled payout only; the rejected one, its reversal and the pending one are not spending
+        assertEquals(List.of(
+                new MonthlySpendingService.Total(payerWallet.getWalletId(), Currency.NGN, "AIRTIME", 100_00, 1),
+                new MonthlySpendingService.Total(payerWallet.getWalletId(), Currency.NGN, "TRANSFER_OUT", 650_00, 2)
+        ), payerTotals);
+        assertEquals(List.of(
+                new MonthlySpendingService.Total(payeeWallet.getWalletId(), Currency.NGN, "TRANSFER_IN", 250_00, 1)
+        ), payeeTotals);
+
+        monthlySpendingService.rebuildUser(payer.getUserId());
+        monthlySpendingService.rebuildUser(payee.getUserId());
+
+        assertEquals(payerTotals, totals(payer));
+        assertEquals(payeeTotals, totals(payee));
+    }
+
+    @Test
+    void billsStayOnTheWalletThatPaidThemAfterItIsDeleted() {
+        billPaymentService.processBillPayment(new BillPaymentRequest(BillType.AIRTIME, "08031234567", "MTN",
+                null, null, null, 100.0), token);
+        entityManager.flush();
+        entityManager.clear();
+        jdbcTemplate.update("DELETE FROM outbox_event WHERE wallet_id = ?", payerWallet.getWalletId());
+        jdbcTemplate.update("DELETE FROM wallet WHERE wallet_id = ?", payerWallet.getWalletId());
+
+        monthlySpendingService.rebuildUser(payer.getUserId());
+
+        // The user has no NGN wallet left, but the bill is still counted where it was paid
+        assertEquals(List.of(
+                new MonthlySpendingService.Total(payerWallet.getWalletId(), null, "AIRTIME", 100_00, 1)
+        ), totals(payer));
+    }
+
+    private String externalTransfer(double amount) {
+        String bankCode = bankRepo.findAll().stream()
+                .map(Bank::getBankCode)
+                .filter(code -> !code.equals("190909"))
+                .findFirst().orElseThrow();
+        return transactionService.externalTransfer(new ExternalTransferRequest("0123456789", "Chidi Okafor",
+                bankCode, amount, PIN, "NGN", null), token).reference();
+    }
+
+    // As an admin would after reconciling with the partner bank
+    private void settle(String reference, PayoutGateway.Outcome outcome) {
+        ExternalPayout payout = payoutRepo.findByReference(reference).orElseThrow();
+        payout.setStatus(PayoutStatus.REVIEW);
+        entityManager.flush();
+        externalPayoutService.resolve(reference, outcome, outcome == PayoutGateway.Outcome.FAILED ? "Account closed" : "GW1");
+    }
+
+    private List<MonthlySpendingService.Total> totals(User user) {
+        return monthlySpendingService.totals(user.getUserId(), YearMonth.now());
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.opaybanking.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OtpServiceTest {
+
+    private static final String EMAIL = "ada@example.com";
+
+    @Test
+    void reissuingACodeKeepsTheFailedAttempts() {
+        InMemoryOtpStore store = new InMemoryOtpStore();
+        OtpService otpService = new OtpService(store, 10, 3, 15, 0);
+
+        otpService.generateOtp(EMAIL);
+        assertFalse(otpService.verifyOtp(EMAIL, "wrong1"));
+        assertFalse(otpService.verifyOtp(EMAIL, "wrong2"));
+
+        String otp = otpService.generateOtp(EMAIL);
+        assertEquals(2, store.find(EMAIL).attempts());
+
+        assertFalse(otpService.verifyOtp(EMAIL, "wrong3"));
+        assertFalse(otpService.verifyOtp(EMAIL, otp), "third failure must lock the email");
+        RuntimeException e = assertThrows(RuntimeException.class, () -> otpService.generateOtp(EMAIL));
+        assertTrue(e.getMessage().startsWith("Too many invalid OTP attempts"));
+    }
+
+    @Test
+    void codesAreIssuedAtMostOncePerResendInterval() {
+        OtpService otpService = new OtpService(new InMemoryOtpStore(), 10, 5, 15, 60);
+
+        String otp = otpService.generateOtp(EMAIL);
+        RuntimeException e = assertThrows(RuntimeException.class, () -> otpService.generateOtp(EMAIL));
+
+        assertTrue(e.getMessage().startsWith("Please wait"));
+        assertTrue(otpService.verifyOtp(EMAIL, otp), "the first code must still be valid");
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.opaybanking.service;
+
+import com.example.opaybanking.enums.OutboxEventType;
+import com.example.opaybanking.model.OutboxEvent;
+import com.example.opaybanking.repo.OutboxEventRepo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OutboxRelayTest {
+
+    private final AtomicBoolean inTransaction = new AtomicBoolean();
+    private final List<Long> handled = Collections.synchronizedList(new ArrayList<>());
+
+    private OutboxEventRepo repo;
+    private OutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        repo = mock(OutboxEventRepo.class);
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.queryForObject(any(String.class), eq(Boolean.class), anyLong())).thenReturn(true);
+
+        OutboxEventListener listener = new OutboxEventListener() {
+            @Override
+            public String name() {
+                return "test";
+            }
+
+            @Override
+            public void onEvent(Event event) {
+                assertFalse(inTransaction.get(), "listeners must run with no transaction open");
+                handled.add(event.eventId());
+                if (event.eventId() == 30) throw new IllegalStateException("smtp down");
+            }
+        };
+        relay = new OutboxRelay(repo, new OutboxEventBus(List.of(listener), 2), new ObjectMapper(),
+                jdbcTemplate, new TrackingTransactionManager(), 10, 2000, 5, 7);
+    }
+
+    @Test
+    void aFailedEventHoldsBackTheRestOfItsWalletOnly() {
+        // Wallet 1's events were numbered 1, 2 under its lock but drew ids 30 and 10 from different nodes
+        OutboxEvent first = event(30, 1L, 1);
+        OutboxEvent second = event(10, 1L, 2);
+        OutboxEvent other = event(20, 2L, 1);
+        when(repo.findClaimableWalletEvents(any(), anyInt())).thenReturn(List.of(first, second, other), List.of());
+        when(repo.findAllById(Set.of(30L))).thenReturn(List.of(first));
+
+        relay.relay();
+
+        assertEquals(Set.of(30L, 20L), Set.copyOf(handled), "event 10 must wait for event 30");
+        verify(repo).claim(eq(List.of(30L, 10L, 20L)), any());
+        verify(repo).markPublished(eq(Set.of(20L)), any());
+        verify(repo).release(List.of(10L));
+        assertEquals(1, first.getAttempts());
+        assertEquals("test: smtp down", first.getLastError());
+    }
+
+    @Test
+    void aWalletsEventsAreDeliveredInSequenceOrder() {
+        when(repo.findClaimableWalletEvents(any(), anyInt()))
+                .thenReturn(List.of(event(12, 3L, 1), event(11, 3L, 2), event(13, 3L, 3)), List.of());
+
+        relay.relay();
+
+        assertEquals(List.of(12L, 11L, 13L), handled);
+        verify(repo).markPublished(eq(Set.of(11L, 12L, 13L)), any());
+    }
+
+    private static OutboxEvent event(long id, Long walletId, long walletSeq) {
+        OutboxEvent event = new OutboxEvent();
+        event.setEventId(id);
+        event.setEventType(OutboxEventType.TRANSFER_SENT);
+        event.setWalletId(walletId);
+        event.setWalletSeq(walletSeq);
+        event.setPayload("{}");
+        event.setCreatedAt(LocalDateTime.now());
+        return event;
+    }
+
+    private class TrackingTransactionManager implements PlatformTransactionManager {
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            inTransaction.set(true);
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+            inTransaction.set(false);
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+            inTransaction.set(false);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.opaybanking.service;
+
+import com.example.opaybanking.enums.BillType;
+import com.example.opaybanking.enums.Status;
+import com.example.opaybanking.enums.TransactionType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StatementExportServiceTest {
+
+    private static final LocalDate DAY = LocalDate.of(2025, 3, 31);
+
+    private PreparedStatement transferQuery;
+    private PreparedStatement billQuery;
+    private StatementExportService exportService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        transferQuery = mock(PreparedStatement.class);
+        billQuery = mock(PreparedStatement.class);
+        Connection connection = mock(Connection.class);
+        when(connection.prepareStatement(StatementExportService.TRANSFERS_SQL)).thenReturn(transferQuery);
+        when(connection.prepareStatement(StatementExportService.BILLS_SQL)).thenReturn(billQuery);
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        exportService = new StatementExportService(dataSource, transactionManager, new ObjectMapper(), 100, 31, 1);
+    }
+
+    @Test
+    void csvMergesBothTablesOldestFirstAndQuotesAndDefusesFields() throws Exception {
+        rows(transferQuery,
+                transfer("09:00", TransactionType.TRANSFER_OUT, "TX1", 1_500_00, "Rent, March", "=HYPERLINK(\"x\")"),
+                transfer("11:00", TransactionType.TRANSFER_IN, "TX2", 20_00, "Line one\nline two", "\tAda"));
+        rows(billQuery, bill("10:00", BillType.AIRTIME, "BP1", 5_00, "08030000000"));
+
+        String csv = download(DAY, DAY, StatementExportService.Format.CSV);
+
+        assertEquals(List.of(
+                "date,reference,type,direction,amount,currency,status,description,counterparty,counterparty_account,bank",
+                "2025-03-31T09:00,TX1,TRANSFER_OUT,DR,1500.00,NGN,SUCCESSFUL,\"Rent, March\",\"'=HYPERLINK(\"\"x\"\")\",,",
+                "2025-03-31T10:00,BP1,AIRTIME,DR,5.00,NGN,SUCCESSFUL,,08030000000,,",
+                "2025-03-31T11:00,TX2,TRANSFER_IN,CR,20.00,NGN,SUCCESSFUL,\"Line one\nline two\",'\tAda,,"),
+                List.of(csv.split("\n(?=2025|$)")), "split on record ends, not the newline quoted inside TX2");
+    }
+
+    @Test
+    void theToDayIsIncluded() throws Exception {
+        rows(transferQuery);
+        rows(billQuery);
+
+        download(DAY.minusDays(1), DAY, StatementExportService.Format.NDJSON);
+
+        Timestamp start = Timestamp.valueOf(DAY.minusDays(1).atStartOfDay());
+        Timestamp end = Timestamp.valueOf(DAY.plusDays(1).atStartOfDay());
+        for (PreparedStatement query : List.of(transferQuery, billQuery)) {
+            verify(query).setTimestamp(2, start);
+            verify(query).setTimestamp(3, end);
+        }
+    }
+
+    @Test
+    void rangesAndConcurrencyAreCapped() {
+        assertThrows(RuntimeException.class, () -> exportService.export(1, DAY, DAY.minusDays(1), StatementExportService.Format.CSV));
+        RuntimeException tooLong = assertThrows(RuntimeException.class,
+                () -> exportService.export(1, DAY.minusDays(31), DAY, StatementExportService.Format.CSV));
+        assertEquals("A statement can cover at most 31 days", tooLong.getMessage());
+
+        exportService.export(1, DAY, DAY, StatementExportService.Format.CSV);
+        RuntimeException busy = assertThrows(RuntimeException.class,
+                () -> exportService.export(1, DAY, DAY, StatementExportService.Format.CSV));
+        assertEquals("Too many statement downloads in progress, please try again shortly", busy.getMessage());
+    }
+
+    @Test
+    void formatsParseCaseInsensitively() {
+        assertEquals(StatementExportService.Format.CSV, StatementExportService.Format.parse("csv"));
+        assertEquals(StatementExportService.Format.NDJSON, StatementExportService.Format.parse(" NDJSON "));
+        RuntimeException e = assertThrows(RuntimeException.class, () -> StatementExportService.Format.parse("xlsx"));
+        assertEquals("Invalid format. Use 'csv' or 'ndjson'", e.getMessage());
+        assertThrows(RuntimeException.class, () -> StatementExportService.Format.parse(null));
+    }
+
+    @Test
+    void csvFieldsAreQuotedOnlyWhenNeededAndFormulaLeadersAreDefused() {
+        assertEquals("", StatementExportService.csv(null));
+        assertEquals("plain", StatementExportService.csv("plain"));
+        assertEquals("\"a,b\"", StatementExportService.csv("a,b"));
+        assertEquals("\"say \"\"hi\"\"\"", StatementExportService.csv("say \"hi\""));
+        assertEquals("'=1+1", StatementExportService.csv("=1+1"));
+        assertEquals("'+234", StatementExportService.csv("+234"));
+        assertEquals("'-5", StatementExportService.csv("-5"));
+        assertEquals("'@SUM(A1)", StatementExportService.csv("@SUM(A1)"));
+        assertEquals("'\tx", StatementExportService.csv("\tx"));
+        assertEquals("\"'\rx\"", StatementExportService.csv("\rx"));
+    }
+
+    private String download(LocalDate from, LocalDate to, StatementExportService.Format format) throws Exception {
+        StreamingResponseBody body = exportService.export(1, from, to, format);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        body.writeTo(out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static Map<String, Object> transfer(String time, TransactionType type, String reference, long amountMinor,
+                                                String description, String counterparty) {
+        Map<String, Object> row = row(time, type.ordinal(), reference, amountMinor, counterparty);
+        row.put("description", description);
+        row.put("currency", "NGN");
+        return row;
+    }
+
+    private static Map<String, Object> bill(String time, BillType type, String reference, long amountMinor, String phone) {
+        Map<String, Object> row = row(time, type.ordinal(), reference, amountMinor, phone);
+        row.put("currency", "NGN");
+        return row;
+    }
+
+    private static Map<String, Object> row(String time, int kind, String reference, long amountMinor, String counterparty) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("created_at", Timestamp.valueOf(LocalDateTime.of(DAY, LocalTime.parse(time))));
+        row.put("kind", kind);
+        row.put("reference", reference);
+        row.put("amount_minor", amountMinor);
+        row.put("status", Status.SUCCESSFUL.ordinal());
+        row.put("counterparty", counterparty);
+        return row;
+    }
+
+    // A forward-only result set over the given rows, read by column label
+    @SafeVarargs
+    private static void rows(PreparedStatement query, Map<String, Object>... rows) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        int[] position = {-1};
+        Object[] last = {null};
+        when(rs.next()).thenAnswer(invocation -> ++position[0] < rows.length);
+        when(rs.getTimestamp(anyString())).thenAnswer(invocation -> value(rows, position, last, invocation.getArgument(0)));
+        when(rs.getString(anyString())).thenAnswer(invocation -> value(rows, position, last, invocation.getArgument(0)));
+        when(rs.getInt(anyString())).thenAnswer(invocation -> {
+            Object value = value(rows, position, last, invocation.getArgument(0));
+            return value == null ? 0 : ((Number) value).intValue();
+        });
+        when(rs.getLong(anyString())).thenAnswer(invocation -> {
+            Object value = value(rows, position, last, invocation.getArgument(0));
+            return value == null ? 0L : ((Number) value).longValue();
+        });
+        when(rs.wasNull()).thenAnswer(invocation -> last[0] == null);
+        when(query.executeQuery()).thenReturn(rs);
+    }
+
+    private static Object value(Map<String, Object>[] rows, int[] position, Object[] last, String column) {
+        last[0] = rows[position[0]].get(column);
+        return last[0];
+    }
+}
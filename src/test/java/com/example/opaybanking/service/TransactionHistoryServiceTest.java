@@ -0,0 +1,142 @@
+package com.example.opaybanking.service;
+
+import com.example.opaybanking.PostgresTestSupport;
+import com.example.opaybanking.SqlStatementCounter;
+import com.example.opaybanking.dto.HistoryPage;
+import com.example.opaybanking.enums.BillType;
+import com.example.opaybanking.enums.Currency;
+import com.example.opaybanking.enums.Status;
+import com.example.opaybanking.enums.TransactionType;
+import com.example.opaybanking.model.BillPayment;
+import com.example.opaybanking.model.Transaction;
+import com.example.opaybanking.model.User;
+import com.example.opaybanking.model.Wallet;
+import com.example.opaybanking.repo.TransactionRepo;
+import com.example.opaybanking.repo.billPaymentRepo;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Counts the SQL a history page really sends to Postgres. However many rows the page
+ * holds, and across both of the user's wallets, it must be one projection query per
+ * table: no entity loads and no lazy loads of users or wallets behind them.
+ */
+@Transactional
+class TransactionHistoryServiceTest extends PostgresTestSupport {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 11, 20, 14, 0);
+
+    @Autowired
+    private TransactionHistoryService historyService;
+    @Autowired
+    private userService userService;
+    @Autowired
+    private TransactionRepo transactionRepo;
+    @Autowired
+    private billPaymentRepo billPaymentRepo;
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        User user = newUser();
+        Wallet ngn = newWallet(user, Currency.NGN, 0);
+        Wallet usd = newWallet(user, Currency.USD, 0);
+        // Transfers at even minutes ago (alternating wallets), bill payments at odd ones
+        for (int i = 0; i < 20; i++) {
+            transfer(user, i % 2 == 0 ? ngn : usd, i * 2);
+        }
+        for (int i = 0; i < 10; i++) {
+            bill(user, i * 2 + 1);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        token = tokenFor(user);
+        userService.getAuthenticatedUser(token); // cached from here on, as for any request after login
+    }
+
+    @Test
+    void aPageIsOneQueryPerTableWhateverItHolds() {
+        HistoryPage page;
+        try (SqlStatementCounter.Recording sql = SqlStatementCounter.record()) {
+            page = historyService.getHistoryPage(token, null, 25);
+
+            assertEquals(2, sql.count(), "statements:\n" + sql);
+            assertEquals(1, sql.count(s -> s.contains("from transaction")), "statements:\n" + sql);
+            assertEquals(1, sql.count(s -> s.contains("from bill_payments")), "statements:\n" + sql);
+        }
+
+        assertEquals(25, page.count());
+        assertEquals(List.of("TRANSFER:0", "AIRTIME:1", "TRANSFER:2", "AIRTIME:3"), minutes(page).subList(0, 4));
+        assertNotNull(page.nextCursor());
+    }
+
+    @Test
+    void nextPageResumesEachTableWithOneQueryEach() {
+        String cursor = historyService.getHistoryPage(token, null, 25).nextCursor();
+
+        HistoryPage page;
+        try (SqlStatementCounter.Recording sql = SqlStatementCounter.record()) {
+            page = historyService.getHistoryPage(token, cursor, 25);
+
+            assertEquals(2, sql.count(), "statements:\n" + sql);
+        }
+
+        // 30 rows in all: the first page ran to minute 28, this one is the last five transfers
+        assertEquals(List.of("TRANSFER:30", "TRANSFER:32", "TRANSFER:34", "TRANSFER:36", "TRANSFER:38"),
+                minutes(page));
+        assertEquals(5, page.count());
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    void malformedCursorIsRejected() {
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> historyService.getHistoryPage(token, "not-a-cursor", 20));
+
+        assertEquals("Invalid cursor", e.getMessage());
+    }
+
+    // type:minutes-ago, so the expected order reads straight off the fixture
+    private static List<String> minutes(HistoryPage page) {
+        return page.items().stream()
+                .map(item -> item.type() + ":" + Duration.between(item.createdAt(), NOW).toMinutes())
+                .toList();
+    }
+
+    private void transfer(User user, Wallet wallet, int minutesAgo) {
+        Transaction tx = TransactionService.createTx(user, wallet, 100_00, TransactionType.TRANSFER_OUT,
+                "TX" + System.nanoTime(), "Transfer", "1000000002", "Chidi Okafor", "Miles Bank");
+        tx.setCreatedAt(NOW.minusMinutes(minutesAgo));
+        transactionRepo.save(tx);
+    }
+
+    private void bill(User user, int minutesAgo) {
+        BillPayment bill = new BillPayment();
+        bill.setUser(user);
+        bill.setAmountMinor(5_00);
+        bill.setBillType(BillType.AIRTIME);
+        bill.setReference("BP" + System.nanoTime());
+        bill.setTransactionStatus(Status.SUCCESSFUL);
+        bill.setPhoneNumber("08030000000");
+        bill.setNetwork("MTN");
+        bill.setCreatedAt(NOW.minusMinutes(minutesAgo));
+        billPaymentRepo.save(bill);
+    }
+}
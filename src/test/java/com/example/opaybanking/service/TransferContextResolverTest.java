@@ -0,0 +1,127 @@
+package com.example.opaybanking.service;
+
+import com.example.opaybanking.PostgresTestSupport;
+import com.example.opaybanking.SqlStatementCounter;
+import com.example.opaybanking.dto.InternalTransferRequest;
+import com.example.opaybanking.enums.Currency;
+import com.example.opaybanking.model.User;
+import com.example.opaybanking.model.Wallet;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Counts the SQL an internal transfer sends to Postgres, from resolving the caller and
+ * both wallets through the lock, ledger, transaction, monthly totals and outbox writes.
+ * The count is fixed: it must not grow with lookups repeated along the way.
+ *
+ * Each test first makes one transfer, so the user is cached and the pooled id blocks
+ * are allocated, as they would be on a warm node. The writes are flushed inside the
+ * recording, because the test transaction is rolled back and never commits.
+ */
+@Transactional
+class TransferContextResolverTest extends PostgresTestSupport {
+
+    @Autowired
+    private TransferContextResolver resolver;
+    @Autowired
+    private TransactionService transactionService;
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private String token;
+    private Wallet senderWallet;
+    private Wallet recipientWallet;
+
+    @BeforeEach
+    void setUp() {
+        User sender = newUser();
+        senderWallet = newWallet(sender, Currency.NGN, 1_000_000_00);
+        recipientWallet = newWallet(newUser(), Currency.NGN, 0);
+        entityManager.flush();
+        entityManager.clear();
+
+        token = tokenFor(sender);
+        transfer(1_00);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void internalTransferRunsAFixedSetOfStatements() {
+        try (SqlStatementCounter.Recording sql = SqlStatementCounter.record()) {
+            transfer(250_00);
+            entityManager.flush();
+
+            String all = "statements:\n" + sql;
+            // Caller's wallet, then the recipient wallet joined to its owner
+            assertEquals(2, sql.count(s -> s.startsWith("select") && !s.contains("for no key update")
+                    && !s.contains("set_config")), all);
+            // lock_timeout, then both wallets locked in id order
+            assertEquals(1, sql.count(s -> s.contains("set_config")), all);
+            assertEquals(2, sql.count(s -> s.contains("for no key update")), all);
+            assertEquals(1, sql.count(s -> s.contains("insert into ledger_entry")), all);
+            assertEquals(1, sql.count(s -> s.contains("insert into transaction")), all);
+            assertEquals(1, sql.count(s -> s.contains("insert into monthly_spending")), all);
+            assertEquals(1, sql.count(s -> s.contains("insert into outbox_event")), all);
+            // Both wallets' balance and event_seq in one batch
+            assertEquals(1, sql.count(s -> s.contains("update wallet")), all);
+            assertEquals(10, sql.count(), all);
+        }
+    }
+
+    @Test
+    void resolvingTheTransferIsTwoQueries() {
+        try (SqlStatementCounter.Recording sql = SqlStatementCounter.record()) {
+            TransferContext ctx = resolver.resolve(token, "ngn", PIN, recipientWallet.getAccountNumber());
+
+            assertEquals(senderWallet.getWalletId(), ctx.fromWallet().getWalletId());
+            assertEquals(recipientWallet.getWalletId(), ctx.toWallet().getWalletId());
+            assertEquals("Ada Obi", ctx.recipientName());
+            assertEquals(2, sql.count(), "statements:\n" + sql);
+        }
+    }
+
+    @Test
+    void externalTransferResolvesOnlyTheSenderSide() {
+        try (SqlStatementCounter.Recording sql = SqlStatementCounter.record()) {
+            TransferContext ctx = resolver.resolveSender(token, "NGN", PIN);
+
+            assertEquals(senderWallet.getWalletId(), ctx.fromWallet().getWalletId());
+            assertNull(ctx.toWallet());
+            assertEquals(1, sql.count(), "statements:\n" + sql);
+        }
+    }
+
+    @Test
+    void wrongPinStopsBeforeTheRecipientLookup() {
+        try (SqlStatementCounter.Recording sql = SqlStatementCounter.record()) {
+            RuntimeException e = assertThrows(RuntimeException.class,
+                    () -> resolver.resolve(token, "NGN", "0000", recipientWallet.getAccountNumber()));
+
+            assertEquals("Invalid PIN", e.getMessage());
+            assertEquals(0, sql.count(s -> s.contains("join users")), "statements:\n" + sql);
+        }
+    }
+
+    @Test
+    void transferToOwnAccountIsRefusedBeforeThePinCheck() {
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> resolver.resolve(token, "NGN", "0000", senderWallet.getAccountNumber()));
+
+        // A wrong PIN would have said so; the own-account check came first
+        assertEquals("You cannot transfer to your own account", e.getMessage());
+    }
+
+    private void transfer(long amountMinor) {
+        transactionService.internalTransfer(new InternalTransferRequest("NGN", recipientWallet.getAccountNumber(),
+                amountMinor / 100.0, PIN, null), token);
+    }
+}
@@ -0,0 +1,208 @@
+package com.example.opaybanking.service;
+
+import com.example.opaybanking.dto.TransferResponse;
+import com.example.opaybanking.enums.Currency;
+import com.example.opaybanking.enums.EntryDirection;
+import com.example.opaybanking.model.User;
+import com.example.opaybanking.model.Wallet;
+import com.example.opaybanking.repo.TransactionRepo;
+import com.example.opaybanking.util.ReferenceGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the engine against stand-ins that behave like the database: wallets are reloaded
+ * from committed balances on every lock, and a rolled-back batch leaves them untouched.
+ */
+class TransferEngineTest {
+
+    private static final long PAYER = 1L;
+    private static final long OTHER_PAYER = 2L;
+    private static final long PAYEE = 10L;
+
+    private final Map<Long, Long> committed = new ConcurrentHashMap<>();
+    private final Map<Long, Wallet> locked = new ConcurrentHashMap<>();
+    private final CountDownLatch firstBatchHeld = new CountDownLatch(1);
+    private final CountDownLatch releaseFirstBatch = new CountDownLatch(1);
+    private final AtomicLong references = new AtomicLong();
+
+    private LedgerService ledgerService;
+    private TransferEngine engine;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        committed.put(PAYER, 100_00L);
+        committed.put(OTHER_PAYER, 1_000_00L);
+        committed.put(PAYEE, 0L);
+
+        WalletLockManager walletLockManager = mock(WalletLockManager.class);
+        when(walletLockManager.lockAllById(any())).thenAnswer(invocation -> {
+            // Lets a test queue several transfers behind the first one so they share a batch
+            if (firstBatchHeld.getCount() > 0) {
+                firstBatchHeld.countDown();
+                releaseFirstBatch.await(5, TimeUnit.SECONDS);
+            }
+            Collection<Long> ids = invocation.getArgument(0);
+            locked.clear();
+            for (Long id : ids) locked.put(id, wallet(id, committed.get(id)));
+            return Map.copyOf(locked);
+        });
+
+        ledgerService = mock(LedgerService.class);
+        doAnswer(invocation -> {
+            for (LedgerService.Posting posting : invocation.<List<LedgerService.Posting>>getArgument(2)) {
+                Wallet wallet = posting.wallet();
+                long delta = posting.direction() == EntryDirection.CREDIT
+                        ? posting.amountMinor() : -posting.amountMinor();
+                wallet.setBalanceMinor(wallet.getBalanceMinor() + delta);
+            }
+            return List.of();
+        }).when(ledgerService).post(anyString(), anyString(), any());
+
+        ReferenceGenerator referenceGenerator = mock(ReferenceGenerator.class);
+        when(referenceGenerator.next(anyString())).thenAnswer(invocation -> "TXN" + references.incrementAndGet());
+
+        PlatformTransactionManager transactionManager = new PlatformTransactionManager() {
+            @Override
+            public TransactionStatus getTransaction(TransactionDefinition definition) {
+                return new SimpleTransactionStatus();
+            }
+
+            @Override
+            public void commit(TransactionStatus status) {
+                locked.forEach((id, wallet) -> committed.put(id, wallet.getBalanceMinor()));
+            }
+
+            @Override
+            public void rollback(TransactionStatus status) {
+                locked.clear();
+            }
+        };
+
+        engine = new TransferEngine(walletLockManager, ledgerService, mock(TransactionRepo.class), mock(OutboxService.class),
+                mock(MonthlySpendingService.class), referenceGenerator, transactionManager, true, 1, 64, 16);
+    }
+
+    @AfterEach
+    void tearDown() {
+        releaseFirstBatch.countDown();
+        engine.shutdown();
+    }
+
+    @Test
+    void anOverdrawingTransferFailsAloneWhileTheRestOfItsBatchCommits() throws Exception {
+        CompletableFuture<TransferResponse> opener = engine.submit(transfer(OTHER_PAYER, 1_00));
+        assertTrue(firstBatchHeld.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<TransferResponse> first = engine.submit(transfer(PAYER, 60_00));
+        CompletableFuture<TransferResponse> overdraw = engine.submit(transfer(PAYER, 60_00));
+        CompletableFuture<TransferResponse> last = engine.submit(transfer(PAYER, 30_00));
+        releaseFirstBatch.countDown();
+
+        opener.get(5, TimeUnit.SECONDS);
+        assertEquals(40.0, first.get(5, TimeUnit.SECONDS).newBalance());
+        assertEquals("Insufficient balance in NGN wallet", failure(overdraw).getMessage());
+        assertEquals(10.0, last.get(5, TimeUnit.SECONDS).newBalance());
+
+        assertEquals(10_00L, committed.get(PAYER));
+        assertEquals(91_00L, committed.get(PAYEE));
+        Map<String, Object> stats = engine.getStats();
+        assertEquals(2L, stats.get("batches"), "the three queued transfers must share one batch");
+        assertEquals(0L, stats.get("retriedSingly"));
+    }
+
+    @Test
+    void aBatchThatFailsIsRetriedOneTransferAtATime() throws Exception {
+        // The ledger refuses one posting outright, which aborts the whole batch transaction
+        doAnswer(invocation -> {
+            throw new IllegalStateException("Ledger posting is unbalanced");
+        }).when(ledgerService).post(anyString(), anyString(), argThat(postings ->
+                postings.stream().anyMatch(p -> p.amountMinor() == 13_00)));
+
+        CompletableFuture<TransferResponse> opener = engine.submit(transfer(OTHER_PAYER, 1_00));
+        assertTrue(firstBatchHeld.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<TransferResponse> before = engine.submit(transfer(PAYER, 10_00));
+        CompletableFuture<TransferResponse> bad = engine.submit(transfer(PAYER, 13_00));
+        CompletableFuture<TransferResponse> after = engine.submit(transfer(PAYER, 20_00));
+        releaseFirstBatch.countDown();
+
+        opener.get(5, TimeUnit.SECONDS);
+        assertEquals(90.0, before.get(5, TimeUnit.SECONDS).newBalance());
+        assertEquals("Ledger posting is unbalanced", failure(bad).getMessage());
+        assertEquals(70.0, after.get(5, TimeUnit.SECONDS).newBalance());
+
+        assertEquals(70_00L, committed.get(PAYER), "the failed batch must not have been applied twice");
+        assertEquals(3L, engine.getStats().get("retriedSingly"));
+    }
+
+    @Test
+    void anErrorInAWorkerFailsItsTransfersAndTheWorkerCarriesOn() throws Exception {
+        doAnswer(invocation -> {
+            throw new AssertionError("boom");
+        }).when(ledgerService).post(anyString(), anyString(), argThat(postings ->
+                postings.stream().anyMatch(p -> p.amountMinor() == 7_00)));
+        releaseFirstBatch.countDown();
+
+        assertEquals("boom", failure(engine.submit(transfer(PAYER, 7_00))).getMessage());
+        assertEquals(95.0, engine.submit(transfer(PAYER, 5_00)).get(5, TimeUnit.SECONDS).newBalance());
+    }
+
+    @Test
+    void transfersSubmittedAfterShutdownFailInsteadOfHanging() throws Exception {
+        releaseFirstBatch.countDown();
+        engine.shutdown();
+
+        CompletableFuture<TransferResponse> late = engine.submit(transfer(PAYER, 1_00));
+
+        assertTrue(failure(late).getMessage().startsWith("Transfer engine is shutting down"));
+        assertEquals(100_00L, committed.get(PAYER));
+    }
+
+    private static TransferEngine.InternalTransfer transfer(long fromWalletId, long amountMinor) {
+        return new TransferEngine.InternalTransfer(fromWalletId, PAYEE, amountMinor, "out", "in", response -> { });
+    }
+
+    private static Throwable failure(CompletableFuture<?> future) {
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        return e.getCause();
+    }
+
+    private static Wallet wallet(Long id, long balanceMinor) {
+        User user = new User();
+        user.setUserId(id.intValue());
+        Wallet wallet = new Wallet();
+        wallet.setWalletId(id);
+        wallet.setUser(user);
+        wallet.setCurrency(Currency.NGN);
+        wallet.setAccountNumber("10000000" + String.format("%02d", id));
+        wallet.setAccountName("Wallet " + id);
+        wallet.setBalanceMinor(balanceMinor);
+        return wallet;
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.opaybanking.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RingBufferTest {
+
+    @Test
+    void offerFailsWhenFullAndSlotsAreReusedAfterDraining() {
+        RingBuffer<Integer> ring = new RingBuffer<>(4);
+        List<Integer> drained = new ArrayList<>();
+
+        // Several laps around a four-slot ring
+        for (int lap = 0; lap < 5; lap++) {
+            for (int i = 0; i < 4; i++) {
+                assertTrue(ring.offer(lap * 4 + i));
+            }
+            assertFalse(ring.offer(-1), "a full ring must refuse");
+            assertEquals(4, ring.size());
+            assertEquals(4, ring.drainTo(drained, 10));
+            assertEquals(0, ring.drainTo(drained, 10));
+        }
+
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 20; i++) expected.add(i);
+        assertEquals(expected, drained);
+    }
+
+    @Test
+    void capacityMustBeAPowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new RingBuffer<>(6));
+        assertThrows(NullPointerException.class, () -> new RingBuffer<>(2).offer(null));
+    }
+
+    @Test
+    void concurrentProducersLoseAndDuplicateNothing() throws Exception {
+        int producers = 4;
+        int perProducer = 20_000;
+        // A small ring so producers keep running into a full buffer and the slots wrap thousands of times
+        RingBuffer<long[]> ring = new RingBuffer<>(64);
+        ExecutorService pool = Executors.newFixedThreadPool(producers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> running = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            long producer = p;
+            running.add(pool.submit(() -> {
+                start.await();
+                for (long seq = 0; seq < perProducer; seq++) {
+                    long[] item = {producer, seq};
+                    while (!ring.offer(item)) {
+                        Thread.yield();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        long[] nextSeq = new long[producers];
+        List<long[]> batch = new ArrayList<>(32);
+        int received = 0;
+        start.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (received < producers * perProducer) {
+            assertTrue(System.nanoTime() < deadline, "consumer stalled after " + received + " items");
+            batch.clear();
+            int drained = ring.drainTo(batch, 32);
+            if (drained == 0) Thread.yield();
+            received += drained;
+            for (long[] item : batch) {
+                int producer = (int) item[0];
+                // Each producer's items arrive exactly once and in the order it offered them
+                assertEquals(nextSeq[producer], item[1], "producer " + producer);
+                nextSeq[producer]++;
+            }
+        }
+
+        for (Future<?> producer : running) {
+            producer.get(5, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+        for (int p = 0; p < producers; p++) {
+            assertEquals(perProducer, nextSeq[p]);
+        }
+        assertEquals(0, ring.drainTo(batch, 32));
+        assertEquals(0, ring.size());
+    }
+}